@@ -3,11 +3,17 @@ package com.skk.jdsbackend;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 
+import java.util.Map;
+
 @SpringBootApplication
 public class JdsbackendApplication {
 
 	public static void main(String[] args) {
-		SpringApplication.run(JdsbackendApplication.class, args);
+		SpringApplication application = new SpringApplication(JdsbackendApplication.class);
+		// Publishes the storage and OCR meters at /actuator/metrics (ADMIN only, see SecurityConfig);
+		// any management.endpoints setting in the deployment's configuration wins over this default
+		application.setDefaultProperties(Map.of("management.endpoints.web.exposure.include", "health,metrics"));
+		application.run(args);
 	}
 
 }
@@ -2,6 +2,7 @@ package com.skk.jdsbackend.config;
 
 import com.skk.jdsbackend.entity.*;
 import com.skk.jdsbackend.repository.*;
+import com.skk.jdsbackend.service.CaseAccessIndexService;
 import com.skk.jdsbackend.service.SequenceGeneratorService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -33,6 +34,7 @@ public class DataSeeder implements CommandLineRunner {
     private final DocumentTemplateRepository documentTemplateRepository;
     private final PasswordEncoder passwordEncoder;
     private final SequenceGeneratorService sequenceGeneratorService;
+    private final CaseAccessIndexService caseAccessIndexService;
 
     @Override
     @Transactional
@@ -50,6 +52,7 @@ public class DataSeeder implements CommandLineRunner {
 
         // Seed cases
         List<Case> cases = seedCases(users, clients);
+        caseAccessIndexService.rebuild();
 
         // Seed tasks
         seedTasks(cases, users);
@@ -343,6 +346,11 @@ public class DataSeeder implements CommandLineRunner {
         task5.setAssignedUser(caseWorkers.size() > 1 ? caseWorkers.get(1) : caseWorkers.get(0));
         taskRepository.save(task5);
 
+        // Keep the denormalized per-case task counters in step with the seeded rows
+        for (Task task : List.of(task1, task2, task3, task4, task5)) {
+            caseRepository.adjustTasksCount(task.getCaseEntity().getId(), 1);
+        }
+
         log.info("Tasks seeded successfully!");
     }
 }
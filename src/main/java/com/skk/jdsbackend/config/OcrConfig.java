@@ -0,0 +1,20 @@
+package com.skk.jdsbackend.config;
+
+import com.skk.jdsbackend.ocr.OcrEngine;
+import com.skk.jdsbackend.ocr.PlaceholderOcrEngine;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Falls back to the placeholder OCR engine unless another OcrEngine bean is defined.
+ */
+@Configuration
+public class OcrConfig {
+
+    @Bean
+    @ConditionalOnMissingBean(OcrEngine.class)
+    public OcrEngine ocrEngine() {
+        return new PlaceholderOcrEngine();
+    }
+}
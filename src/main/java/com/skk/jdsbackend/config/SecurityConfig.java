@@ -1,9 +1,11 @@
 package com.skk.jdsbackend.config;
 
 import com.skk.jdsbackend.security.AuthEntryPointJwt;
+import com.skk.jdsbackend.security.BoundedPasswordEncoder;
 import com.skk.jdsbackend.security.JwtAuthenticationFilter;
 import com.skk.jdsbackend.security.UserDetailsServiceImpl;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -33,6 +35,16 @@ public class SecurityConfig {
     @Autowired
     private AuthEntryPointJwt unauthorizedHandler;
 
+    @Value("${app.security.bcrypt-strength:10}")
+    private int bcryptStrength;
+
+    // 0 = one concurrent hash per available core
+    @Value("${app.security.password-hashing.max-concurrent:0}")
+    private int hashingMaxConcurrent;
+
+    @Value("${app.security.password-hashing.acquire-timeout-ms:2000}")
+    private long hashingAcquireTimeoutMillis;
+
     @Bean
     public JwtAuthenticationFilter jwtAuthenticationFilter() {
         return new JwtAuthenticationFilter();
@@ -40,7 +52,9 @@ public class SecurityConfig {
 
     @Bean
     public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+        int maxConcurrent = hashingMaxConcurrent > 0 ? hashingMaxConcurrent : Runtime.getRuntime().availableProcessors();
+        return new BoundedPasswordEncoder(new BCryptPasswordEncoder(bcryptStrength), maxConcurrent,
+                hashingAcquireTimeoutMillis);
     }
 
     @Bean
@@ -65,6 +79,7 @@ public class SecurityConfig {
                         .requestMatchers("/api/auth/**").permitAll()
                         .requestMatchers("/api/documents/callback/**").permitAll() // Allow ONLYOFFICE callbacks
                         .requestMatchers("/api/documents/download/**").permitAll()
+                        .requestMatchers("/actuator/**").hasRole("ADMIN")
                         .anyRequest().authenticated());
 
         http.authenticationProvider(authenticationProvider());
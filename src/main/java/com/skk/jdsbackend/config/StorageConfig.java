@@ -0,0 +1,36 @@
+package com.skk.jdsbackend.config;
+
+import com.skk.jdsbackend.storage.CompressingDocumentStorage;
+import com.skk.jdsbackend.storage.DocumentStorage;
+import com.skk.jdsbackend.storage.InMemoryDocumentStorage;
+import com.skk.jdsbackend.storage.ShardedFileSystemStorage;
+import com.skk.jdsbackend.storage.StreamingFileWriter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Selects the DocumentStorage backend with app.storage.type ("filesystem" or
+ * "memory") and wraps it for compression at rest. The wrapper is always present,
+ * even with app.storage.compression.enabled=false, so objects written compressed
+ * earlier stay readable.
+ */
+@Configuration
+public class StorageConfig {
+
+    @Bean
+    public DocumentStorage documentStorage(@Value("${app.storage.type:filesystem}") String type,
+                                           @Value("${file.upload-dir:uploads}") String uploadDir,
+                                           @Value("${app.storage.compression.enabled:false}") boolean compress,
+                                           @Value("${app.storage.compression.frame-size:262144}") int frameSize,
+                                           @Value("${app.storage.compression.level:6}") int level,
+                                           StreamingFileWriter fileWriter, MeterRegistry meterRegistry) {
+        DocumentStorage backend = switch (type) {
+            case "filesystem" -> new ShardedFileSystemStorage(uploadDir, fileWriter);
+            case "memory" -> new InMemoryDocumentStorage(fileWriter);
+            default -> throw new IllegalStateException("Unknown app.storage.type: " + type);
+        };
+        return new CompressingDocumentStorage(backend, compress, frameSize, level, meterRegistry);
+    }
+}
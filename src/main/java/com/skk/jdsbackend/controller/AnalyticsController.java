@@ -2,7 +2,9 @@ package com.skk.jdsbackend.controller;
 
 import com.skk.jdsbackend.dto.*;
 import com.skk.jdsbackend.service.AnalyticsService;
+import com.skk.jdsbackend.service.AnalyticsSnapshotService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Sort;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
@@ -16,6 +18,7 @@ import java.util.List;
 public class AnalyticsController {
 
     private final AnalyticsService analyticsService;
+    private final AnalyticsSnapshotService analyticsSnapshotService;
 
     /**
      * GET /api/analytics/dashboard
@@ -89,6 +92,21 @@ public class AnalyticsController {
         return ResponseEntity.ok(workload);
     }
 
+    /**
+     * GET /api/analytics/users/workload?page=0&size=20&sort=activeCases&direction=DESC
+     * Paged and sorted workload report
+     * Available to ADMIN and MANAGER roles
+     */
+    @GetMapping(value = "/users/workload", params = "page")
+    @PreAuthorize("hasAnyRole('ADMIN', 'MANAGER')")
+    public ResponseEntity<PageResponse<UserWorkloadDto>> getUserWorkloadPage(
+            @RequestParam int page,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(defaultValue = "activeCases") String sort,
+            @RequestParam(defaultValue = "DESC") Sort.Direction direction) {
+        return ResponseEntity.ok(analyticsService.getUserWorkload(Math.max(page, 0), clampPageSize(size), sort, direction));
+    }
+
     /**
      * GET /api/analytics/clients/stats
      * Get statistics for all clients
@@ -100,4 +118,46 @@ public class AnalyticsController {
         List<ClientStatsDto> stats = analyticsService.getClientStats();
         return ResponseEntity.ok(stats);
     }
+
+    /**
+     * GET /api/analytics/clients/stats?page=0&size=20&sort=totalCases&direction=DESC
+     * Paged and sorted client statistics
+     * Available to ADMIN and MANAGER roles
+     */
+    @GetMapping(value = "/clients/stats", params = "page")
+    @PreAuthorize("hasAnyRole('ADMIN', 'MANAGER')")
+    public ResponseEntity<PageResponse<ClientStatsDto>> getClientStatsPage(
+            @RequestParam int page,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(defaultValue = "totalCases") String sort,
+            @RequestParam(defaultValue = "DESC") Sort.Direction direction) {
+        return ResponseEntity.ok(analyticsService.getClientStats(Math.max(page, 0), clampPageSize(size), sort, direction));
+    }
+
+    /**
+     * GET /api/analytics/snapshot
+     * Age and staleness bound of the in-memory counters behind the dashboard
+     * Available to all authenticated users
+     */
+    @GetMapping("/snapshot")
+    @PreAuthorize("isAuthenticated()")
+    public ResponseEntity<AnalyticsSnapshotStatusDto> getSnapshotStatus() {
+        return ResponseEntity.ok(analyticsSnapshotService.getStatus());
+    }
+
+    /**
+     * POST /api/analytics/snapshot/rebuild
+     * Rebuild the dashboard counters from the database
+     * Available to ADMIN role
+     */
+    @PostMapping("/snapshot/rebuild")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<AnalyticsSnapshotStatusDto> rebuildSnapshot() {
+        analyticsSnapshotService.rebuild();
+        return ResponseEntity.ok(analyticsSnapshotService.getStatus());
+    }
+
+    private int clampPageSize(int size) {
+        return Math.max(1, Math.min(size, 200));
+    }
 }
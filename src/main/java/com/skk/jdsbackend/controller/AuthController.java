@@ -1,7 +1,9 @@
 package com.skk.jdsbackend.controller;
 
 import com.skk.jdsbackend.dto.*;
+import com.skk.jdsbackend.exception.TooManyRequestsException;
 import com.skk.jdsbackend.service.AuthService;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
@@ -17,18 +19,22 @@ public class AuthController {
     private AuthService authService;
 
     @PostMapping("/register")
-    public ResponseEntity<?> register(@Valid @RequestBody RegisterRequest registerRequest) {
+    public ResponseEntity<?> register(@Valid @RequestBody RegisterRequest registerRequest,
+            HttpServletRequest request) {
         try {
-            AuthResponse response = authService.register(registerRequest);
+            AuthResponse response = authService.register(registerRequest, request.getRemoteAddr());
             return ResponseEntity.status(HttpStatus.CREATED).body(response);
+        } catch (TooManyRequestsException e) {
+            throw e;
         } catch (RuntimeException e) {
             return ResponseEntity.badRequest().body(new MessageResponse(e.getMessage()));
         }
     }
 
     @PostMapping("/login")
-    public ResponseEntity<AuthResponse> login(@Valid @RequestBody LoginRequest loginRequest) {
-        AuthResponse response = authService.login(loginRequest);
+    public ResponseEntity<AuthResponse> login(@Valid @RequestBody LoginRequest loginRequest,
+            HttpServletRequest request) {
+        AuthResponse response = authService.login(loginRequest, request.getRemoteAddr());
         return ResponseEntity.ok(response);
     }
 
@@ -36,7 +42,6 @@ public class AuthController {
     public ResponseEntity<?> refreshToken(@Valid @RequestBody RefreshTokenRequest request) {
         try {
             AuthResponse response = authService.refreshToken(request.getRefreshToken());
-            System.out.println("Refresh token: " + request.getRefreshToken());
             return ResponseEntity.ok(response);
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(new MessageResponse(e.getMessage()));
@@ -45,6 +45,17 @@ public class CaseController {
         return ResponseEntity.ok(cases);
     }
 
+    /**
+     * GET /api/cases?limit=50[&cursor=...&status=...&priority=...&assignedUserId=...&clientId=...&dueFrom=...&dueTo=...&mine=true]
+     * Keyset-paginated listing, selected whenever a limit is supplied
+     */
+    @GetMapping(params = "limit")
+    @PreAuthorize("hasAuthority('CASE_READ')")
+    public ResponseEntity<CasePageResponse> getCasesPage(@Valid @ModelAttribute CaseListFilter filter,
+            @AuthenticationPrincipal UserDetailsImpl userDetails) {
+        return ResponseEntity.ok(caseService.getCasesPage(filter, userDetails.getId()));
+    }
+
     @GetMapping("/status/{status}")
     @PreAuthorize("hasRole('CASE_WORKER') or hasRole('ADMIN')")
     public ResponseEntity<List<CaseResponse>> getCasesByStatus(@PathVariable CaseStatus status) {
@@ -1,20 +1,26 @@
 package com.skk.jdsbackend.controller;
 
 import com.skk.jdsbackend.dto.DocumentResponse;
+import com.skk.jdsbackend.dto.DocumentSummaryDto;
 import com.skk.jdsbackend.dto.MessageResponse;
 import com.skk.jdsbackend.dto.OnlyOfficeCallbackRequest;
 import com.skk.jdsbackend.dto.OnlyOfficeCallbackResponse;
 import com.skk.jdsbackend.service.DocumentService;
+import com.skk.jdsbackend.storage.FileDownload;
+import com.skk.jdsbackend.storage.ZeroCopyFileSender;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import org.springframework.core.io.Resource;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
-import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
 
 @RestController
@@ -24,6 +30,7 @@ import java.util.List;
 public class DocumentController {
 
     private final DocumentService documentService;
+    private final ZeroCopyFileSender fileSender;
 
     @PostMapping("/upload")
     @PreAuthorize("hasAuthority('DOCUMENT_WRITE')")
@@ -34,34 +41,55 @@ public class DocumentController {
         return new ResponseEntity<>(response, HttpStatus.CREATED);
     }
 
+    /**
+     * POST /api/documents/upload/stream?caseId=..&fileName=..
+     * Upload the raw request body as a document. The body is streamed straight to
+     * storage instead of being buffered as a multipart part first; the
+     * Content-Type header is taken as the declared file type.
+     */
+    @PostMapping("/upload/stream")
+    @PreAuthorize("hasAuthority('DOCUMENT_WRITE')")
+    public ResponseEntity<DocumentResponse> uploadDocumentStream(
+            @RequestParam("caseId") Long caseId,
+            @RequestParam("fileName") String fileName,
+            @RequestHeader(value = HttpHeaders.CONTENT_TYPE, required = false) String contentType,
+            InputStream body) {
+        DocumentResponse response = documentService.uploadDocumentStream(caseId, fileName, contentType, body);
+        return new ResponseEntity<>(response, HttpStatus.CREATED);
+    }
+
+    /**
+     * GET /api/documents/{id}
+     * Extracted text is included only with includeText=true
+     */
     @GetMapping("/{id}")
     @PreAuthorize("hasAuthority('DOCUMENT_READ')")
-    public ResponseEntity<DocumentResponse> getDocumentById(@PathVariable Long id) {
-        DocumentResponse response = documentService.getDocumentById(id);
+    public ResponseEntity<DocumentResponse> getDocumentById(@PathVariable Long id,
+                                                            @RequestParam(defaultValue = "false") boolean includeText) {
+        DocumentResponse response = documentService.getDocumentById(id, includeText);
         return ResponseEntity.ok(response);
     }
 
     @GetMapping("/case/{caseId}")
     @PreAuthorize("hasAuthority('DOCUMENT_READ')")
-    public ResponseEntity<List<DocumentResponse>> getDocumentsByCaseId(@PathVariable Long caseId) {
-        List<DocumentResponse> documents = documentService.getDocumentsByCaseId(caseId);
+    public ResponseEntity<List<DocumentSummaryDto>> getDocumentsByCaseId(@PathVariable Long caseId) {
+        List<DocumentSummaryDto> documents = documentService.getDocumentsByCaseId(caseId);
         return ResponseEntity.ok(documents);
     }
 
+    /**
+     * GET /api/documents/download/{id}
+     * Supports Range requests and conditional GET through the ETag/Last-Modified
+     * headers set by FileDownload.
+     */
     @GetMapping("/download/{id}")
     // @PreAuthorize("hasAuthority('DOCUMENT_READ')") // Removed for ONLYOFFICE
     // access
-    public ResponseEntity<Resource> downloadDocument(@PathVariable Long id) {
-        DocumentResponse documentInfo = documentService.getDocumentById(id);
-        Resource resource = documentService.downloadDocument(id);
-
+    public ResponseEntity<Resource> downloadDocument(@PathVariable Long id, HttpServletRequest request,
+                                                     HttpServletResponse response) throws IOException {
         // Use inline disposition for ONLYOFFICE compatibility
-        return ResponseEntity.ok()
-                .contentType(MediaType.parseMediaType(documentInfo.getFileType()))
-                .header(HttpHeaders.CONTENT_DISPOSITION,
-                        "inline; filename=\"" + documentInfo.getFileName() + "\"")
-                // CORS handled by SecurityConfig
-                .body(resource);
+        // CORS handled by SecurityConfig
+        return sendFile(documentService.downloadDocument(id), "inline", request, response);
     }
 
     @DeleteMapping("/{id}")
@@ -77,16 +105,10 @@ public class DocumentController {
      */
     @GetMapping("/preview/{id}")
     @PreAuthorize("hasAuthority('DOCUMENT_READ')")
-    public ResponseEntity<Resource> previewDocument(@PathVariable Long id) {
-        DocumentResponse documentInfo = documentService.getDocumentById(id);
-        Resource resource = documentService.downloadDocument(id);
-
+    public ResponseEntity<Resource> previewDocument(@PathVariable Long id, HttpServletRequest request,
+                                                    HttpServletResponse response) throws IOException {
         // Set content disposition to inline for browser preview
-        return ResponseEntity.ok()
-                .contentType(MediaType.parseMediaType(documentInfo.getFileType()))
-                .header(HttpHeaders.CONTENT_DISPOSITION,
-                        "inline; filename=\"" + documentInfo.getFileName() + "\"")
-                .body(resource);
+        return sendFile(documentService.downloadDocument(id), "inline", request, response);
     }
 
     /**
@@ -107,4 +129,14 @@ public class DocumentController {
                     OnlyOfficeCallbackResponse.error(3, e.getMessage()));
         }
     }
+
+    // Large files bypass the message converters; a null body tells Spring the response is complete
+    private ResponseEntity<Resource> sendFile(FileDownload download, String disposition,
+                                              HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+        if (fileSender.send(download, disposition, request, response)) {
+            return null;
+        }
+        return download.toResponse(disposition);
+    }
 }
@@ -1,11 +1,14 @@
 package com.skk.jdsbackend.controller;
 
+import com.skk.jdsbackend.dto.OcrJobResponse;
 import com.skk.jdsbackend.service.DocumentOCRService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 
+import java.net.URI;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -19,18 +22,36 @@ public class DocumentOCRController {
 
     /**
      * POST /api/documents/ocr/extract/{documentId}
-     * Extract text from document using OCR
+     * Queue OCR of the document; poll the returned job for progress
      */
     @PostMapping("/extract/{documentId}")
     @PreAuthorize("hasRole('CASE_WORKER') or hasRole('ADMIN')")
-    public ResponseEntity<Map<String, String>> extractText(@PathVariable Long documentId) {
-        String extractedText = ocrService.extractTextFromDocument(documentId);
-        
-        Map<String, String> response = new HashMap<>();
-        response.put("documentId", documentId.toString());
-        response.put("extractedText", extractedText);
-        
-        return ResponseEntity.ok(response);
+    public ResponseEntity<OcrJobResponse> extractText(@PathVariable Long documentId,
+                                                      Authentication authentication) {
+        OcrJobResponse job = ocrService.submit(documentId, authentication.getName());
+        return ResponseEntity.accepted()
+                .location(URI.create("/api/documents/ocr/jobs/" + job.getId()))
+                .body(job);
+    }
+
+    /**
+     * GET /api/documents/ocr/jobs/{jobId}
+     * Status and page progress of an OCR job
+     */
+    @GetMapping("/jobs/{jobId}")
+    @PreAuthorize("hasRole('CASE_WORKER') or hasRole('ADMIN')")
+    public ResponseEntity<OcrJobResponse> getJob(@PathVariable Long jobId) {
+        return ResponseEntity.ok(ocrService.getJob(jobId));
+    }
+
+    /**
+     * GET /api/documents/ocr/{documentId}/job
+     * Latest OCR job of a document
+     */
+    @GetMapping("/{documentId}/job")
+    @PreAuthorize("hasRole('CASE_WORKER') or hasRole('ADMIN')")
+    public ResponseEntity<OcrJobResponse> getLatestJob(@PathVariable Long documentId) {
+        return ResponseEntity.ok(ocrService.getLatestJob(documentId));
     }
 
     /**
@@ -6,9 +6,7 @@ import com.skk.jdsbackend.dto.MessageResponse;
 import com.skk.jdsbackend.service.DocumentTemplateService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.core.io.Resource;
-import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
-import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
@@ -79,19 +77,12 @@ public class DocumentTemplateController {
 
     /**
      * GET /api/documents/templates/download/{id}
-     * Download template file
+     * Download template file (Range and conditional GET supported)
      */
     @GetMapping("/download/{id}")
     @PreAuthorize("isAuthenticated()")
     public ResponseEntity<Resource> downloadTemplate(@PathVariable Long id) {
-        DocumentTemplateResponse templateInfo = templateService.getTemplateById(id);
-        Resource resource = templateService.downloadTemplate(id);
-
-        return ResponseEntity.ok()
-                .contentType(MediaType.parseMediaType(templateInfo.getFileType()))
-                .header(HttpHeaders.CONTENT_DISPOSITION,
-                        "attachment; filename=\"" + templateInfo.getName() + "\"")
-                .body(resource);
+        return templateService.downloadTemplate(id).toResponse("attachment");
     }
 
     /**
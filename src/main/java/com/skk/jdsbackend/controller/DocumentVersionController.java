@@ -2,17 +2,22 @@ package com.skk.jdsbackend.controller;
 
 import com.skk.jdsbackend.dto.DocumentVersionResponse;
 import com.skk.jdsbackend.service.DocumentVersionService;
+import com.skk.jdsbackend.storage.FileDownload;
+import com.skk.jdsbackend.storage.ZeroCopyFileSender;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import org.springframework.core.io.Resource;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
-import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
 
 @RestController
@@ -22,6 +27,7 @@ import java.util.List;
 public class DocumentVersionController {
 
     private final DocumentVersionService versionService;
+    private final ZeroCopyFileSender fileSender;
 
     /**
      * POST /api/documents/versions/{documentId}
@@ -41,6 +47,25 @@ public class DocumentVersionController {
         return new ResponseEntity<>(response, HttpStatus.CREATED);
     }
 
+    /**
+     * POST /api/documents/versions/{documentId}/stream?fileName=..
+     * Create a new version from the raw request body, streamed straight to storage
+     */
+    @PostMapping("/{documentId}/stream")
+    @PreAuthorize("hasRole('CASE_WORKER') or hasRole('ADMIN')")
+    public ResponseEntity<DocumentVersionResponse> createNewVersionStream(
+            @PathVariable Long documentId,
+            @RequestParam("fileName") String fileName,
+            @RequestParam(value = "changeDescription", required = false) String changeDescription,
+            @RequestHeader(value = HttpHeaders.CONTENT_TYPE, required = false) String contentType,
+            InputStream body,
+            Authentication authentication) {
+
+        DocumentVersionResponse response = versionService.createNewVersionStream(
+                documentId, fileName, contentType, body, changeDescription, authentication.getName());
+        return new ResponseEntity<>(response, HttpStatus.CREATED);
+    }
+
     /**
      * GET /api/documents/versions/{documentId}
      * Get all versions of a document
@@ -65,19 +90,18 @@ public class DocumentVersionController {
 
     /**
      * GET /api/documents/versions/download/{versionId}
-     * Download a specific version
+     * Download a specific version (Range and conditional GET supported)
      */
     @GetMapping("/download/{versionId}")
     @PreAuthorize("hasRole('CASE_WORKER') or hasRole('ADMIN')")
-    public ResponseEntity<Resource> downloadVersion(@PathVariable Long versionId) {
-        DocumentVersionResponse versionInfo = versionService.getVersionById(versionId);
-        Resource resource = versionService.downloadVersion(versionId);
-
-        return ResponseEntity.ok()
-                .contentType(MediaType.parseMediaType(versionInfo.getFileType()))
-                .header(HttpHeaders.CONTENT_DISPOSITION,
-                        "attachment; filename=\"" + versionInfo.getFileName() + "\"")
-                .body(resource);
+    public ResponseEntity<Resource> downloadVersion(@PathVariable Long versionId, HttpServletRequest request,
+                                                    HttpServletResponse response) throws IOException {
+        FileDownload download = versionService.downloadVersion(versionId);
+        // Large files bypass the message converters; a null body tells Spring the response is complete
+        if (fileSender.send(download, "attachment", request, response)) {
+            return null;
+        }
+        return download.toResponse("attachment");
     }
 
     /**
@@ -0,0 +1,89 @@
+package com.skk.jdsbackend.controller;
+
+import com.skk.jdsbackend.dto.MessageResponse;
+import com.skk.jdsbackend.dto.UploadSessionCreateRequest;
+import com.skk.jdsbackend.dto.UploadSessionResponse;
+import com.skk.jdsbackend.service.UploadSessionService;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.InputStream;
+
+/**
+ * Resumable uploads: create a session, PUT chunks in any order (in parallel if
+ * wanted), check which are missing after an interruption, then commit.
+ *
+ * Sessions that add a version to an existing document need the same roles as
+ * DocumentVersionController, both when they are created and when they are committed.
+ */
+@RestController
+@RequestMapping("/api/documents/uploads")
+@RequiredArgsConstructor
+@CrossOrigin(origins = "*", maxAge = 3600)
+public class UploadSessionController {
+
+    private final UploadSessionService uploadSessionService;
+
+    /**
+     * POST /api/documents/uploads
+     * Start a session; the response carries the chunk size and chunk count to use
+     */
+    @PostMapping
+    @PreAuthorize("hasAuthority('DOCUMENT_WRITE') and (#request.documentId == null "
+            + "or hasRole('CASE_WORKER') or hasRole('ADMIN'))")
+    public ResponseEntity<UploadSessionResponse> createSession(
+            @Valid @RequestBody UploadSessionCreateRequest request,
+            Authentication authentication) {
+        UploadSessionResponse response = uploadSessionService.createSession(request, authentication.getName());
+        return new ResponseEntity<>(response, HttpStatus.CREATED);
+    }
+
+    /**
+     * GET /api/documents/uploads/{sessionId}
+     * Received and missing chunks, for resuming
+     */
+    @GetMapping("/{sessionId}")
+    @PreAuthorize("hasAuthority('DOCUMENT_WRITE')")
+    public ResponseEntity<UploadSessionResponse> getSession(@PathVariable String sessionId,
+                                                            Authentication authentication) {
+        return ResponseEntity.ok(uploadSessionService.getSession(sessionId, authentication.getName()));
+    }
+
+    /**
+     * PUT /api/documents/uploads/{sessionId}/chunks/{index}
+     * Raw chunk body, written at offset index * chunkSize
+     */
+    @PutMapping("/{sessionId}/chunks/{index}")
+    @PreAuthorize("hasAuthority('DOCUMENT_WRITE')")
+    public ResponseEntity<UploadSessionResponse> uploadChunk(@PathVariable String sessionId,
+                                                             @PathVariable int index,
+                                                             InputStream body,
+                                                             Authentication authentication) {
+        return ResponseEntity.ok(uploadSessionService.writeChunk(sessionId, index, body, authentication.getName()));
+    }
+
+    /**
+     * POST /api/documents/uploads/{sessionId}/commit
+     * Returns the created document, or the new version for a version upload
+     */
+    @PostMapping("/{sessionId}/commit")
+    @PreAuthorize("hasAuthority('DOCUMENT_WRITE') and (!@uploadSessionService.isVersionUpload(#sessionId) "
+            + "or hasRole('CASE_WORKER') or hasRole('ADMIN'))")
+    public ResponseEntity<Object> commit(@PathVariable String sessionId, Authentication authentication) {
+        UploadSessionService.CommitResult result = uploadSessionService.commit(sessionId, authentication.getName());
+        Object created = result.document() != null ? result.document() : result.version();
+        return new ResponseEntity<>(created, HttpStatus.CREATED);
+    }
+
+    @DeleteMapping("/{sessionId}")
+    @PreAuthorize("hasAuthority('DOCUMENT_WRITE')")
+    public ResponseEntity<MessageResponse> abort(@PathVariable String sessionId, Authentication authentication) {
+        uploadSessionService.abort(sessionId, authentication.getName());
+        return ResponseEntity.ok(new MessageResponse("Upload session deleted"));
+    }
+}
@@ -0,0 +1,20 @@
+package com.skk.jdsbackend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class AnalyticsSnapshotStatusDto {
+    private Instant rebuiltAt;
+    private Instant lastUpdatedAt;
+    private Long ageMillis;
+    private Long maxStalenessMillis;
+    private Long incrementalUpdates;
+}
@@ -0,0 +1,45 @@
+package com.skk.jdsbackend.dto;
+
+import com.skk.jdsbackend.exception.BadRequestException;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Keyset position in the case listing, ordered by (updatedAt DESC, id DESC).
+ * Encoded as an opaque URL-safe token so clients cannot depend on its layout.
+ */
+@Data
+@AllArgsConstructor
+public class CaseCursor {
+
+    private static final String SEPARATOR = "|";
+
+    private LocalDateTime updatedAt;
+    private Long id;
+
+    public String encode() {
+        String raw = updatedAt.toString() + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static CaseCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separatorIndex = raw.lastIndexOf(SEPARATOR);
+            if (separatorIndex < 0) {
+                throw new BadRequestException("Invalid cursor: " + token);
+            }
+            LocalDateTime updatedAt = LocalDateTime.parse(raw.substring(0, separatorIndex));
+            Long id = Long.valueOf(raw.substring(separatorIndex + 1));
+            return new CaseCursor(updatedAt, id);
+        } catch (DateTimeParseException | IllegalArgumentException e) {
+            throw new BadRequestException("Invalid cursor: " + token, e);
+        }
+    }
+}
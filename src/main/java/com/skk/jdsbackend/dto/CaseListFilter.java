@@ -0,0 +1,46 @@
+package com.skk.jdsbackend.dto;
+
+import com.skk.jdsbackend.entity.CasePriority;
+import com.skk.jdsbackend.entity.CaseStatus;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.time.LocalDateTime;
+
+/**
+ * Query parameters for the keyset-paginated case listing.
+ * All filters are optional and are applied in SQL.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CaseListFilter {
+
+    private CaseStatus status;
+
+    private CasePriority priority;
+
+    private Long assignedUserId;
+
+    private Long clientId;
+
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+    private LocalDateTime dueFrom;
+
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+    private LocalDateTime dueTo;
+
+    // Only cases the current user is assigned to or participates in (same as /my-cases)
+    private Boolean mine;
+
+    // Opaque cursor returned as nextCursor by the previous page
+    private String cursor;
+
+    @Min(value = 1, message = "Limit must be at least 1")
+    @Max(value = 200, message = "Limit must not exceed 200")
+    private Integer limit = 50;
+}
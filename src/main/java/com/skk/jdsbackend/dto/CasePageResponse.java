@@ -0,0 +1,17 @@
+package com.skk.jdsbackend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CasePageResponse {
+
+    private List<CaseResponse> items;
+    private String nextCursor;
+    private boolean hasMore;
+}
@@ -27,6 +27,7 @@ public class CaseResponse {
     private ClientSummaryDto client;
     private Integer notesCount;
     private Integer documentsCount;
+    private Integer tasksCount;
     private String referenceNumber;
     private UserSummaryDto createdByUser;
     private UserSummaryDto lastModifiedByUser;
@@ -18,7 +18,7 @@ public class DocumentResponse {
     private Long caseId;
     private Integer currentVersion;
     private String description;
-    private String ocrText;
+    private String ocrText; // Only with includeText=true
     private Boolean isTemplateBased;
     private Long templateId;
     private String templateName;
@@ -0,0 +1,34 @@
+package com.skk.jdsbackend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * A document as listed under its case: metadata only. Extracted text comes from
+ * GET /api/documents/ocr/{id} or GET /api/documents/{id}?includeText=true.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DocumentSummaryDto {
+    private Long id;
+    private String fileName;
+    private String fileType;
+    private Long fileSize;
+    private Long caseId;
+    private Integer currentVersion;
+    private String description;
+    private Boolean isTemplateBased;
+    private Long templateId;
+    private String templateName;
+    private String uploadedByUsername;
+    private Long totalVersions;
+    private Long pendingSignatures;
+    private LocalDateTime uploadedAt;
+    private LocalDateTime updatedAt;
+}
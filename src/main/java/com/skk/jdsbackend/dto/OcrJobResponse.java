@@ -0,0 +1,27 @@
+package com.skk.jdsbackend.dto;
+
+import com.skk.jdsbackend.entity.OcrJobStatus;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class OcrJobResponse {
+    private Long id;
+    private Long documentId;
+    private OcrJobStatus status;
+    private Integer pagesTotal;
+    private Integer pagesCompleted;
+    private Integer textLayerPages;
+    private String error;
+    private String requestedBy;
+    private LocalDateTime createdAt;
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+}
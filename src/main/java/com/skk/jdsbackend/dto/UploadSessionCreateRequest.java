@@ -0,0 +1,33 @@
+package com.skk.jdsbackend.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Starts a resumable upload. Set caseId to create a new document, or documentId
+ * to add a version to an existing one.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UploadSessionCreateRequest {
+
+    private Long caseId;
+
+    private Long documentId;
+
+    @NotBlank(message = "File name is required")
+    private String fileName;
+
+    private String contentType;
+
+    @NotNull(message = "Total size is required")
+    @Positive(message = "Total size must be positive")
+    private Long totalSize;
+
+    private String changeDescription;
+}
@@ -0,0 +1,28 @@
+package com.skk.jdsbackend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class UploadSessionResponse {
+    private String id;
+    private Long caseId;
+    private Long documentId;
+    private String fileName;
+    private Long totalSize;
+    private Integer chunkSize;
+    private Integer chunkCount;
+    private Integer receivedChunks;
+    private List<Integer> missingChunks;
+    private Boolean complete;
+    private LocalDateTime createdAt;
+    private LocalDateTime expiresAt;
+}
@@ -19,11 +19,18 @@ import org.springframework.data.annotation.CreatedBy;
 import org.springframework.data.annotation.LastModifiedBy;
 import org.springframework.data.jpa.domain.support.AuditingEntityListener;
 
+import org.hibernate.annotations.ColumnDefault;
 import org.hibernate.annotations.SQLDelete;
 import org.hibernate.annotations.SQLRestriction;
 
 @Entity
-@Table(name = "cases")
+@Table(name = "cases", indexes = {
+        @Index(name = "idx_case_updated_at_id", columnList = "updated_at, id"),
+        @Index(name = "idx_case_status", columnList = "status"),
+        @Index(name = "idx_case_assigned_user_id", columnList = "assigned_user_id"),
+        @Index(name = "idx_case_client_id", columnList = "client_id"),
+        @Index(name = "idx_case_due_date", columnList = "due_date")
+})
 @SQLDelete(sql = "UPDATE cases SET deleted = true WHERE id = ?")
 @SQLRestriction("deleted = false")
 @EntityListeners(AuditingEntityListener.class)
@@ -79,6 +86,21 @@ public class Case {
     @Column(nullable = false)
     private boolean deleted = false;
 
+    // Denormalized child counters, maintained with atomic UPDATEs by the owning
+    // services and repaired by CaseCounterReconciliationJob. Not updatable through
+    // the entity so a stale managed Case can never overwrite them on flush.
+    @ColumnDefault("0")
+    @Column(name = "notes_count", nullable = false, updatable = false)
+    private int notesCount = 0;
+
+    @ColumnDefault("0")
+    @Column(name = "documents_count", nullable = false, updatable = false)
+    private int documentsCount = 0;
+
+    @ColumnDefault("0")
+    @Column(name = "tasks_count", nullable = false, updatable = false)
+    private int tasksCount = 0;
+
     // Many-to-One: Case → User (assigned user)
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "assigned_user_id")
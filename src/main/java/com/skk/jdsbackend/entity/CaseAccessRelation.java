@@ -0,0 +1,12 @@
+package com.skk.jdsbackend.entity;
+
+/**
+ * How a user is related to a case in the user_case_access index.
+ * Participant relations share their names with CaseParticipantRole.
+ */
+public enum CaseAccessRelation {
+    CREATOR,
+    ASSIGNEE,
+    EDITOR,
+    READ_ONLY
+}
@@ -34,15 +34,16 @@ public class Document {
     @Column(nullable = false)
     private Long fileSize; // in bytes
 
+    // SHA-256 of the stored bytes, lower-case hex; null for files stored before checksums
+    @Column(length = 64)
+    private String checksum;
+
     @Column(nullable = false)
     private Integer currentVersion = 1;
 
     @Column(columnDefinition = "TEXT")
     private String description;
 
-    @Column(columnDefinition = "TEXT")
-    private String ocrText; // Extracted text from OCR
-
     @Column(name = "is_template_based")
     private Boolean isTemplateBased = false;
 
@@ -30,6 +30,10 @@ public class DocumentTemplate {
     @Column(nullable = false)
     private String fileType;
 
+    // SHA-256 of the stored bytes, lower-case hex; null for files stored before checksums
+    @Column(length = 64)
+    private String checksum;
+
     @Column(nullable = false)
     private String category; // e.g., "Contract", "Motion", "Affidavit", etc.
 
@@ -8,7 +8,9 @@ import lombok.NoArgsConstructor;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "document_versions")
+@Table(name = "document_versions", indexes = {
+        @Index(name = "idx_document_versions_storage_mode", columnList = "storage_mode")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -37,6 +39,23 @@ public class DocumentVersion {
     @Column(nullable = false)
     private Long fileSize;
 
+    // SHA-256 of the stored bytes, lower-case hex; null for files stored before checksums
+    @Column(length = 64)
+    private String checksum;
+
+    // Null until VersionDeltaService has looked at the row; the latest version is never looked at
+    @Enumerated(EnumType.STRING)
+    @Column(name = "storage_mode", length = 16)
+    private VersionStorageMode storageMode;
+
+    // For DELTA rows: the version the delta applies to, and the SHA-256 of the delta
+    // blob at filePath. checksum keeps describing the reconstructed content.
+    @Column(name = "delta_base_version_id")
+    private Long deltaBaseVersionId;
+
+    @Column(name = "delta_checksum", length = 64)
+    private String deltaChecksum;
+
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "uploaded_by")
     private User uploadedBy;
@@ -51,4 +70,11 @@ public class DocumentVersion {
     protected void onCreate() {
         createdAt = LocalDateTime.now();
     }
+
+    /**
+     * Checksum of the blob this row holds a reference on.
+     */
+    public String getBlobChecksum() {
+        return storageMode == VersionStorageMode.DELTA ? deltaChecksum : checksum;
+    }
 }
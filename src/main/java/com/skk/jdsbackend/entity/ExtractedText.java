@@ -0,0 +1,48 @@
+package com.skk.jdsbackend.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * Text extracted from one piece of content, keyed like the blob store by the
+ * SHA-256 of the bytes. Re-uploads and restored versions of the same file find
+ * their text here instead of being extracted again, as long as it was read by the
+ * OCR engine in use now. Rows are deleted with their blob.
+ */
+@Entity
+@Table(name = "extracted_texts")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ExtractedText {
+
+    @Id
+    @Column(length = 64)
+    private String checksum;
+
+    @Column(columnDefinition = "TEXT", nullable = false)
+    private String text;
+
+    @Column(name = "page_count", nullable = false)
+    private Integer pageCount;
+
+    // Pages whose text came from the PDF text layer; the rest went through OCR
+    @Column(name = "text_layer_pages", nullable = false)
+    private Integer textLayerPages;
+
+    // OcrEngine.id of the engine that read the other pages; null if none was needed
+    @Column(length = 128)
+    private String engine;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private Instant createdAt;
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = Instant.now();
+    }
+}
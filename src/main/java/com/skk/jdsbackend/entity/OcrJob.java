@@ -0,0 +1,81 @@
+package com.skk.jdsbackend.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * One OCR run over the current content of a document. The table doubles as the
+ * work queue: QUEUED rows are picked up by DocumentOCRService's worker pool, and
+ * a row is moved to RUNNING by a conditional update so only one worker runs it.
+ * Every claim increments attempt, and a worker's later updates match on the
+ * attempt it claimed, so a run whose job was requeued meanwhile changes nothing.
+ */
+@Entity
+@Table(name = "ocr_jobs", indexes = {
+        @Index(name = "idx_ocr_jobs_document_id", columnList = "document_id"),
+        @Index(name = "idx_ocr_jobs_status_updated_at", columnList = "status, updated_at")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OcrJob {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    // Not a foreign key, so a queued job never blocks deleting its document
+    @Column(name = "document_id", nullable = false)
+    private Long documentId;
+
+    // Content the job was submitted for; the text is only kept if the document still has it
+    @Column(length = 64)
+    private String checksum;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private OcrJobStatus status = OcrJobStatus.QUEUED;
+
+    @Column(nullable = false)
+    private Integer attempt = 0;
+
+    @Column(name = "pages_total")
+    private Integer pagesTotal;
+
+    @Column(name = "pages_completed", nullable = false)
+    private Integer pagesCompleted = 0;
+
+    // Pages of a PDF whose text layer made OCR unnecessary
+    @Column(name = "text_layer_pages")
+    private Integer textLayerPages;
+
+    @Column(columnDefinition = "TEXT")
+    private String error;
+
+    // Username, or null for jobs enqueued on upload
+    @Column(name = "requested_by")
+    private String requestedBy;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "started_at")
+    private LocalDateTime startedAt;
+
+    @Column(name = "finished_at")
+    private LocalDateTime finishedAt;
+
+    // Also bumped per finished page, so a RUNNING job that stops moving can be requeued
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+        updatedAt = createdAt;
+    }
+}
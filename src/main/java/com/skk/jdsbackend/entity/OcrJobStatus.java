@@ -0,0 +1,8 @@
+package com.skk.jdsbackend.entity;
+
+public enum OcrJobStatus {
+    QUEUED,
+    RUNNING,
+    COMPLETED,
+    FAILED
+}
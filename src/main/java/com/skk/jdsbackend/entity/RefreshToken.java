@@ -8,7 +8,10 @@ import lombok.NoArgsConstructor;
 import java.time.Instant;
 
 @Entity
-@Table(name = "refresh_tokens")
+@Table(name = "refresh_tokens", indexes = {
+        @Index(name = "idx_refresh_token_user_id", columnList = "user_id"),
+        @Index(name = "idx_refresh_token_expiry_date", columnList = "expiry_date")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -22,10 +25,15 @@ public class RefreshToken {
     @JoinColumn(name = "user_id", nullable = false)
     private User user;
 
+    // SHA-256 of the token handed to the client; the raw value is never stored
     @Column(nullable = false, unique = true)
     private String token;
 
-    @Column(nullable = false)
+    // Raw token, only set on a freshly issued instance so it can be returned once
+    @Transient
+    private String rawToken;
+
+    @Column(name = "expiry_date", nullable = false)
     private Instant expiryDate;
 
     @Column(name = "created_at", nullable = false, updatable = false)
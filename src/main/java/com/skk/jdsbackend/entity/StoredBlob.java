@@ -0,0 +1,49 @@
+package com.skk.jdsbackend.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * One content-addressed file in the blob store. Every document, document version
+ * and template row whose checksum equals sha256 holds one reference.
+ */
+@Entity
+@Table(name = "stored_blobs", indexes = {
+        @Index(name = "idx_stored_blobs_ref_count", columnList = "ref_count")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StoredBlob {
+
+    @Id
+    @Column(length = 64)
+    private String sha256;
+
+    @Column(nullable = false)
+    private Long size;
+
+    @Column(name = "ref_count", nullable = false)
+    private Long refCount = 0L;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private Instant createdAt;
+
+    // Last time the count dropped; unreferenced blobs are collected after a grace period
+    @Column(name = "released_at")
+    private Instant releasedAt;
+
+    public StoredBlob(String sha256, Long size) {
+        this.sha256 = sha256;
+        this.size = size;
+    }
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = Instant.now();
+    }
+}
@@ -0,0 +1,124 @@
+package com.skk.jdsbackend.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A resumable upload in progress. The file is preallocated on disk and chunks are
+ * written into it at index * chunkSize in any order; receivedChunks records which
+ * have arrived. On commit the file becomes a new document (caseId set) or a new
+ * version of an existing one (documentId set).
+ */
+@Entity
+@Table(name = "upload_sessions", indexes = {
+        @Index(name = "idx_upload_sessions_updated_at", columnList = "updated_at")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UploadSession {
+
+    @Id
+    @Column(length = 36)
+    private String id;
+
+    @Column(name = "case_id")
+    private Long caseId;
+
+    @Column(name = "document_id")
+    private Long documentId;
+
+    @Column(nullable = false)
+    private String fileName;
+
+    private String contentType;
+
+    @Column(columnDefinition = "TEXT")
+    private String changeDescription;
+
+    @Column(nullable = false)
+    private Long totalSize;
+
+    @Column(nullable = false)
+    private Integer chunkSize;
+
+    @Column(nullable = false)
+    private Integer chunkCount;
+
+    // One bit per chunk, least significant bit of byte 0 is chunk 0
+    @Column(name = "received_chunks", nullable = false, length = 8192)
+    private byte[] receivedChunks;
+
+    // Set under the row lock by commit; chunk writes are refused from then on
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private UploadSessionStatus status = UploadSessionStatus.UPLOADING;
+
+    // Chunk writes between their start and finish transactions; commit waits for 0
+    @Column(name = "active_writes", nullable = false)
+    private Integer activeWrites = 0;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "created_by", nullable = false)
+    private User createdBy;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    public boolean isReceived(int index) {
+        return (receivedChunks[index >> 3] & (1 << (index & 7))) != 0;
+    }
+
+    public void markReceived(int index) {
+        receivedChunks[index >> 3] |= (byte) (1 << (index & 7));
+    }
+
+    public int getReceivedCount() {
+        int count = 0;
+        for (byte b : receivedChunks) {
+            count += Integer.bitCount(b & 0xFF);
+        }
+        return count;
+    }
+
+    public List<Integer> getMissingChunks() {
+        List<Integer> missing = new ArrayList<>();
+        for (int i = 0; i < chunkCount; i++) {
+            if (!isReceived(i)) {
+                missing.add(i);
+            }
+        }
+        return missing;
+    }
+
+    public boolean isComplete() {
+        return getReceivedCount() == chunkCount;
+    }
+
+    /**
+     * Expected length of a chunk; only the last one may be shorter than chunkSize.
+     */
+    public long chunkLength(int index) {
+        return Math.min(chunkSize, totalSize - (long) index * chunkSize);
+    }
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+        updatedAt = LocalDateTime.now();
+    }
+
+    @PreUpdate
+    protected void onUpdate() {
+        updatedAt = LocalDateTime.now();
+    }
+}
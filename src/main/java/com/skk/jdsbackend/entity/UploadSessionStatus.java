@@ -0,0 +1,6 @@
+package com.skk.jdsbackend.entity;
+
+public enum UploadSessionStatus {
+    UPLOADING,
+    COMMITTING
+}
@@ -0,0 +1,53 @@
+package com.skk.jdsbackend.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+
+/**
+ * Denormalized (user, case, relation) rows maintained by CaseAccessIndexService,
+ * so "cases of user X" is an indexed lookup instead of a join over participants.
+ * Equality is the (user, case, relation) key, not the generated id, so persisted
+ * rows and freshly built ones compare equal.
+ */
+@Entity
+@Table(name = "user_case_access", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_user_case_access", columnNames = { "user_id", "case_id", "relation" })
+}, indexes = {
+        @Index(name = "idx_user_case_access_case_id", columnList = "case_id")
+})
+@Getter
+@Setter
+@ToString
+@EqualsAndHashCode(onlyExplicitlyIncluded = true)
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserCaseAccess {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    @EqualsAndHashCode.Include
+    private Long userId;
+
+    @Column(name = "case_id", nullable = false)
+    @EqualsAndHashCode.Include
+    private Long caseId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    @EqualsAndHashCode.Include
+    private CaseAccessRelation relation;
+
+    public UserCaseAccess(Long userId, Long caseId, CaseAccessRelation relation) {
+        this.userId = userId;
+        this.caseId = caseId;
+        this.relation = relation;
+    }
+}
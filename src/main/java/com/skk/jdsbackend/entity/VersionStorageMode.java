@@ -0,0 +1,6 @@
+package com.skk.jdsbackend.entity;
+
+public enum VersionStorageMode {
+    FULL,   // the complete file, e.g. a keyframe or a version a delta would not shrink
+    DELTA   // a binary delta against a newer version
+}
@@ -0,0 +1,16 @@
+package com.skk.jdsbackend.exception;
+
+/**
+ * A request the client has to fix, e.g. a malformed cursor or a missing field.
+ * Its message is returned in the 400 response, so it must only describe the input.
+ */
+public class BadRequestException extends RuntimeException {
+
+    public BadRequestException(String message) {
+        super(message);
+    }
+
+    public BadRequestException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,11 @@
+package com.skk.jdsbackend.exception;
+
+/**
+ * An upload that is larger than the configured limit; answered with 413.
+ */
+public class PayloadTooLargeException extends RuntimeException {
+
+    public PayloadTooLargeException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,31 @@
+package com.skk.jdsbackend.ocr;
+
+import org.springframework.core.io.Resource;
+
+import java.io.IOException;
+
+/**
+ * Text recognition backend used by DocumentOCRService. Pages of one document are
+ * recognised concurrently, so implementations must be thread-safe and open their
+ * own stream from the Resource for each call.
+ */
+public interface OcrEngine {
+
+    /**
+     * Number of pages to recognise, 1 for a single image.
+     */
+    int pageCount(Resource content, String contentType) throws IOException;
+
+    /**
+     * Text of one page, counting from 0.
+     */
+    String recognizePage(Resource content, String contentType, int page) throws IOException;
+
+    /**
+     * Names the engine and anything that changes its output, such as its version
+     * or language model. Text cached under another id is extracted again.
+     */
+    default String id() {
+        return getClass().getName();
+    }
+}
@@ -0,0 +1,88 @@
+package com.skk.jdsbackend.ocr;
+
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.io.RandomAccessReadBufferedFile;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.text.PDFTextStripper;
+import org.springframework.core.io.Resource;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * The embedded text of a PDF, read one page at a time. PDFBox parses objects on
+ * demand from a random-access file, so a page's text is available without
+ * rendering it or holding the whole document in memory. Content that is not a
+ * plain file (e.g. compressed at rest) is spooled to a temp file first.
+ */
+public class PdfTextLayer implements Closeable {
+
+    private final PDDocument document;
+    private final PDFTextStripper stripper;
+    private final Path spooled;
+
+    private PdfTextLayer(PDDocument document, Path spooled) {
+        this.document = document;
+        this.spooled = spooled;
+        this.stripper = new PDFTextStripper();
+        this.stripper.setSortByPosition(true);
+    }
+
+    public static PdfTextLayer open(Resource content) throws IOException {
+        if (content.isFile()) {
+            return new PdfTextLayer(Loader.loadPDF(new RandomAccessReadBufferedFile(content.getFile())), null);
+        }
+        Path spooled = Files.createTempFile("pdf-text-", ".pdf");
+        try {
+            try (InputStream in = content.getInputStream()) {
+                Files.copy(in, spooled, StandardCopyOption.REPLACE_EXISTING);
+            }
+            return new PdfTextLayer(Loader.loadPDF(new RandomAccessReadBufferedFile(spooled.toFile())), spooled);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(spooled);
+            throw e;
+        }
+    }
+
+    public int pageCount() {
+        return document.getNumberOfPages();
+    }
+
+    /**
+     * Text of one page, counting from 0; blank for scanned pages.
+     */
+    public String pageText(int page) throws IOException {
+        stripper.setStartPage(page + 1);
+        stripper.setEndPage(page + 1);
+        return stripper.getText(document);
+    }
+
+    /**
+     * Whether text has at least minChars non-whitespace characters, i.e. the page
+     * has a real text layer rather than, say, only a page number.
+     */
+    public static boolean hasText(String text, int minChars) {
+        int count = 0;
+        for (int i = 0; i < text.length() && count < minChars; i++) {
+            if (!Character.isWhitespace(text.charAt(i))) {
+                count++;
+            }
+        }
+        return count >= minChars;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            document.close();
+        } finally {
+            if (spooled != null) {
+                Files.deleteIfExists(spooled);
+            }
+        }
+    }
+}
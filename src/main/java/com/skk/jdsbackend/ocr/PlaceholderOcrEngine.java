@@ -0,0 +1,43 @@
+package com.skk.jdsbackend.ocr;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.Resource;
+
+/**
+ * Stand-in engine that treats every file as one page and returns instructions
+ * instead of text. Used until a real engine bean is defined, and in tests.
+ *
+ * For production, provide an OcrEngine bean backed by e.g.:
+ * 1. Tesseract OCR (open source): https://github.com/tesseract-ocr/tesseract
+ * 2. Google Cloud Vision API: https://cloud.google.com/vision
+ * 3. AWS Textract: https://aws.amazon.com/textract/
+ * 4. Azure Computer Vision: https://azure.microsoft.com/en-us/services/cognitive-services/computer-vision/
+ *
+ * Example with Tesseract (requires net.sourceforge.tess4j:tess4j):
+ *
+ * Tesseract tesseract = new Tesseract();
+ * tesseract.setDatapath("/path/to/tessdata");
+ * return tesseract.doOCR(ImageIO.read(content.getInputStream()));
+ */
+@Slf4j
+public class PlaceholderOcrEngine implements OcrEngine {
+
+    @Override
+    public int pageCount(Resource content, String contentType) {
+        return 1;
+    }
+
+    @Override
+    public String recognizePage(Resource content, String contentType, int page) {
+        log.info("Performing OCR on {} of type: {}", content.getDescription(), contentType);
+        return "[OCR Placeholder] To enable OCR, integrate with Tesseract, Google Vision, AWS Textract, or Azure Computer Vision.\n\n" +
+               "File: " + content.getDescription() + "\n" +
+               "Type: " + contentType + "\n\n" +
+               "Instructions:\n" +
+               "1. Add OCR library dependency to pom.xml\n" +
+               "2. Configure OCR service credentials\n" +
+               "3. Provide an OcrEngine bean with the actual extraction logic\n" +
+               "4. Process the file and extract text\n" +
+               "5. Return the extracted text";
+    }
+}
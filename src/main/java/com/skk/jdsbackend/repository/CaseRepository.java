@@ -1,15 +1,22 @@
 package com.skk.jdsbackend.repository;
 
 import com.skk.jdsbackend.entity.Case;
+import com.skk.jdsbackend.entity.CaseAccessRelation;
+import com.skk.jdsbackend.entity.CasePriority;
 import com.skk.jdsbackend.entity.CaseStatus;
 import com.skk.jdsbackend.entity.User;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -55,7 +62,118 @@ public interface CaseRepository extends JpaRepository<Case, Long> {
         @Query("SELECT c FROM Case c JOIN c.participants p WHERE p.user.id = :userId")
         List<Case> findByParticipantId(Long userId);
 
+        /**
+         * Cases where the user has one of the given relations, resolved through the
+         * user_case_access index.
+         */
         @EntityGraph(attributePaths = { "assignedUser", "client", "participants" })
-        @Query("SELECT DISTINCT c FROM Case c LEFT JOIN c.participants p WHERE c.assignedUser.id = :userId OR p.user.id = :userId")
-        List<Case> findAllRelatedToUser(@Param("userId") Long userId);
+        @Query("SELECT c FROM Case c WHERE c.id IN (SELECT a.caseId FROM UserCaseAccess a "
+                        + "WHERE a.userId = :userId AND a.relation IN :relations)")
+        List<Case> findByAccessIndex(@Param("userId") Long userId,
+                        @Param("relations") Collection<CaseAccessRelation> relations);
+
+        /**
+         * Keyset page ordered by (updatedAt DESC, id DESC). Only to-one associations are
+         * fetched here so the database can apply the limit; participants are loaded
+         * separately for the returned ids.
+         */
+        @EntityGraph(attributePaths = { "assignedUser", "client", "createdByUser", "lastModifiedByUser" })
+        @Query("SELECT c FROM Case c WHERE "
+                        + "(:status IS NULL OR c.status = :status) "
+                        + "AND (:priority IS NULL OR c.priority = :priority) "
+                        + "AND (:assignedUserId IS NULL OR c.assignedUser.id = :assignedUserId) "
+                        + "AND (:clientId IS NULL OR c.client.id = :clientId) "
+                        + "AND (:dueFrom IS NULL OR c.dueDate >= :dueFrom) "
+                        + "AND (:dueTo IS NULL OR c.dueDate < :dueTo) "
+                        + "AND (:accessUserId IS NULL OR c.id IN "
+                        + "     (SELECT a.caseId FROM UserCaseAccess a "
+                        + "      WHERE a.userId = :accessUserId AND a.relation IN :accessRelations)) "
+                        + "AND (:cursorUpdatedAt IS NULL OR c.updatedAt < :cursorUpdatedAt "
+                        + "     OR (c.updatedAt = :cursorUpdatedAt AND c.id < :cursorId)) "
+                        + "ORDER BY c.updatedAt DESC, c.id DESC")
+        List<Case> findPageByKeyset(@Param("status") CaseStatus status,
+                        @Param("priority") CasePriority priority,
+                        @Param("assignedUserId") Long assignedUserId,
+                        @Param("clientId") Long clientId,
+                        @Param("dueFrom") LocalDateTime dueFrom,
+                        @Param("dueTo") LocalDateTime dueTo,
+                        @Param("accessUserId") Long accessUserId,
+                        @Param("accessRelations") Collection<CaseAccessRelation> accessRelations,
+                        @Param("cursorUpdatedAt") LocalDateTime cursorUpdatedAt,
+                        @Param("cursorId") Long cursorId,
+                        Pageable pageable);
+
+        @EntityGraph(attributePaths = { "participants", "participants.user" })
+        @Query("SELECT c FROM Case c WHERE c.id IN :ids")
+        List<Case> findWithParticipantsByIdIn(@Param("ids") Collection<Long> ids);
+
+        @Transactional
+        @Modifying(flushAutomatically = true, clearAutomatically = true)
+        @Query("UPDATE Case c SET c.notesCount = c.notesCount + :delta WHERE c.id = :caseId")
+        int adjustNotesCount(@Param("caseId") Long caseId, @Param("delta") int delta);
+
+        @Transactional
+        @Modifying(flushAutomatically = true, clearAutomatically = true)
+        @Query("UPDATE Case c SET c.documentsCount = c.documentsCount + :delta WHERE c.id = :caseId")
+        int adjustDocumentsCount(@Param("caseId") Long caseId, @Param("delta") int delta);
+
+        @Transactional
+        @Modifying(flushAutomatically = true, clearAutomatically = true)
+        @Query("UPDATE Case c SET c.tasksCount = c.tasksCount + :delta WHERE c.id = :caseId")
+        int adjustTasksCount(@Param("caseId") Long caseId, @Param("delta") int delta);
+
+        @Query(value = "SELECT COALESCE(MAX(id), 0) FROM cases", nativeQuery = true)
+        long findMaxIdIncludingDeleted();
+
+        /**
+         * Recomputes the child counters for cases in [fromId, toId] and rewrites only
+         * the rows that drifted. Returns the number of repaired cases.
+         */
+        @Transactional
+        @Modifying
+        @Query(value = "UPDATE cases SET "
+                        + "notes_count = (SELECT COUNT(*) FROM notes n WHERE n.case_id = cases.id), "
+                        + "documents_count = (SELECT COUNT(*) FROM documents d WHERE d.case_id = cases.id), "
+                        + "tasks_count = (SELECT COUNT(*) FROM tasks t WHERE t.case_id = cases.id) "
+                        + "WHERE id BETWEEN :fromId AND :toId AND ("
+                        + "notes_count <> (SELECT COUNT(*) FROM notes n WHERE n.case_id = cases.id) "
+                        + "OR documents_count <> (SELECT COUNT(*) FROM documents d WHERE d.case_id = cases.id) "
+                        + "OR tasks_count <> (SELECT COUNT(*) FROM tasks t WHERE t.case_id = cases.id))",
+                        nativeQuery = true)
+        int reconcileCounters(@Param("fromId") long fromId, @Param("toId") long toId);
+
+        @Query("SELECT c.status, COUNT(c) FROM Case c GROUP BY c.status")
+        List<Object[]> countGroupedByStatus();
+
+        @Query("SELECT c.priority, COUNT(c) FROM Case c GROUP BY c.priority")
+        List<Object[]> countGroupedByPriority();
+
+        /**
+         * Single-row resolution summary for cases in the given statuses:
+         * count, avg/min/max days between creation and last update, and the number
+         * resolved since startOfThisMonth and within [startOfLastMonth, startOfThisMonth).
+         */
+        @Query("SELECT COUNT(c), "
+                        + "AVG((c.updatedAt - c.createdAt) by day), "
+                        + "MIN((c.updatedAt - c.createdAt) by day), "
+                        + "MAX((c.updatedAt - c.createdAt) by day), "
+                        + "SUM(CASE WHEN c.updatedAt >= :startOfThisMonth THEN 1 ELSE 0 END), "
+                        + "SUM(CASE WHEN c.updatedAt >= :startOfLastMonth AND c.updatedAt < :startOfThisMonth THEN 1 ELSE 0 END) "
+                        + "FROM Case c WHERE c.status IN :statuses")
+        List<Object[]> findResolutionStats(@Param("statuses") Collection<CaseStatus> statuses,
+                        @Param("startOfThisMonth") LocalDateTime startOfThisMonth,
+                        @Param("startOfLastMonth") LocalDateTime startOfLastMonth);
+
+        /**
+         * Resolution-time histogram for cases in the given statuses: whole days between
+         * creation and last update, and the number of cases in each bucket.
+         */
+        @Query("SELECT (c.updatedAt - c.createdAt) by day, COUNT(c) FROM Case c "
+                        + "WHERE c.status IN :statuses GROUP BY (c.updatedAt - c.createdAt) by day")
+        List<Object[]> findResolutionDaysHistogram(@Param("statuses") Collection<CaseStatus> statuses);
+
+        @Query("SELECT c.assignedUser.id, COUNT(c), "
+                        + "SUM(CASE WHEN c.status IN :closedStatuses THEN 0 ELSE 1 END) "
+                        + "FROM Case c WHERE c.assignedUser IS NOT NULL GROUP BY c.assignedUser.id")
+        List<Object[]> countGroupedByAssignedUser(@Param("closedStatuses") Collection<CaseStatus> closedStatuses);
 }
@@ -1,9 +1,13 @@
 package com.skk.jdsbackend.repository;
 
+import com.skk.jdsbackend.dto.ClientStatsDto;
 import com.skk.jdsbackend.entity.Client;
 
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -20,4 +24,19 @@ public interface ClientRepository extends JpaRepository<Client, Long> {
     List<Client> findByFirstnameContainingIgnoreCaseOrLastnameContainingIgnoreCase(String firstname, String lastname);
 
     boolean existsByEmail(String email);
+
+    /**
+     * Per-client case and document totals in one grouped query. Sort with
+     * JpaSort.unsafe on the aggregate expressions (see AnalyticsService).
+     */
+    @Query(value = "SELECT new com.skk.jdsbackend.dto.ClientStatsDto("
+            + "cl.id, CONCAT(cl.firstname, ' ', cl.lastname), cl.email, "
+            + "COUNT(c.id), "
+            + "COALESCE(SUM(CASE WHEN c.status IN ('RESOLVED', 'CLOSED') THEN 0 WHEN c.id IS NULL THEN 0 ELSE 1 END), 0), "
+            + "COALESCE(SUM(CASE WHEN c.status IN ('RESOLVED', 'CLOSED') THEN 1 ELSE 0 END), 0), "
+            + "(SELECT COUNT(d) FROM Document d JOIN d.caseEntity dc WHERE dc.client.id = cl.id)) "
+            + "FROM Client cl LEFT JOIN cl.cases c "
+            + "GROUP BY cl.id, cl.firstname, cl.lastname, cl.email",
+            countQuery = "SELECT COUNT(cl) FROM Client cl")
+    Page<ClientStatsDto> findClientStats(Pageable pageable);
 }
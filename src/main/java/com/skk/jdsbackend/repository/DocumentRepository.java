@@ -1,22 +1,51 @@
 package com.skk.jdsbackend.repository;
 
+import com.skk.jdsbackend.dto.DocumentSummaryDto;
 import com.skk.jdsbackend.entity.Document;
 import com.skk.jdsbackend.entity.Case;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 
 @Repository
-public interface DocumentRepository extends JpaRepository<Document, Long> {
+public interface DocumentRepository extends JpaRepository<Document, Long>, FilePathRepository {
 
     List<Document> findByCaseEntity(Case caseEntity);
 
-    List<Document> findByCaseEntityOrderByUploadedAtDesc(Case caseEntity);
+    /**
+     * Slim rows for document lists: no text, versions or signatures are loaded,
+     * only counted.
+     */
+    @Query("SELECT new com.skk.jdsbackend.dto.DocumentSummaryDto("
+            + "d.id, d.fileName, d.fileType, d.fileSize, d.caseEntity.id, d.currentVersion, d.description, "
+            + "d.isTemplateBased, t.id, t.name, u.username, "
+            + "(SELECT COUNT(v) FROM DocumentVersion v WHERE v.document = d), "
+            + "(SELECT COUNT(s) FROM DocumentSignature s WHERE s.document = d "
+            + "AND s.status = com.skk.jdsbackend.entity.DocumentSignatureStatus.PENDING), "
+            + "d.uploadedAt, d.updatedAt) "
+            + "FROM Document d LEFT JOIN d.template t LEFT JOIN d.uploadedBy u "
+            + "WHERE d.caseEntity = :caseEntity ORDER BY d.uploadedAt DESC")
+    List<DocumentSummaryDto> findSummariesByCaseEntity(@Param("caseEntity") Case caseEntity);
 
-    long countByCaseEntityId(Long caseId);
+    @Override
+    @Query("SELECT d.id, d.filePath FROM Document d WHERE d.id > :afterId "
+            + "AND d.filePath NOT LIKE 'blobs/%' ORDER BY d.id")
+    List<Object[]> findLegacyFilePaths(@Param("afterId") Long afterId, Pageable pageable);
 
-    @Query("SELECT d.caseEntity.id, COUNT(d) FROM Document d GROUP BY d.caseEntity.id")
-    List<Object[]> countAllGroupedByCaseId();
+    @Override
+    @Transactional
+    @Modifying
+    @Query("UPDATE Document d SET d.filePath = :key, d.checksum = :checksum "
+            + "WHERE d.id = :id AND d.filePath = :oldPath")
+    int relocateFile(@Param("id") Long id, @Param("oldPath") String oldPath, @Param("key") String key,
+                     @Param("checksum") String checksum);
+
+    @Override
+    boolean existsByFilePath(String filePath);
 }
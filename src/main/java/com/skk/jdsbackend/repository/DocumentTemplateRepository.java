@@ -1,17 +1,38 @@
 package com.skk.jdsbackend.repository;
 
 import com.skk.jdsbackend.entity.DocumentTemplate;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 
 @Repository
-public interface DocumentTemplateRepository extends JpaRepository<DocumentTemplate, Long> {
+public interface DocumentTemplateRepository extends JpaRepository<DocumentTemplate, Long>, FilePathRepository {
     
     List<DocumentTemplate> findByIsActiveTrueOrderByNameAsc();
     
     List<DocumentTemplate> findByCategoryOrderByNameAsc(String category);
     
     List<DocumentTemplate> findByIsActiveTrueAndCategoryOrderByNameAsc(String category);
+
+    @Override
+    @Query("SELECT t.id, t.filePath FROM DocumentTemplate t WHERE t.id > :afterId "
+            + "AND t.filePath NOT LIKE 'blobs/%' ORDER BY t.id")
+    List<Object[]> findLegacyFilePaths(@Param("afterId") Long afterId, Pageable pageable);
+
+    @Override
+    @Transactional
+    @Modifying
+    @Query("UPDATE DocumentTemplate t SET t.filePath = :key, t.checksum = :checksum "
+            + "WHERE t.id = :id AND t.filePath = :oldPath")
+    int relocateFile(@Param("id") Long id, @Param("oldPath") String oldPath, @Param("key") String key,
+                     @Param("checksum") String checksum);
+
+    @Override
+    boolean existsByFilePath(String filePath);
 }
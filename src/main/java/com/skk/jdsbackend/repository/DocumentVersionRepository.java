@@ -2,18 +2,70 @@ package com.skk.jdsbackend.repository;
 
 import com.skk.jdsbackend.entity.Document;
 import com.skk.jdsbackend.entity.DocumentVersion;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface DocumentVersionRepository extends JpaRepository<DocumentVersion, Long> {
+public interface DocumentVersionRepository extends JpaRepository<DocumentVersion, Long>, FilePathRepository {
     
     List<DocumentVersion> findByDocumentOrderByVersionNumberDesc(Document document);
     
     Optional<DocumentVersion> findByDocumentAndVersionNumber(Document document, Integer versionNumber);
     
     Optional<DocumentVersion> findTopByDocumentOrderByVersionNumberDesc(Document document);
+
+    // The next newer version, which an older one is delta-encoded against
+    Optional<DocumentVersion> findFirstByDocumentAndVersionNumberGreaterThanOrderByVersionNumberAsc(
+            Document document, Integer versionNumber);
+
+    /**
+     * Blob-backed versions after afterId that VersionDeltaService has not looked at
+     * yet and that are no longer the newest version of their document.
+     */
+    @Query("SELECT v.id FROM DocumentVersion v WHERE v.id > :afterId AND v.storageMode IS NULL "
+            + "AND v.checksum IS NOT NULL AND v.filePath LIKE 'blobs/%' "
+            + "AND EXISTS (SELECT n.id FROM DocumentVersion n "
+            + "WHERE n.document = v.document AND n.versionNumber > v.versionNumber) ORDER BY v.id")
+    List<Long> findDeltaCandidates(@Param("afterId") Long afterId, Pageable pageable);
+
+    /**
+     * Switches a full version to a delta, unless it was changed meanwhile.
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE DocumentVersion v SET v.storageMode = com.skk.jdsbackend.entity.VersionStorageMode.DELTA, "
+            + "v.filePath = :deltaKey, v.deltaChecksum = :deltaChecksum, v.deltaBaseVersionId = :baseId "
+            + "WHERE v.id = :id AND v.storageMode IS NULL AND v.filePath = :oldPath")
+    int storeAsDelta(@Param("id") Long id, @Param("oldPath") String oldPath, @Param("deltaKey") String deltaKey,
+                     @Param("deltaChecksum") String deltaChecksum, @Param("baseId") Long baseId);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE DocumentVersion v SET v.storageMode = com.skk.jdsbackend.entity.VersionStorageMode.FULL "
+            + "WHERE v.id = :id AND v.storageMode IS NULL")
+    int keepFull(@Param("id") Long id);
+
+    @Override
+    @Query("SELECT v.id, v.filePath FROM DocumentVersion v WHERE v.id > :afterId "
+            + "AND v.filePath NOT LIKE 'blobs/%' ORDER BY v.id")
+    List<Object[]> findLegacyFilePaths(@Param("afterId") Long afterId, Pageable pageable);
+
+    @Override
+    @Transactional
+    @Modifying
+    @Query("UPDATE DocumentVersion v SET v.filePath = :key, v.checksum = :checksum "
+            + "WHERE v.id = :id AND v.filePath = :oldPath")
+    int relocateFile(@Param("id") Long id, @Param("oldPath") String oldPath, @Param("key") String key,
+                     @Param("checksum") String checksum);
+
+    @Override
+    boolean existsByFilePath(String filePath);
 }
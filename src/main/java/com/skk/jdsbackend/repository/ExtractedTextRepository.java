@@ -0,0 +1,18 @@
+package com.skk.jdsbackend.repository;
+
+import com.skk.jdsbackend.entity.ExtractedText;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+@Repository
+public interface ExtractedTextRepository extends JpaRepository<ExtractedText, String> {
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM ExtractedText t WHERE t.checksum = :checksum")
+    int deleteByChecksum(@Param("checksum") String checksum);
+}
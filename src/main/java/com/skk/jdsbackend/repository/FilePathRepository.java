@@ -0,0 +1,27 @@
+package com.skk.jdsbackend.repository;
+
+import org.springframework.data.domain.Pageable;
+
+import java.util.List;
+
+/**
+ * Queries shared by the repositories whose rows point at a stored file, used by
+ * StorageMigrationJob to move filePath values onto storage keys.
+ */
+public interface FilePathRepository {
+
+    /**
+     * Rows after afterId whose filePath is not yet a "blobs/" key, in id order;
+     * each element is {id, filePath}.
+     */
+    List<Object[]> findLegacyFilePaths(Long afterId, Pageable pageable);
+
+    /**
+     * Points the row at a blob, unless its filePath changed since it was read.
+     *
+     * @return 0 if the row was changed or deleted concurrently
+     */
+    int relocateFile(Long id, String oldPath, String key, String checksum);
+
+    boolean existsByFilePath(String filePath);
+}
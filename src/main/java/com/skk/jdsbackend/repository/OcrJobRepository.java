@@ -0,0 +1,95 @@
+package com.skk.jdsbackend.repository;
+
+import com.skk.jdsbackend.entity.OcrJob;
+import com.skk.jdsbackend.entity.OcrJobStatus;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface OcrJobRepository extends JpaRepository<OcrJob, Long> {
+
+    Optional<OcrJob> findFirstByDocumentIdOrderByIdDesc(Long documentId);
+
+    // An unfinished job for the same content, which a new submission joins instead
+    Optional<OcrJob> findFirstByDocumentIdAndChecksumAndStatusIn(Long documentId, String checksum,
+                                                                 Collection<OcrJobStatus> statuses);
+
+    @Query("SELECT j.id FROM OcrJob j WHERE j.status = com.skk.jdsbackend.entity.OcrJobStatus.QUEUED ORDER BY j.id")
+    List<Long> findQueuedIds(Pageable pageable);
+
+    /**
+     * Takes a queued job that was last seen at the given attempt; the run then owns
+     * attempt + 1. Returns 0 if another worker took it first.
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE OcrJob j SET j.status = com.skk.jdsbackend.entity.OcrJobStatus.RUNNING, "
+            + "j.attempt = j.attempt + 1, j.startedAt = :now, j.updatedAt = :now "
+            + "WHERE j.id = :id AND j.attempt = :attempt "
+            + "AND j.status = com.skk.jdsbackend.entity.OcrJobStatus.QUEUED")
+    int claim(@Param("id") Long id, @Param("attempt") int attempt, @Param("now") LocalDateTime now);
+
+    // The updates below apply only while the run's attempt is still the current one
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE OcrJob j SET j.pagesTotal = :pages, j.updatedAt = :now "
+            + "WHERE j.id = :id AND j.attempt = :attempt "
+            + "AND j.status = com.skk.jdsbackend.entity.OcrJobStatus.RUNNING")
+    int setPagesTotal(@Param("id") Long id, @Param("attempt") int attempt, @Param("pages") int pages,
+                      @Param("now") LocalDateTime now);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE OcrJob j SET j.pagesCompleted = j.pagesCompleted + 1, j.updatedAt = :now "
+            + "WHERE j.id = :id AND j.attempt = :attempt "
+            + "AND j.status = com.skk.jdsbackend.entity.OcrJobStatus.RUNNING")
+    int pageCompleted(@Param("id") Long id, @Param("attempt") int attempt, @Param("now") LocalDateTime now);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE OcrJob j SET j.pagesTotal = :pages, j.pagesCompleted = :pages, "
+            + "j.textLayerPages = :textLayerPages, j.updatedAt = :now "
+            + "WHERE j.id = :id AND j.attempt = :attempt "
+            + "AND j.status = com.skk.jdsbackend.entity.OcrJobStatus.RUNNING")
+    int recordPages(@Param("id") Long id, @Param("attempt") int attempt, @Param("pages") int pages,
+                    @Param("textLayerPages") int textLayerPages, @Param("now") LocalDateTime now);
+
+    /**
+     * Marks a run as alive while a page takes longer than the stall timeout.
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE OcrJob j SET j.updatedAt = :now WHERE j.id = :id AND j.attempt = :attempt "
+            + "AND j.status = com.skk.jdsbackend.entity.OcrJobStatus.RUNNING")
+    int heartbeat(@Param("id") Long id, @Param("attempt") int attempt, @Param("now") LocalDateTime now);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE OcrJob j SET j.status = :status, j.error = :error, j.finishedAt = :now, j.updatedAt = :now "
+            + "WHERE j.id = :id AND j.attempt = :attempt "
+            + "AND j.status = com.skk.jdsbackend.entity.OcrJobStatus.RUNNING")
+    int finish(@Param("id") Long id, @Param("attempt") int attempt, @Param("status") OcrJobStatus status,
+               @Param("error") String error, @Param("now") LocalDateTime now);
+
+    /**
+     * Puts RUNNING jobs that made no progress since cutoff back in the queue, e.g.
+     * after the instance running them stopped.
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE OcrJob j SET j.status = com.skk.jdsbackend.entity.OcrJobStatus.QUEUED, "
+            + "j.pagesCompleted = 0, j.updatedAt = :now "
+            + "WHERE j.status = com.skk.jdsbackend.entity.OcrJobStatus.RUNNING AND j.updatedAt < :cutoff")
+    int requeueStalled(@Param("cutoff") LocalDateTime cutoff, @Param("now") LocalDateTime now);
+}
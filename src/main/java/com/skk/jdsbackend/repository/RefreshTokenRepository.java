@@ -3,8 +3,14 @@ package com.skk.jdsbackend.repository;
 import com.skk.jdsbackend.entity.RefreshToken;
 import com.skk.jdsbackend.entity.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Instant;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -12,7 +18,19 @@ public interface RefreshTokenRepository extends JpaRepository<RefreshToken, Long
 
     Optional<RefreshToken> findByToken(String token);
 
+    List<RefreshToken> findByUserIdOrderByCreatedAtDesc(Long userId);
+
     void deleteByUser(User user);
 
     void deleteByToken(String token);
+
+    /**
+     * Deletes up to batchSize expired tokens and returns how many were removed.
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "DELETE FROM refresh_tokens WHERE id IN "
+            + "(SELECT id FROM refresh_tokens WHERE expiry_date < :now ORDER BY id LIMIT :batchSize)",
+            nativeQuery = true)
+    int deleteExpiredBatch(@Param("now") Instant now, @Param("batchSize") int batchSize);
 }
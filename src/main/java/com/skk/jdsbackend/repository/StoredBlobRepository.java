@@ -0,0 +1,57 @@
+package com.skk.jdsbackend.repository;
+
+import com.skk.jdsbackend.entity.StoredBlob;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface StoredBlobRepository extends JpaRepository<StoredBlob, String> {
+
+    /**
+     * Adds a reference; returns 0 if the blob does not exist.
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE StoredBlob b SET b.refCount = b.refCount + 1 WHERE b.sha256 = :sha256")
+    int incrementRefCount(@Param("sha256") String sha256);
+
+    /**
+     * Drops a reference; returns 0 if the blob does not exist or is already unreferenced.
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE StoredBlob b SET b.refCount = b.refCount - 1, b.releasedAt = :now "
+            + "WHERE b.sha256 = :sha256 AND b.refCount > 0")
+    int decrementRefCount(@Param("sha256") String sha256, @Param("now") Instant now);
+
+    @Query("SELECT b.sha256 FROM StoredBlob b WHERE b.refCount = 0 AND b.createdAt < :cutoff "
+            + "AND (b.releasedAt IS NULL OR b.releasedAt < :cutoff)")
+    List<String> findUnreferencedBefore(@Param("cutoff") Instant cutoff, Pageable pageable);
+
+    // Serialises registering a blob against collecting it, across instances
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT b FROM StoredBlob b WHERE b.sha256 = :sha256")
+    Optional<StoredBlob> findByIdForUpdate(@Param("sha256") String sha256);
+
+    /**
+     * Claims an unreferenced blob for deletion; returns 0 if it was referenced or
+     * released again in the meantime. The row stays locked until the caller's
+     * transaction ends, so the file can be removed before anyone can re-register it.
+     */
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM StoredBlob b WHERE b.sha256 = :sha256 AND b.refCount = 0 AND b.createdAt < :cutoff "
+            + "AND (b.releasedAt IS NULL OR b.releasedAt < :cutoff)")
+    int deleteIfUnreferencedBefore(@Param("sha256") String sha256, @Param("cutoff") Instant cutoff);
+}
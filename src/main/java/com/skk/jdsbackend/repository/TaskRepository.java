@@ -7,6 +7,7 @@ import com.skk.jdsbackend.entity.User;
 import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
@@ -42,4 +43,16 @@ public interface TaskRepository extends JpaRepository<Task, Long> {
     @EntityGraph(attributePaths = { "caseEntity", "assignedUser" })
     @Query("SELECT t FROM Task t WHERE t.dueDate < :date AND t.status != 'COMPLETED' AND t.status != 'CANCELLED'")
     List<Task> findOverdueTasks(LocalDate date);
+
+    @Query("SELECT t.status, COUNT(t) FROM Task t GROUP BY t.status")
+    List<Object[]> countGroupedByStatus();
+
+    @Query("SELECT COUNT(t) FROM Task t WHERE t.dueDate < :date AND t.status != 'COMPLETED' AND t.status != 'CANCELLED'")
+    long countOverdueTasks(@Param("date") LocalDate date);
+
+    @Query("SELECT t.assignedUser.id, COUNT(t), "
+            + "SUM(CASE WHEN t.status = 'COMPLETED' THEN 1 ELSE 0 END), "
+            + "SUM(CASE WHEN t.dueDate < :date AND t.status != 'COMPLETED' AND t.status != 'CANCELLED' THEN 1 ELSE 0 END) "
+            + "FROM Task t WHERE t.assignedUser IS NOT NULL GROUP BY t.assignedUser.id")
+    List<Object[]> countGroupedByAssignedUser(@Param("date") LocalDate date);
 }
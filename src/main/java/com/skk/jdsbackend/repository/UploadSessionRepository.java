@@ -0,0 +1,36 @@
+package com.skk.jdsbackend.repository;
+
+import com.skk.jdsbackend.entity.UploadSession;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface UploadSessionRepository extends JpaRepository<UploadSession, String> {
+
+    // Serialises updates of the chunk bitset between parallel chunk uploads
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM UploadSession s WHERE s.id = :id")
+    Optional<UploadSession> findByIdForUpdate(@Param("id") String id);
+
+    @Query("SELECT s.id FROM UploadSession s WHERE s.updatedAt < :cutoff ORDER BY s.updatedAt")
+    List<String> findIdleSince(@Param("cutoff") LocalDateTime cutoff, Pageable pageable);
+
+    /**
+     * Deletes the session only if it is still idle; returns 0 if it saw activity meanwhile.
+     */
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM UploadSession s WHERE s.id = :id AND s.updatedAt < :cutoff")
+    int deleteIfIdleSince(@Param("id") String id, @Param("cutoff") LocalDateTime cutoff);
+}
@@ -0,0 +1,44 @@
+package com.skk.jdsbackend.repository;
+
+import com.skk.jdsbackend.entity.CaseAccessRelation;
+import com.skk.jdsbackend.entity.UserCaseAccess;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface UserCaseAccessRepository extends JpaRepository<UserCaseAccess, Long> {
+
+    List<UserCaseAccess> findByCaseId(Long caseId);
+
+    @Query("SELECT a.relation FROM UserCaseAccess a WHERE a.userId = :userId AND a.caseId = :caseId")
+    List<CaseAccessRelation> findRelations(@Param("userId") Long userId, @Param("caseId") Long caseId);
+
+    @Modifying
+    @Query("DELETE FROM UserCaseAccess a WHERE a.caseId = :caseId")
+    int deleteByCaseIdInBulk(@Param("caseId") Long caseId);
+
+    // Set-based backfill from the source tables; relation names match CaseParticipantRole
+
+    @Modifying
+    @Query(value = "INSERT INTO user_case_access (user_id, case_id, relation) "
+            + "SELECT created_by_user_id, id, 'CREATOR' FROM cases "
+            + "WHERE deleted = false AND created_by_user_id IS NOT NULL", nativeQuery = true)
+    int backfillCreators();
+
+    @Modifying
+    @Query(value = "INSERT INTO user_case_access (user_id, case_id, relation) "
+            + "SELECT assigned_user_id, id, 'ASSIGNEE' FROM cases "
+            + "WHERE deleted = false AND assigned_user_id IS NOT NULL", nativeQuery = true)
+    int backfillAssignees();
+
+    @Modifying
+    @Query(value = "INSERT INTO user_case_access (user_id, case_id, relation) "
+            + "SELECT DISTINCT p.user_id, p.case_id, p.role FROM case_participants p "
+            + "JOIN cases c ON c.id = p.case_id WHERE c.deleted = false", nativeQuery = true)
+    int backfillParticipants();
+}
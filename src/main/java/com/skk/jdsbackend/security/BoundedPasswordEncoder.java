@@ -0,0 +1,65 @@
+package com.skk.jdsbackend.security;
+
+import com.skk.jdsbackend.exception.TooManyRequestsException;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Limits how many delegate (BCrypt) hashes run at once. A burst of logins can
+ * then occupy at most maxConcurrent cores with hashing. The hash runs on the
+ * request thread itself; a request that finds no free slot within
+ * acquireTimeoutMillis fails with 429 instead of waiting behind the CPU.
+ */
+public class BoundedPasswordEncoder implements PasswordEncoder {
+
+    private static final long RETRY_AFTER_SECONDS = 1;
+
+    private final PasswordEncoder delegate;
+    private final Semaphore permits;
+    private final long acquireTimeoutMillis;
+
+    public BoundedPasswordEncoder(PasswordEncoder delegate, int maxConcurrent, long acquireTimeoutMillis) {
+        this.delegate = delegate;
+        this.permits = new Semaphore(maxConcurrent, true);
+        this.acquireTimeoutMillis = acquireTimeoutMillis;
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return bounded(() -> delegate.encode(rawPassword));
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return bounded(() -> delegate.matches(rawPassword, encodedPassword));
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        return delegate.upgradeEncoding(encodedPassword);
+    }
+
+    public int getQueueDepth() {
+        return permits.getQueueLength();
+    }
+
+    private <T> T bounded(Supplier<T> task) {
+        try {
+            if (!permits.tryAcquire(acquireTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                throw new TooManyRequestsException("Too many concurrent sign-in requests, please retry shortly",
+                        RETRY_AFTER_SECONDS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting to hash password", e);
+        }
+        try {
+            return task.get();
+        } finally {
+            permits.release();
+        }
+    }
+}
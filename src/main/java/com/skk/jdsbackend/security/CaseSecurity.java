@@ -1,23 +1,62 @@
 package com.skk.jdsbackend.security;
 
-import com.skk.jdsbackend.entity.Case;
-import com.skk.jdsbackend.entity.CaseParticipant;
-import com.skk.jdsbackend.entity.CaseParticipantRole;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.skk.jdsbackend.entity.CaseAccessRelation;
 import com.skk.jdsbackend.entity.Role;
-import com.skk.jdsbackend.entity.User;
 import com.skk.jdsbackend.repository.CaseRepository;
-import com.skk.jdsbackend.repository.UserRepository;
-import lombok.RequiredArgsConstructor;
+import com.skk.jdsbackend.repository.UserCaseAccessRepository;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
 
 @Component("caseSecurity")
-@RequiredArgsConstructor
 public class CaseSecurity {
 
+    private enum AccessLevel {
+        NONE, READ, WRITE
+    }
+
+    private record AccessKey(Long userId, Long caseId) {
+    }
+
+    // A decision is valid while its case is still at the generation it was resolved under
+    private record Decision(AccessLevel level, long generation) {
+    }
+
     private final CaseRepository caseRepository;
-    private final UserRepository userRepository;
+    private final UserCaseAccessRepository userCaseAccessRepository;
+
+    // Short-lived per-(user, case) decisions
+    private final Cache<AccessKey, Decision> decisions;
+
+    // Bumped when a case's ownership or participants change, which retires all of
+    // its decisions at once. An entry only has to outlive the decisions cached
+    // under the old generation, including one put by a check racing the bump, so
+    // it is kept for twice their TTL; a missing entry is 0.
+    private final Cache<Long, Long> generations;
+    private final AtomicLong lastGeneration = new AtomicLong();
+
+    public CaseSecurity(CaseRepository caseRepository, UserCaseAccessRepository userCaseAccessRepository,
+            @Value("${app.security.case-access-cache.ttl-seconds:30}") long ttlSeconds,
+            @Value("${app.security.case-access-cache.max-size:50000}") long maxSize) {
+        this.caseRepository = caseRepository;
+        this.userCaseAccessRepository = userCaseAccessRepository;
+        this.decisions = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .maximumSize(maxSize)
+                .build();
+        this.generations = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds * 2))
+                .build();
+    }
 
     @Transactional(readOnly = true)
     public boolean canAccess(Authentication authentication, Long caseId, String accessType) {
@@ -26,54 +65,88 @@ public class CaseSecurity {
         }
 
         UserDetailsImpl userDetails = (UserDetailsImpl) authentication.getPrincipal();
-        User user = userRepository.findById(userDetails.getId()).orElse(null);
-
-        if (user == null) {
-            return false;
-        }
+        Long userId = userDetails.getId();
 
         // Global SUPERVISORS have access to everything
-        if (user.getRoles().contains(Role.SUPERVISOR)) {
+        if (hasRole(authentication, Role.SUPERVISOR)) {
             return true;
         }
 
         // Global VIEWERS have read-only access to everything
-        if (user.getRoles().contains(Role.VIEWER)) {
+        if (hasRole(authentication, Role.VIEWER)) {
             return "READ".equalsIgnoreCase(accessType);
         }
 
-        Case caseEntity = caseRepository.findById(caseId).orElse(null);
-        if (caseEntity == null) {
-            return true; // Let 404 handle it in controller
+        AccessKey key = new AccessKey(userId, caseId);
+        long generation = generationOf(caseId);
+        Decision decision = decisions.getIfPresent(key);
+        AccessLevel level;
+        if (decision != null && decision.generation() == generation) {
+            level = decision.level();
+        } else {
+            level = resolveAccess(caseId, userId);
+            if (level == null) {
+                return true; // Let 404 handle it in controller
+            }
+            // generation was read before resolving, so an eviction racing the lookup still retires this
+            decisions.put(key, new Decision(level, generation));
         }
 
-        // Owner (CreatedBy or AssignedTo) has full access
-        if (isOwnerOrAssigned(caseEntity, user)) {
-            return true;
+        if ("READ".equalsIgnoreCase(accessType)) {
+            return level != AccessLevel.NONE;
+        } else if ("WRITE".equalsIgnoreCase(accessType)) {
+            return level == AccessLevel.WRITE;
         }
+        return false;
+    }
 
-        // Check participation
-        return checkParticipation(caseEntity, user, accessType);
+    /**
+     * Invalidates cached decisions for a case in O(1) by moving it to a new
+     * generation. Inside a transaction this happens after commit, so a concurrent
+     * check cannot re-cache the old relations.
+     */
+    public void evictCase(Long caseId) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    bumpGeneration(caseId);
+                }
+            });
+        } else {
+            bumpGeneration(caseId);
+        }
     }
 
-    private boolean isOwnerOrAssigned(Case caseEntity, User user) {
-        boolean isCreator = caseEntity.getCreatedByUser() != null
-                && caseEntity.getCreatedByUser().getId().equals(user.getId());
-        boolean isAssigned = caseEntity.getAssignedUser() != null
-                && caseEntity.getAssignedUser().getId().equals(user.getId());
-        return isCreator || isAssigned;
+    private void bumpGeneration(Long caseId) {
+        generations.put(caseId, lastGeneration.incrementAndGet());
     }
 
-    private boolean checkParticipation(Case caseEntity, User user, String accessType) {
-        for (CaseParticipant participant : caseEntity.getParticipants()) {
-            if (participant.getUser().getId().equals(user.getId())) {
-                if ("READ".equalsIgnoreCase(accessType)) {
-                    return true;
-                } else if ("WRITE".equalsIgnoreCase(accessType)) {
-                    return participant.getRole() == CaseParticipantRole.EDITOR;
-                }
-            }
+    private long generationOf(Long caseId) {
+        Long generation = generations.getIfPresent(caseId);
+        return generation != null ? generation : 0L;
+    }
+
+    /**
+     * Owner (CreatedBy or AssignedTo) has full access, EDITOR participants can write
+     * and other participants can read. Returns null if the case does not exist.
+     */
+    private AccessLevel resolveAccess(Long caseId, Long userId) {
+        List<CaseAccessRelation> relations = userCaseAccessRepository.findRelations(userId, caseId);
+        if (relations.isEmpty()) {
+            return caseRepository.existsById(caseId) ? AccessLevel.NONE : null;
         }
-        return false;
+        if (relations.contains(CaseAccessRelation.CREATOR) || relations.contains(CaseAccessRelation.ASSIGNEE)
+                || relations.contains(CaseAccessRelation.EDITOR)) {
+            return AccessLevel.WRITE;
+        }
+        return AccessLevel.READ;
+    }
+
+    // Roles come from the principal's authorities, so no user lookup is needed
+    private boolean hasRole(Authentication authentication, Role role) {
+        String authority = "ROLE_" + role.name();
+        return authentication.getAuthorities().stream()
+                .anyMatch(granted -> authority.equals(granted.getAuthority()));
     }
 }
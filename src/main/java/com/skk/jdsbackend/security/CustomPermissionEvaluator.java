@@ -1,31 +1,22 @@
 package com.skk.jdsbackend.security;
 
 import com.skk.jdsbackend.entity.Permission;
-import com.skk.jdsbackend.entity.Role;
 import org.springframework.security.access.PermissionEvaluator;
 import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Component;
 
 import java.io.Serializable;
-import java.util.Set;
-import java.util.stream.Collectors;
 
 @Component
 public class CustomPermissionEvaluator implements PermissionEvaluator {
 
-    private final RolePermissionMapping rolePermissionMapping;
-
-    public CustomPermissionEvaluator(RolePermissionMapping rolePermissionMapping) {
-        this.rolePermissionMapping = rolePermissionMapping;
-    }
-
     @Override
     public boolean hasPermission(Authentication authentication, Object targetDomainObject, Object permission) {
         if (authentication == null || permission == null) {
             return false;
         }
         
-        return hasPrivilege(authentication, permission.toString());
+        return hasPrivilege(authentication, permission);
     }
 
     @Override
@@ -34,24 +25,18 @@ public class CustomPermissionEvaluator implements PermissionEvaluator {
             return false;
         }
         
-        return hasPrivilege(authentication, permission.toString());
+        return hasPrivilege(authentication, permission);
     }
 
-    private boolean hasPrivilege(Authentication authentication, String permissionName) {
-        UserDetailsImpl userDetails = (UserDetailsImpl) authentication.getPrincipal();
-        
-        // Get user roles from authorities
-        Set<Role> roles = authentication.getAuthorities().stream()
-                .filter(auth -> auth.getAuthority().startsWith("ROLE_"))
-                .map(auth -> auth.getAuthority().substring(5))
-                .map(Role::valueOf)
-                .collect(Collectors.toSet());
-        
-        try {
-            Permission permission = Permission.valueOf(permissionName);
-            return rolePermissionMapping.hasPermission(roles, permission);
-        } catch (IllegalArgumentException e) {
+    // The principal carries its permission mask, so a check is a lookup and a single AND
+    private boolean hasPrivilege(Authentication authentication, Object permissionValue) {
+        if (!(authentication.getPrincipal() instanceof UserDetailsImpl userDetails)) {
             return false;
         }
+
+        Permission permission = permissionValue instanceof Permission p
+                ? p
+                : RolePermissionMapping.permissionByName(permissionValue.toString());
+        return permission != null && userDetails.hasPermission(permission);
     }
 }
@@ -0,0 +1,76 @@
+package com.skk.jdsbackend.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.skk.jdsbackend.exception.TooManyRequestsException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Fixed-window throttling of sign-in attempts, checked before any password is
+ * hashed. Failed logins are counted per username; every login or registration
+ * attempt is counted per client IP. Counters start with the first attempt and
+ * reset when the window expires.
+ */
+@Component
+public class LoginAttemptThrottle {
+
+    private final Cache<String, AtomicInteger> failuresByUsername;
+    private final Cache<String, AtomicInteger> attemptsByIp;
+    private final int maxFailuresPerUsername;
+    private final int maxAttemptsPerIp;
+    private final long windowSeconds;
+
+    public LoginAttemptThrottle(
+            @Value("${app.security.login-throttle.window-seconds:900}") long windowSeconds,
+            @Value("${app.security.login-throttle.max-failures-per-username:5}") int maxFailuresPerUsername,
+            @Value("${app.security.login-throttle.max-attempts-per-ip:50}") int maxAttemptsPerIp) {
+        this.windowSeconds = windowSeconds;
+        this.maxFailuresPerUsername = maxFailuresPerUsername;
+        this.maxAttemptsPerIp = maxAttemptsPerIp;
+        this.failuresByUsername = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofSeconds(windowSeconds))
+                .maximumSize(100_000)
+                .build();
+        this.attemptsByIp = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofSeconds(windowSeconds))
+                .maximumSize(100_000)
+                .build();
+    }
+
+    /**
+     * Rejects the attempt if the username or IP is over its limit, otherwise counts
+     * it against the IP. Username may be null for registration.
+     */
+    public void checkAndCount(String username, String clientIp) {
+        if (username != null) {
+            AtomicInteger failures = failuresByUsername.getIfPresent(key(username));
+            if (failures != null && failures.get() >= maxFailuresPerUsername) {
+                throw new TooManyRequestsException("Too many failed login attempts, please try again later",
+                        windowSeconds);
+            }
+        }
+        if (clientIp != null) {
+            AtomicInteger attempts = attemptsByIp.get(clientIp, ip -> new AtomicInteger());
+            if (attempts.incrementAndGet() > maxAttemptsPerIp) {
+                throw new TooManyRequestsException("Too many sign-in attempts from this address, please try again later",
+                        windowSeconds);
+            }
+        }
+    }
+
+    public void recordFailure(String username) {
+        failuresByUsername.get(key(username), name -> new AtomicInteger()).incrementAndGet();
+    }
+
+    public void recordSuccess(String username) {
+        failuresByUsername.invalidate(key(username));
+    }
+
+    private String key(String username) {
+        return username.toLowerCase();
+    }
+}
@@ -4,6 +4,10 @@ import com.skk.jdsbackend.entity.Permission;
 import com.skk.jdsbackend.entity.Role;
 import org.springframework.stereotype.Component;
 
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
@@ -11,11 +15,22 @@ import java.util.Set;
 @Component
 public class RolePermissionMapping {
     
-    private static final Map<Role, Set<Permission>> rolePermissions = new HashMap<>();
+    private static final Map<Role, Set<Permission>> rolePermissions = new EnumMap<>(Role.class);
+
+    // Permission bitmask per role, indexed by Role ordinal; one bit per Permission ordinal
+    private static final long[] roleMasks = new long[Role.values().length];
+
+    private static final Map<String, Permission> permissionsByName = new HashMap<>();
     
     static {
+        // One long holds the bitmask, so the enum must not outgrow 64 constants
+        if (Permission.values().length > Long.SIZE) {
+            throw new IllegalStateException("Permission has " + Permission.values().length
+                    + " constants but role bitmasks hold at most " + Long.SIZE);
+        }
+
         // ADMIN has all permissions
-        rolePermissions.put(Role.ADMIN, Set.of(
+        define(Role.ADMIN, EnumSet.of(
             Permission.CASE_READ, Permission.CASE_WRITE, Permission.CASE_DELETE,
             Permission.CLIENT_READ, Permission.CLIENT_WRITE, Permission.CLIENT_DELETE,
             Permission.DOCUMENT_READ, Permission.DOCUMENT_WRITE, Permission.DOCUMENT_DELETE, Permission.DOCUMENT_SIGN,
@@ -27,7 +42,7 @@ public class RolePermissionMapping {
         ));
         
         // CASE_WORKER has limited permissions
-        rolePermissions.put(Role.CASE_WORKER, Set.of(
+        define(Role.CASE_WORKER, EnumSet.of(
             Permission.CASE_READ, Permission.CASE_WRITE,
             Permission.CLIENT_READ, Permission.CLIENT_WRITE,
             Permission.DOCUMENT_READ, Permission.DOCUMENT_WRITE,
@@ -36,7 +51,7 @@ public class RolePermissionMapping {
         ));
         
         // SUPERVISOR has more permissions than case worker
-        rolePermissions.put(Role.SUPERVISOR, Set.of(
+        define(Role.SUPERVISOR, EnumSet.of(
             Permission.CASE_READ, Permission.CASE_WRITE, Permission.CASE_DELETE,
             Permission.CLIENT_READ, Permission.CLIENT_WRITE,
             Permission.DOCUMENT_READ, Permission.DOCUMENT_WRITE, Permission.DOCUMENT_SIGN,
@@ -45,6 +60,23 @@ public class RolePermissionMapping {
             Permission.NOTE_READ, Permission.NOTE_WRITE, Permission.NOTE_DELETE,
             Permission.ANALYTICS_VIEW
         ));
+
+        for (Permission permission : Permission.values()) {
+            permissionsByName.put(permission.name(), permission);
+        }
+    }
+
+    private static void define(Role role, EnumSet<Permission> permissions) {
+        rolePermissions.put(role, Collections.unmodifiableSet(permissions));
+        long mask = 0L;
+        for (Permission permission : permissions) {
+            mask |= bit(permission);
+        }
+        roleMasks[role.ordinal()] = mask;
+    }
+
+    private static long bit(Permission permission) {
+        return 1L << permission.ordinal();
     }
     
     public Set<Permission> getPermissionsForRole(Role role) {
@@ -52,8 +84,39 @@ public class RolePermissionMapping {
     }
     
     public boolean hasPermission(Set<Role> roles, Permission permission) {
-        return roles.stream()
-                .flatMap(role -> getPermissionsForRole(role).stream())
-                .anyMatch(p -> p == permission);
+        return hasPermission(permissionMask(roles), permission);
+    }
+
+    public static boolean hasPermission(long permissionMask, Permission permission) {
+        return (permissionMask & bit(permission)) != 0;
+    }
+
+    /**
+     * Union of the roles' permissions as a bitmask, one bit per Permission ordinal.
+     * Carried on the principal and as a compact JWT claim.
+     */
+    public static long permissionMask(Collection<Role> roles) {
+        long mask = 0L;
+        for (Role role : roles) {
+            mask |= roleMasks[role.ordinal()];
+        }
+        return mask;
+    }
+
+    public static Set<Permission> permissionsFromMask(long mask) {
+        Set<Permission> permissions = EnumSet.noneOf(Permission.class);
+        for (Permission permission : Permission.values()) {
+            if (hasPermission(mask, permission)) {
+                permissions.add(permission);
+            }
+        }
+        return permissions;
+    }
+
+    /**
+     * Resolves a permission name without throwing; null for unknown names.
+     */
+    public static Permission permissionByName(String name) {
+        return permissionsByName.get(name);
     }
 }
@@ -0,0 +1,47 @@
+package com.skk.jdsbackend.security;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Short-lived list of users whose access tokens must no longer be honoured,
+ * e.g. after deletion or a role change. Any token issued at or before the
+ * revocation instant is rejected. An entry only has to outlive the longest
+ * access token, so entries older than app.jwt.expiration-ms are dropped.
+ *
+ * The list is held in memory, so every instance must see the revocation;
+ * with several instances behind a load balancer keep stateless authorization off.
+ */
+@Service
+public class TokenRevocationService {
+
+    private final Map<Long, Instant> revokedUsers = new ConcurrentHashMap<>();
+
+    @Value("${app.jwt.expiration-ms}")
+    private long jwtExpirationMs;
+
+    public void revokeUser(Long userId) {
+        revokedUsers.put(userId, Instant.now());
+    }
+
+    public boolean isRevoked(Long userId, Date issuedAt) {
+        Instant revokedAt = revokedUsers.get(userId);
+        if (revokedAt == null) {
+            return false;
+        }
+        // iat has second precision, so a token from the revocation second is rejected too
+        return issuedAt == null || !issuedAt.toInstant().isAfter(revokedAt);
+    }
+
+    @Scheduled(fixedDelayString = "${app.jwt.revocation-purge-interval-ms:60000}")
+    public void purgeExpired() {
+        Instant cutoff = Instant.now().minusMillis(jwtExpirationMs);
+        revokedUsers.values().removeIf(revokedAt -> revokedAt.isBefore(cutoff));
+    }
+}
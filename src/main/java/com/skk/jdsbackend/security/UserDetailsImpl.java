@@ -2,6 +2,7 @@ package com.skk.jdsbackend.security;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.skk.jdsbackend.entity.Permission;
+import com.skk.jdsbackend.entity.Role;
 import com.skk.jdsbackend.entity.User;
 import lombok.AllArgsConstructor;
 import lombok.Data;
@@ -12,8 +13,6 @@ import org.springframework.security.core.userdetails.UserDetails;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
-import java.util.Set;
-import java.util.stream.Collectors;
 
 @Data
 @AllArgsConstructor
@@ -28,31 +27,34 @@ public class UserDetailsImpl implements UserDetails {
 
     private Collection<? extends GrantedAuthority> authorities;
 
+    // Union of the user's role permissions, see RolePermissionMapping.permissionMask
+    private long permissionMask;
+
     public static UserDetailsImpl build(User user) {
-        RolePermissionMapping permissionMapping = new RolePermissionMapping();
-        
+        long permissionMask = RolePermissionMapping.permissionMask(user.getRoles());
+
         // Add role-based authorities
-        List<GrantedAuthority> authorities = user.getRoles().stream()
-                .map(role -> new SimpleGrantedAuthority("ROLE_" + role.name()))
-                .collect(Collectors.toList());
-        
+        List<GrantedAuthority> authorities = new ArrayList<>();
+        for (Role role : user.getRoles()) {
+            authorities.add(new SimpleGrantedAuthority("ROLE_" + role.name()));
+        }
+
         // Add permission-based authorities
-        Set<Permission> permissions = user.getRoles().stream()
-                .flatMap(role -> permissionMapping.getPermissionsForRole(role).stream())
-                .collect(Collectors.toSet());
-        
-        List<GrantedAuthority> permissionAuthorities = permissions.stream()
-                .map(permission -> new SimpleGrantedAuthority(permission.name()))
-                .collect(Collectors.toList());
-        
-        authorities.addAll(permissionAuthorities);
+        for (Permission permission : RolePermissionMapping.permissionsFromMask(permissionMask)) {
+            authorities.add(new SimpleGrantedAuthority(permission.name()));
+        }
 
         return new UserDetailsImpl(
                 user.getId(),
                 user.getUsername(),
                 user.getEmail(),
                 user.getPassword(),
-                authorities);
+                authorities,
+                permissionMask);
+    }
+
+    public boolean hasPermission(Permission permission) {
+        return RolePermissionMapping.hasPermission(permissionMask, permission);
     }
 
     @Override
@@ -24,6 +24,7 @@ public class ActivityService {
     private final ActivityRepository activityRepository;
     private final UserRepository userRepository;
     private final CaseRepository caseRepository;
+    private final AnalyticsSnapshotService analyticsSnapshotService;
 
     @Transactional
     public void logActivity(String action, String entityType, Long entityId, Long caseId, String details) {
@@ -49,6 +50,7 @@ public class ActivityService {
         }
 
         activityRepository.save(activity);
+        analyticsSnapshotService.activityLogged(action);
     }
 
     public List<ActivityResponse> getActivitiesByCaseId(Long caseId) {
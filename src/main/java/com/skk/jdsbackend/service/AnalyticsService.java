@@ -2,14 +2,19 @@ package com.skk.jdsbackend.service;
 
 import com.skk.jdsbackend.dto.*;
 import com.skk.jdsbackend.entity.*;
+import com.skk.jdsbackend.exception.BadRequestException;
 import com.skk.jdsbackend.repository.*;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.JpaSort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.time.temporal.ChronoUnit;
 import java.util.*;
 import java.util.stream.Collectors;
 
@@ -18,39 +23,34 @@ import java.util.stream.Collectors;
 @Transactional(readOnly = true)
 public class AnalyticsService {
 
+    private static final Set<CaseStatus> CLOSED_STATUSES = EnumSet.of(CaseStatus.RESOLVED, CaseStatus.CLOSED);
+
     private final CaseRepository caseRepository;
     private final TaskRepository taskRepository;
     private final ClientRepository clientRepository;
-    private final DocumentRepository documentRepository;
     private final UserRepository userRepository;
+    private final AnalyticsSnapshotService analyticsSnapshotService;
 
     /**
-     * Get overall dashboard statistics
+     * Get overall dashboard statistics.
+     * Counters come from the in-memory snapshot; overdue tasks depend on today's
+     * date and are still counted in SQL.
      */
     public DashboardStatsDto getDashboardStats() {
-        List<Case> allCases = caseRepository.findAll();
-        List<Task> allTasks = taskRepository.findAll();
-        
-        long totalCases = allCases.size();
-        long activeCases = allCases.stream()
-                .filter(c -> c.getStatus() != CaseStatus.CLOSED && c.getStatus() != CaseStatus.RESOLVED)
-                .count();
-        long closedCases = allCases.stream()
-                .filter(c -> c.getStatus() == CaseStatus.CLOSED || c.getStatus() == CaseStatus.RESOLVED)
-                .count();
-        
-        long totalTasks = allTasks.size();
-        long overdueTasks = taskRepository.findOverdueTasks(LocalDate.now()).size();
-        long completedTasks = allTasks.stream()
-                .filter(t -> t.getStatus() == TaskStatus.COMPLETED)
-                .count();
-        
-        long totalClients = clientRepository.count();
-        long totalDocuments = documentRepository.count();
-        
-        // Calculate average resolution time for closed/resolved cases
-        Double averageResolutionDays = calculateAverageResolutionDays(allCases);
-        
+        AnalyticsSnapshot snapshot = analyticsSnapshotService.current();
+        Map<CaseStatus, Long> caseCounts = snapshot.getCaseStatusCounts();
+        Map<TaskStatus, Long> taskCounts = snapshot.getTaskStatusCounts();
+
+        long totalCases = snapshot.getTotalCases();
+        long closedCases = CLOSED_STATUSES.stream()
+                .mapToLong(status -> caseCounts.getOrDefault(status, 0L))
+                .sum();
+        long activeCases = totalCases - closedCases;
+
+        long totalTasks = snapshot.getTotalTasks();
+        long completedTasks = taskCounts.getOrDefault(TaskStatus.COMPLETED, 0L);
+        long overdueTasks = taskRepository.countOverdueTasks(LocalDate.now());
+
         return DashboardStatsDto.builder()
                 .totalCases(totalCases)
                 .activeCases(activeCases)
@@ -58,9 +58,9 @@ public class AnalyticsService {
                 .totalTasks(totalTasks)
                 .overdueTasks(overdueTasks)
                 .completedTasks(completedTasks)
-                .totalClients(totalClients)
-                .totalDocuments(totalDocuments)
-                .averageCaseResolutionDays(averageResolutionDays)
+                .totalClients(snapshot.getTotalClients())
+                .totalDocuments(snapshot.getTotalDocuments())
+                .averageCaseResolutionDays(snapshot.getAverageResolutionDays())
                 .build();
     }
 
@@ -68,12 +68,8 @@ public class AnalyticsService {
      * Get case statistics by status
      */
     public List<CaseStatsByStatusDto> getCaseStatsByStatus() {
-        List<Case> allCases = caseRepository.findAll();
-        
-        Map<CaseStatus, Long> statusCounts = allCases.stream()
-                .collect(Collectors.groupingBy(Case::getStatus, Collectors.counting()));
-        
-        return statusCounts.entrySet().stream()
+        return analyticsSnapshotService.current().getCaseStatusCounts().entrySet().stream()
+                .filter(entry -> entry.getValue() > 0)
                 .map(entry -> CaseStatsByStatusDto.builder()
                         .status(entry.getKey())
                         .count(entry.getValue())
@@ -86,12 +82,8 @@ public class AnalyticsService {
      * Get case statistics by priority
      */
     public List<CaseStatsByPriorityDto> getCaseStatsByPriority() {
-        List<Case> allCases = caseRepository.findAll();
-        
-        Map<CasePriority, Long> priorityCounts = allCases.stream()
-                .collect(Collectors.groupingBy(Case::getPriority, Collectors.counting()));
-        
-        return priorityCounts.entrySet().stream()
+        return analyticsSnapshotService.current().getCasePriorityCounts().entrySet().stream()
+                .filter(entry -> entry.getValue() > 0)
                 .map(entry -> CaseStatsByPriorityDto.builder()
                         .priority(entry.getKey())
                         .count(entry.getValue())
@@ -104,12 +96,8 @@ public class AnalyticsService {
      * Get task statistics by status
      */
     public List<TaskStatsDto> getTaskStatsByStatus() {
-        List<Task> allTasks = taskRepository.findAll();
-        
-        Map<TaskStatus, Long> statusCounts = allTasks.stream()
-                .collect(Collectors.groupingBy(Task::getStatus, Collectors.counting()));
-        
-        return statusCounts.entrySet().stream()
+        return analyticsSnapshotService.current().getTaskStatusCounts().entrySet().stream()
+                .filter(entry -> entry.getValue() > 0)
                 .map(entry -> TaskStatsDto.builder()
                         .status(entry.getKey())
                         .count(entry.getValue())
@@ -122,149 +110,134 @@ public class AnalyticsService {
      * Get user workload distribution
      */
     public List<UserWorkloadDto> getUserWorkload() {
-        List<User> allUsers = userRepository.findAll();
-        
-        return allUsers.stream()
-                .map(user -> {
-                    List<Case> userCases = caseRepository.findByAssignedUser(user);
-                    List<Task> userTasks = taskRepository.findByAssignedUser(user);
-                    
-                    long assignedCases = userCases.size();
-                    long activeCases = userCases.stream()
-                            .filter(c -> c.getStatus() != CaseStatus.CLOSED && c.getStatus() != CaseStatus.RESOLVED)
-                            .count();
-                    
-                    long assignedTasks = userTasks.size();
-                    long completedTasks = userTasks.stream()
-                            .filter(t -> t.getStatus() == TaskStatus.COMPLETED)
-                            .count();
-                    long overdueTasks = userTasks.stream()
-                            .filter(t -> t.getDueDate() != null && 
-                                       t.getDueDate().isBefore(LocalDate.now()) &&
-                                       t.getStatus() != TaskStatus.COMPLETED &&
-                                       t.getStatus() != TaskStatus.CANCELLED)
-                            .count();
-                    
-                    return UserWorkloadDto.builder()
-                            .userId(user.getId())
-                            .username(user.getUsername())
-                            .fullName(user.getUsername())
-                            .assignedCases(assignedCases)
-                            .activeCases(activeCases)
-                            .assignedTasks(assignedTasks)
-                            .completedTasks(completedTasks)
-                            .overdueTasks(overdueTasks)
-                            .build();
-                })
-                .filter(dto -> dto.getAssignedCases() > 0 || dto.getAssignedTasks() > 0)
-                .sorted(Comparator.comparing(UserWorkloadDto::getActiveCases).reversed())
+        return buildUserWorkload().stream()
+                .sorted(workloadComparator("activeCases", Sort.Direction.DESC))
                 .collect(Collectors.toList());
     }
 
+    /**
+     * Get a page of the user workload report, sorted by the given column
+     */
+    public PageResponse<UserWorkloadDto> getUserWorkload(int page, int size, String sort, Sort.Direction direction) {
+        List<UserWorkloadDto> rows = buildUserWorkload();
+        rows.sort(workloadComparator(sort, direction));
+
+        int from = Math.min(page * size, rows.size());
+        int to = Math.min(from + size, rows.size());
+        int totalPages = (rows.size() + size - 1) / size;
+        return new PageResponse<>(new ArrayList<>(rows.subList(from, to)), page, size, rows.size(), totalPages);
+    }
+
+    /**
+     * One grouped query over cases and one over tasks, merged by user id.
+     * Only users with assigned work are loaded, so paging in memory is bounded
+     * by the number of active assignees rather than by cases or tasks.
+     */
+    private List<UserWorkloadDto> buildUserWorkload() {
+        Map<Long, long[]> caseCounts = new HashMap<>();
+        for (Object[] row : caseRepository.countGroupedByAssignedUser(CLOSED_STATUSES)) {
+            caseCounts.put((Long) row[0], new long[] { toLong(row[1]), toLong(row[2]) });
+        }
+        Map<Long, long[]> taskCounts = new HashMap<>();
+        for (Object[] row : taskRepository.countGroupedByAssignedUser(LocalDate.now())) {
+            taskCounts.put((Long) row[0], new long[] { toLong(row[1]), toLong(row[2]), toLong(row[3]) });
+        }
+
+        Set<Long> userIds = new HashSet<>(caseCounts.keySet());
+        userIds.addAll(taskCounts.keySet());
+
+        List<UserWorkloadDto> rows = new ArrayList<>();
+        for (User user : userRepository.findAllById(userIds)) {
+            long[] cases = caseCounts.getOrDefault(user.getId(), new long[2]);
+            long[] tasks = taskCounts.getOrDefault(user.getId(), new long[3]);
+            rows.add(UserWorkloadDto.builder()
+                    .userId(user.getId())
+                    .username(user.getUsername())
+                    .fullName(user.getUsername())
+                    .assignedCases(cases[0])
+                    .activeCases(cases[1])
+                    .assignedTasks(tasks[0])
+                    .completedTasks(tasks[1])
+                    .overdueTasks(tasks[2])
+                    .build());
+        }
+        return rows;
+    }
+
+    private Comparator<UserWorkloadDto> workloadComparator(String sort, Sort.Direction direction) {
+        Comparator<UserWorkloadDto> comparator = switch (sort) {
+            case "activeCases" -> Comparator.comparing(UserWorkloadDto::getActiveCases);
+            case "assignedCases" -> Comparator.comparing(UserWorkloadDto::getAssignedCases);
+            case "assignedTasks" -> Comparator.comparing(UserWorkloadDto::getAssignedTasks);
+            case "completedTasks" -> Comparator.comparing(UserWorkloadDto::getCompletedTasks);
+            case "overdueTasks" -> Comparator.comparing(UserWorkloadDto::getOverdueTasks);
+            case "username" -> Comparator.comparing(UserWorkloadDto::getUsername);
+            default -> throw new BadRequestException("Unsupported sort for workload: " + sort);
+        };
+        comparator = comparator.thenComparing(UserWorkloadDto::getUserId);
+        return direction == Sort.Direction.DESC ? comparator.reversed() : comparator;
+    }
+
     /**
      * Get case performance metrics
      */
     public CasePerformanceDto getCasePerformance() {
-        List<Case> allCases = caseRepository.findAll();
-        
-        List<Case> resolvedCases = allCases.stream()
-                .filter(c -> c.getStatus() == CaseStatus.RESOLVED || c.getStatus() == CaseStatus.CLOSED)
-                .collect(Collectors.toList());
-        
-        long totalResolved = resolvedCases.size();
-        Double averageResolution = calculateAverageResolutionDays(resolvedCases);
-        
-        // Calculate fastest and slowest resolution
-        Long fastest = null;
-        Long slowest = null;
-        
-        if (!resolvedCases.isEmpty()) {
-            List<Long> resolutionDays = resolvedCases.stream()
-                    .map(c -> ChronoUnit.DAYS.between(c.getCreatedAt(), c.getUpdatedAt()))
-                    .sorted()
-                    .collect(Collectors.toList());
-            
-            if (!resolutionDays.isEmpty()) {
-                fastest = resolutionDays.get(0);
-                slowest = resolutionDays.get(resolutionDays.size() - 1);
-            }
-        }
-        
-        // Cases resolved this month and last month
-        LocalDateTime startOfThisMonth = LocalDateTime.now().withDayOfMonth(1).withHour(0).withMinute(0).withSecond(0);
-        LocalDateTime startOfLastMonth = startOfThisMonth.minusMonths(1);
-        
-        long casesThisMonth = resolvedCases.stream()
-                .filter(c -> c.getUpdatedAt().isAfter(startOfThisMonth))
-                .count();
-        
-        long casesLastMonth = resolvedCases.stream()
-                .filter(c -> c.getUpdatedAt().isAfter(startOfLastMonth) && 
-                           c.getUpdatedAt().isBefore(startOfThisMonth))
-                .count();
-        
-        return CasePerformanceDto.builder()
-                .totalCasesResolved(totalResolved)
-                .averageResolutionDays(averageResolution)
-                .fastestResolutionDays(fastest)
-                .slowestResolutionDays(slowest)
-                .casesResolvedThisMonth(casesThisMonth)
-                .casesResolvedLastMonth(casesLastMonth)
-                .build();
+        return resolutionStats();
     }
 
     /**
      * Get client statistics
      */
     public List<ClientStatsDto> getClientStats() {
-        List<Client> allClients = clientRepository.findAll();
-        
-        return allClients.stream()
-                .map(client -> {
-                    List<Case> clientCases = caseRepository.findByClient(client);
-                    
-                    long totalCases = clientCases.size();
-                    long activeCases = clientCases.stream()
-                            .filter(c -> c.getStatus() != CaseStatus.CLOSED && c.getStatus() != CaseStatus.RESOLVED)
-                            .count();
-                    long closedCases = clientCases.stream()
-                            .filter(c -> c.getStatus() == CaseStatus.CLOSED || c.getStatus() == CaseStatus.RESOLVED)
-                            .count();
-                    
-                    long totalDocuments = clientCases.stream()
-                            .mapToLong(c -> c.getDocuments().size())
-                            .sum();
-                    
-                    return ClientStatsDto.builder()
-                            .clientId(client.getId())
-                            .clientName(client.getFirstname() + " " + client.getLastname())
-                            .email(client.getEmail())
-                            .totalCases(totalCases)
-                            .activeCases(activeCases)
-                            .closedCases(closedCases)
-                            .totalDocuments(totalDocuments)
-                            .build();
-                })
-                .sorted(Comparator.comparing(ClientStatsDto::getTotalCases).reversed())
-                .collect(Collectors.toList());
+        return clientRepository.findClientStats(Pageable.unpaged(clientStatsSort("totalCases", Sort.Direction.DESC)))
+                .getContent();
     }
 
     /**
-     * Helper method to calculate average resolution days
+     * Get a page of client statistics, sorted in SQL by the given column
      */
-    private Double calculateAverageResolutionDays(List<Case> cases) {
-        List<Case> resolvedCases = cases.stream()
-                .filter(c -> c.getStatus() == CaseStatus.RESOLVED || c.getStatus() == CaseStatus.CLOSED)
-                .collect(Collectors.toList());
-        
-        if (resolvedCases.isEmpty()) {
-            return 0.0;
-        }
-        
-        double totalDays = resolvedCases.stream()
-                .mapToLong(c -> ChronoUnit.DAYS.between(c.getCreatedAt(), c.getUpdatedAt()))
-                .sum();
-        
-        return totalDays / resolvedCases.size();
+    public PageResponse<ClientStatsDto> getClientStats(int page, int size, String sort, Sort.Direction direction) {
+        Page<ClientStatsDto> result = clientRepository.findClientStats(
+                PageRequest.of(page, size, clientStatsSort(sort, direction)));
+        return new PageResponse<>(result.getContent(), page, size, result.getTotalElements(), result.getTotalPages());
+    }
+
+    // Maps report columns to the aggregate expressions of ClientRepository.findClientStats
+    private Sort clientStatsSort(String sort, Sort.Direction direction) {
+        String expression = switch (sort) {
+            case "totalCases" -> "COUNT(c.id)";
+            case "activeCases" ->
+                "SUM(CASE WHEN c.status IN ('RESOLVED', 'CLOSED') THEN 0 WHEN c.id IS NULL THEN 0 ELSE 1 END)";
+            case "closedCases" -> "SUM(CASE WHEN c.status IN ('RESOLVED', 'CLOSED') THEN 1 ELSE 0 END)";
+            case "clientName" -> "cl.lastname";
+            default -> throw new BadRequestException("Unsupported sort for client stats: " + sort);
+        };
+        return JpaSort.unsafe(direction, expression).and(Sort.by(direction, "id"));
+    }
+
+    /**
+     * Resolution metrics for closed/resolved cases, aggregated in a single query.
+     * Resolution time is the whole number of days between creation and last update.
+     */
+    private CasePerformanceDto resolutionStats() {
+        LocalDateTime startOfThisMonth = LocalDate.now().withDayOfMonth(1).atStartOfDay();
+        LocalDateTime startOfLastMonth = startOfThisMonth.minusMonths(1);
+
+        List<Object[]> rows = caseRepository.findResolutionStats(CLOSED_STATUSES, startOfThisMonth, startOfLastMonth);
+        Object[] row = rows.isEmpty() ? new Object[6] : rows.get(0);
+
+        long totalResolved = toLong(row[0]);
+        return CasePerformanceDto.builder()
+                .totalCasesResolved(totalResolved)
+                .averageResolutionDays(totalResolved > 0 && row[1] != null ? ((Number) row[1]).doubleValue() : 0.0)
+                .fastestResolutionDays(row[2] != null ? ((Number) row[2]).longValue() : null)
+                .slowestResolutionDays(row[3] != null ? ((Number) row[3]).longValue() : null)
+                .casesResolvedThisMonth(toLong(row[4]))
+                .casesResolvedLastMonth(toLong(row[5]))
+                .build();
+    }
+
+    private long toLong(Object value) {
+        return value != null ? ((Number) value).longValue() : 0L;
     }
 }
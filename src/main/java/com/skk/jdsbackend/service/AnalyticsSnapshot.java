@@ -0,0 +1,153 @@
+package com.skk.jdsbackend.service;
+
+import com.skk.jdsbackend.entity.CasePriority;
+import com.skk.jdsbackend.entity.CaseStatus;
+import com.skk.jdsbackend.entity.TaskStatus;
+import lombok.Getter;
+
+import java.time.Instant;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Point-in-time analytics counters. Instances are published read-only by
+ * AnalyticsSnapshotService; updates are applied to a private copy which then
+ * replaces the published one.
+ */
+@Getter
+public class AnalyticsSnapshot {
+
+    private final Map<CaseStatus, Long> caseStatusCounts;
+    private final Map<CasePriority, Long> casePriorityCounts;
+    private final Map<TaskStatus, Long> taskStatusCounts;
+    // Resolution days -> number of closed/resolved cases
+    private final TreeMap<Long, Long> resolutionDaysHistogram;
+    private long totalClients;
+    private long totalDocuments;
+    private final Instant rebuiltAt;
+    private Instant lastUpdatedAt;
+    private long incrementalUpdates;
+
+    AnalyticsSnapshot(Map<CaseStatus, Long> caseStatusCounts,
+            Map<CasePriority, Long> casePriorityCounts,
+            Map<TaskStatus, Long> taskStatusCounts,
+            Map<Long, Long> resolutionDaysHistogram,
+            long totalClients,
+            long totalDocuments,
+            Instant rebuiltAt) {
+        this.caseStatusCounts = new EnumMap<>(CaseStatus.class);
+        this.caseStatusCounts.putAll(caseStatusCounts);
+        this.casePriorityCounts = new EnumMap<>(CasePriority.class);
+        this.casePriorityCounts.putAll(casePriorityCounts);
+        this.taskStatusCounts = new EnumMap<>(TaskStatus.class);
+        this.taskStatusCounts.putAll(taskStatusCounts);
+        this.resolutionDaysHistogram = new TreeMap<>(resolutionDaysHistogram);
+        this.totalClients = totalClients;
+        this.totalDocuments = totalDocuments;
+        this.rebuiltAt = rebuiltAt;
+        this.lastUpdatedAt = rebuiltAt;
+    }
+
+    AnalyticsSnapshot copy() {
+        AnalyticsSnapshot copy = new AnalyticsSnapshot(caseStatusCounts, casePriorityCounts, taskStatusCounts,
+                resolutionDaysHistogram, totalClients, totalDocuments, rebuiltAt);
+        copy.lastUpdatedAt = lastUpdatedAt;
+        copy.incrementalUpdates = incrementalUpdates;
+        return copy;
+    }
+
+    public Map<CaseStatus, Long> getCaseStatusCounts() {
+        return Collections.unmodifiableMap(caseStatusCounts);
+    }
+
+    public Map<CasePriority, Long> getCasePriorityCounts() {
+        return Collections.unmodifiableMap(casePriorityCounts);
+    }
+
+    public Map<TaskStatus, Long> getTaskStatusCounts() {
+        return Collections.unmodifiableMap(taskStatusCounts);
+    }
+
+    public Map<Long, Long> getResolutionDaysHistogram() {
+        return Collections.unmodifiableMap(resolutionDaysHistogram);
+    }
+
+    public long getTotalCases() {
+        return sum(caseStatusCounts);
+    }
+
+    public long getTotalTasks() {
+        return sum(taskStatusCounts);
+    }
+
+    public long getResolvedCount() {
+        return sum(resolutionDaysHistogram);
+    }
+
+    public Long getFastestResolutionDays() {
+        return resolutionDaysHistogram.isEmpty() ? null : resolutionDaysHistogram.firstKey();
+    }
+
+    public Long getSlowestResolutionDays() {
+        return resolutionDaysHistogram.isEmpty() ? null : resolutionDaysHistogram.lastKey();
+    }
+
+    public double getAverageResolutionDays() {
+        long count = getResolvedCount();
+        if (count == 0) {
+            return 0.0;
+        }
+        double totalDays = 0;
+        for (Map.Entry<Long, Long> bucket : resolutionDaysHistogram.entrySet()) {
+            totalDays += bucket.getKey() * bucket.getValue();
+        }
+        return totalDays / count;
+    }
+
+    // Mutators - only called on an unpublished copy
+
+    void adjust(CaseStatus status, long delta) {
+        if (status != null) {
+            caseStatusCounts.merge(status, delta, Long::sum);
+        }
+    }
+
+    void adjust(CasePriority priority, long delta) {
+        if (priority != null) {
+            casePriorityCounts.merge(priority, delta, Long::sum);
+        }
+    }
+
+    void adjust(TaskStatus status, long delta) {
+        if (status != null) {
+            taskStatusCounts.merge(status, delta, Long::sum);
+        }
+    }
+
+    void recordResolution(long days) {
+        resolutionDaysHistogram.merge(days, 1L, Long::sum);
+    }
+
+    void removeResolution(long days) {
+        resolutionDaysHistogram.computeIfPresent(days, (bucket, count) -> count > 1 ? count - 1 : null);
+    }
+
+    void adjustTotalClients(long delta) {
+        totalClients += delta;
+    }
+
+    void adjustTotalDocuments(long delta) {
+        totalDocuments += delta;
+    }
+
+    void markUpdated(Instant when) {
+        lastUpdatedAt = when;
+        incrementalUpdates++;
+    }
+
+    private static long sum(Map<?, Long> counts) {
+        return counts.values().stream().mapToLong(Long::longValue).sum();
+    }
+}
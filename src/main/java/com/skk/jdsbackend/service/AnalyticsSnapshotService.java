@@ -0,0 +1,305 @@
+package com.skk.jdsbackend.service;
+
+import com.skk.jdsbackend.dto.AnalyticsSnapshotStatusDto;
+import com.skk.jdsbackend.entity.Case;
+import com.skk.jdsbackend.entity.CasePriority;
+import com.skk.jdsbackend.entity.CaseStatus;
+import com.skk.jdsbackend.entity.TaskStatus;
+import com.skk.jdsbackend.repository.CaseRepository;
+import com.skk.jdsbackend.repository.ClientRepository;
+import com.skk.jdsbackend.repository.DocumentRepository;
+import com.skk.jdsbackend.repository.TaskRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * In-memory analytics counters served to the dashboard endpoints.
+ *
+ * The snapshot is rebuilt from grouped queries on a fixed schedule and kept current
+ * in between by applying deltas from case, task, client and document changes once
+ * their transaction commits. A read that finds the snapshot older than
+ * app.analytics.snapshot.max-staleness-ms starts a rebuild in the background and
+ * is served the current snapshot meanwhile; only the very first read waits. At
+ * most one rebuild runs at a time, and it holds no lock while querying, so
+ * deltas are never blocked behind it. A rebuild is only published if no delta
+ * was applied since it started, and is run again otherwise, since its queries
+ * may have missed that change. After MAX_REBUILD_ATTEMPTS it is published
+ * regardless, so a steady stream of changes cannot hold it back forever. A
+ * delta whose transaction committed before the queries ran but that is applied
+ * only after publishing is still counted twice, until the next rebuild.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class AnalyticsSnapshotService {
+
+    static final Set<CaseStatus> CLOSED_STATUSES = EnumSet.of(CaseStatus.RESOLVED, CaseStatus.CLOSED);
+
+    private static final int MAX_REBUILD_ATTEMPTS = 3;
+
+    private final CaseRepository caseRepository;
+    private final TaskRepository taskRepository;
+    private final ClientRepository clientRepository;
+    private final DocumentRepository documentRepository;
+
+    @Value("${app.analytics.snapshot.max-staleness-ms:300000}")
+    private long maxStalenessMillis;
+
+    // Published snapshots are never mutated; writers swap in a modified copy
+    private final AtomicReference<AnalyticsSnapshot> snapshot = new AtomicReference<>();
+
+    // The rebuild in progress, shared by everyone who asks for one meanwhile
+    private final AtomicReference<CompletableFuture<AnalyticsSnapshot>> pending = new AtomicReference<>();
+
+    private final ExecutorService rebuildExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "analytics-snapshot");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Case fields the snapshot is keyed on, captured before a change so the old
+     * buckets can be decremented.
+     */
+    public record CaseFacts(CaseStatus status, CasePriority priority, Long resolutionDays) {
+
+        public static CaseFacts of(Case caseEntity) {
+            Long days = null;
+            if (caseEntity.getStatus() != null && CLOSED_STATUSES.contains(caseEntity.getStatus())
+                    && caseEntity.getCreatedAt() != null && caseEntity.getUpdatedAt() != null) {
+                days = ChronoUnit.DAYS.between(caseEntity.getCreatedAt(), caseEntity.getUpdatedAt());
+            }
+            return new CaseFacts(caseEntity.getStatus(), caseEntity.getPriority(), days);
+        }
+    }
+
+    public AnalyticsSnapshot current() {
+        AnalyticsSnapshot current = snapshot.get();
+        if (current == null) {
+            // Nothing to serve yet
+            return rebuild();
+        }
+        if (ageMillis(current) > maxStalenessMillis) {
+            rebuildInBackground();
+        }
+        return current;
+    }
+
+    @Scheduled(fixedDelayString = "${app.analytics.snapshot.max-staleness-ms:300000}",
+            initialDelayString = "${app.analytics.snapshot.max-staleness-ms:300000}")
+    public void rebuildScheduled() {
+        // Nothing to refresh until the analytics endpoints have been used
+        if (snapshot.get() != null) {
+            rebuild();
+        }
+    }
+
+    /**
+     * Rebuilds the snapshot and waits for it; joins the rebuild already running if
+     * there is one.
+     */
+    public AnalyticsSnapshot rebuild() {
+        try {
+            return rebuildInBackground().join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    @PreDestroy
+    void stopRebuilds() {
+        rebuildExecutor.shutdownNow();
+    }
+
+    private CompletableFuture<AnalyticsSnapshot> rebuildInBackground() {
+        while (true) {
+            CompletableFuture<AnalyticsSnapshot> running = pending.get();
+            if (running != null) {
+                return running;
+            }
+            CompletableFuture<AnalyticsSnapshot> started = new CompletableFuture<>();
+            if (pending.compareAndSet(null, started)) {
+                rebuildExecutor.execute(() -> {
+                    try {
+                        started.complete(load());
+                    } catch (Throwable e) {
+                        log.warn("Could not rebuild analytics snapshot", e);
+                        started.completeExceptionally(e);
+                    } finally {
+                        pending.compareAndSet(started, null);
+                    }
+                });
+                return started;
+            }
+        }
+    }
+
+    // Runs the grouped queries until no delta lands in between, and publishes the result
+    private AnalyticsSnapshot load() {
+        long started = System.nanoTime();
+        for (int attempt = 1; ; attempt++) {
+            // Every applied delta swaps in a new instance, so an unchanged reference means none did
+            AnalyticsSnapshot base = snapshot.get();
+            AnalyticsSnapshot rebuilt = query();
+            if (snapshot.compareAndSet(base, rebuilt)) {
+                log.debug("Rebuilt analytics snapshot in {} ms", (System.nanoTime() - started) / 1_000_000);
+                return rebuilt;
+            }
+            if (attempt == MAX_REBUILD_ATTEMPTS) {
+                // Changes still in flight may be missed until the next rebuild
+                snapshot.set(rebuilt);
+                log.info("Published analytics snapshot after {} attempts, updates kept racing with the rebuild",
+                        attempt);
+                return rebuilt;
+            }
+        }
+    }
+
+    private AnalyticsSnapshot query() {
+        Map<CaseStatus, Long> caseStatusCounts = new EnumMap<>(CaseStatus.class);
+        for (Object[] row : caseRepository.countGroupedByStatus()) {
+            caseStatusCounts.put((CaseStatus) row[0], ((Number) row[1]).longValue());
+        }
+        Map<CasePriority, Long> casePriorityCounts = new EnumMap<>(CasePriority.class);
+        for (Object[] row : caseRepository.countGroupedByPriority()) {
+            if (row[0] != null) {
+                casePriorityCounts.put((CasePriority) row[0], ((Number) row[1]).longValue());
+            }
+        }
+        Map<TaskStatus, Long> taskStatusCounts = new EnumMap<>(TaskStatus.class);
+        for (Object[] row : taskRepository.countGroupedByStatus()) {
+            taskStatusCounts.put((TaskStatus) row[0], ((Number) row[1]).longValue());
+        }
+        Map<Long, Long> histogram = new HashMap<>();
+        for (Object[] row : caseRepository.findResolutionDaysHistogram(CLOSED_STATUSES)) {
+            if (row[0] != null) {
+                histogram.put(((Number) row[0]).longValue(), ((Number) row[1]).longValue());
+            }
+        }
+
+        return new AnalyticsSnapshot(caseStatusCounts, casePriorityCounts,
+                taskStatusCounts, histogram, clientRepository.count(), documentRepository.count(),
+                Instant.now());
+    }
+
+    public AnalyticsSnapshotStatusDto getStatus() {
+        AnalyticsSnapshot current = current();
+        return AnalyticsSnapshotStatusDto.builder()
+                .rebuiltAt(current.getRebuiltAt())
+                .lastUpdatedAt(current.getLastUpdatedAt())
+                .ageMillis(ageMillis(current))
+                .maxStalenessMillis(maxStalenessMillis)
+                .incrementalUpdates(current.getIncrementalUpdates())
+                .build();
+    }
+
+    /**
+     * Records a case create (before == null), update, or delete (after == null).
+     * The after state is read once the transaction has committed, so timestamps
+     * set on flush are included.
+     */
+    public void caseChanged(CaseFacts before, Case after) {
+        afterCommit(s -> {
+            if (before != null) {
+                s.adjust(before.status(), -1);
+                s.adjust(before.priority(), -1);
+                if (before.resolutionDays() != null) {
+                    s.removeResolution(before.resolutionDays());
+                }
+            }
+            if (after != null) {
+                CaseFacts facts = CaseFacts.of(after);
+                s.adjust(facts.status(), 1);
+                s.adjust(facts.priority(), 1);
+                if (facts.resolutionDays() != null) {
+                    s.recordResolution(facts.resolutionDays());
+                }
+            }
+        });
+    }
+
+    public void taskStatusChanged(TaskStatus before, TaskStatus after) {
+        if (before == after) {
+            return;
+        }
+        afterCommit(s -> {
+            s.adjust(before, -1);
+            s.adjust(after, 1);
+        });
+    }
+
+    public void clientCountChanged(long delta) {
+        afterCommit(s -> s.adjustTotalClients(delta));
+    }
+
+    /**
+     * Hook for ActivityService.logActivity. Only actions that change a snapshot
+     * counter are handled; everything else is ignored.
+     */
+    public void activityLogged(String action) {
+        if (action == null) {
+            return;
+        }
+        switch (action) {
+            case "document_uploaded" -> afterCommit(s -> s.adjustTotalDocuments(1));
+            case "document_deleted" -> afterCommit(s -> s.adjustTotalDocuments(-1));
+            default -> {
+            }
+        }
+    }
+
+    private void afterCommit(Consumer<AnalyticsSnapshot> delta) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    apply(delta);
+                }
+            });
+        } else {
+            apply(delta);
+        }
+    }
+
+    private void apply(Consumer<AnalyticsSnapshot> delta) {
+        AnalyticsSnapshot current;
+        AnalyticsSnapshot updated;
+        do {
+            current = snapshot.get();
+            if (current == null) {
+                // Built lazily on first read, which will include this change
+                return;
+            }
+            updated = current.copy();
+            delta.accept(updated);
+            updated.markUpdated(Instant.now());
+        } while (!snapshot.compareAndSet(current, updated));
+    }
+
+    private long ageMillis(AnalyticsSnapshot s) {
+        return Instant.now().toEpochMilli() - s.getRebuiltAt().toEpochMilli();
+    }
+}
@@ -7,16 +7,20 @@ import com.skk.jdsbackend.entity.RefreshToken;
 import com.skk.jdsbackend.entity.Role;
 import com.skk.jdsbackend.entity.User;
 import com.skk.jdsbackend.exception.TokenRefreshException;
+import com.skk.jdsbackend.exception.TooManyRequestsException;
 import com.skk.jdsbackend.repository.UserRepository;
 import com.skk.jdsbackend.security.JwtUtils;
+import com.skk.jdsbackend.security.LoginAttemptThrottle;
 import com.skk.jdsbackend.security.UserDetailsImpl;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
+import org.springframework.security.core.AuthenticationException;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.HashSet;
 import java.util.List;
@@ -41,7 +45,13 @@ public class AuthService {
     @Autowired
     private RefreshTokenService refreshTokenService;
 
-    public AuthResponse register(RegisterRequest registerRequest) {
+    @Autowired
+    private LoginAttemptThrottle loginAttemptThrottle;
+
+    public AuthResponse register(RegisterRequest registerRequest, String clientIp) {
+        // Registration hashes a password too, so it counts against the client's attempts
+        loginAttemptThrottle.checkAndCount(null, clientIp);
+
         // Check if username already exists
         if (userRepository.existsByUsername(registerRequest.getUsername())) {
             throw new RuntimeException("Error: Username is already taken!");
@@ -66,14 +76,28 @@ public class AuthService {
         userRepository.save(user);
 
         // Auto-login after registration
-        return login(new LoginRequest(registerRequest.getUsername(), registerRequest.getPassword()));
+        return login(new LoginRequest(registerRequest.getUsername(), registerRequest.getPassword()), null);
     }
 
-    public AuthResponse login(LoginRequest loginRequest) {
-        Authentication authentication = authenticationManager.authenticate(
-                new UsernamePasswordAuthenticationToken(
-                        loginRequest.getUsername(),
-                        loginRequest.getPassword()));
+    public AuthResponse login(LoginRequest loginRequest, String clientIp) {
+        // Throttle before the password is hashed
+        loginAttemptThrottle.checkAndCount(loginRequest.getUsername(), clientIp);
+
+        Authentication authentication;
+        try {
+            authentication = authenticationManager.authenticate(
+                    new UsernamePasswordAuthenticationToken(
+                            loginRequest.getUsername(),
+                            loginRequest.getPassword()));
+        } catch (AuthenticationException e) {
+            // Hashing overload during the user lookup arrives wrapped by the provider
+            if (e.getCause() instanceof TooManyRequestsException tooManyRequests) {
+                throw tooManyRequests;
+            }
+            loginAttemptThrottle.recordFailure(loginRequest.getUsername());
+            throw e;
+        }
+        loginAttemptThrottle.recordSuccess(loginRequest.getUsername());
 
         SecurityContextHolder.getContext().setAuthentication(authentication);
 
@@ -88,36 +112,30 @@ public class AuthService {
 
         return new AuthResponse(
                 jwt,
-                refreshToken.getToken(),
+                refreshToken.getRawToken(),
                 userDetails.getId(),
                 userDetails.getUsername(),
                 userDetails.getEmail(),
                 roles);
     }
 
+    @Transactional(noRollbackFor = TokenRefreshException.class)
     public AuthResponse refreshToken(String requestRefreshToken) {
-        return refreshTokenService.findByToken(requestRefreshToken)
-                .map(refreshTokenService::verifyExpiration)
-                .map(RefreshToken::getUser)
-                .map(user -> {
-                    String token = jwtUtils.generateTokenFromUsername(user.getUsername());
-                    RefreshToken refreshToken = refreshTokenService.createRefreshToken(user.getId());
-                    List<String> roles = user.getRoles().stream()
-                            .map(Role::name)
-                            .collect(Collectors.toList());
-
-                    // System.out.println("Refresh token generated: " + refreshToken.getToken());
-
-                    return new AuthResponse(
-                            token,
-                            refreshToken.getToken(),
-                            user.getId(),
-                            user.getUsername(),
-                            user.getEmail(),
-                            roles);
-                })
-                .orElseThrow(() -> new TokenRefreshException(requestRefreshToken,
-                        "Refresh token is not in database!"));
+        RefreshToken refreshToken = refreshTokenService.rotate(requestRefreshToken);
+        User user = refreshToken.getUser();
+
+        String token = jwtUtils.generateJwtToken(UserDetailsImpl.build(user));
+        List<String> roles = user.getRoles().stream()
+                .map(Role::name)
+                .collect(Collectors.toList());
+
+        return new AuthResponse(
+                token,
+                refreshToken.getRawToken(),
+                user.getId(),
+                user.getUsername(),
+                user.getEmail(),
+                roles);
     }
 
     public void logout(String refreshToken) {
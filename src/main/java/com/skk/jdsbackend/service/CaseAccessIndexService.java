@@ -0,0 +1,87 @@
+package com.skk.jdsbackend.service;
+
+import com.skk.jdsbackend.entity.Case;
+import com.skk.jdsbackend.entity.CaseAccessRelation;
+import com.skk.jdsbackend.entity.CaseParticipant;
+import com.skk.jdsbackend.entity.UserCaseAccess;
+import com.skk.jdsbackend.repository.CaseRepository;
+import com.skk.jdsbackend.repository.UserCaseAccessRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Keeps the user_case_access index in step with case ownership, assignment and
+ * participants. Writes happen in the caller's transaction, so the index commits
+ * or rolls back together with the case change.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class CaseAccessIndexService {
+
+    private final UserCaseAccessRepository userCaseAccessRepository;
+    private final CaseRepository caseRepository;
+
+    /**
+     * Replaces the index rows of one case with the relations it has now.
+     * Unchanged rows are left alone.
+     */
+    @Transactional
+    public void syncCase(Case caseEntity) {
+        Set<UserCaseAccess> expected = new HashSet<>();
+        if (caseEntity.getCreatedByUser() != null) {
+            expected.add(new UserCaseAccess(caseEntity.getCreatedByUser().getId(), caseEntity.getId(),
+                    CaseAccessRelation.CREATOR));
+        }
+        if (caseEntity.getAssignedUser() != null) {
+            expected.add(new UserCaseAccess(caseEntity.getAssignedUser().getId(), caseEntity.getId(),
+                    CaseAccessRelation.ASSIGNEE));
+        }
+        for (CaseParticipant participant : caseEntity.getParticipants()) {
+            expected.add(new UserCaseAccess(participant.getUser().getId(), caseEntity.getId(),
+                    CaseAccessRelation.valueOf(participant.getRole().name())));
+        }
+
+        List<UserCaseAccess> existing = userCaseAccessRepository.findByCaseId(caseEntity.getId());
+        for (UserCaseAccess row : existing) {
+            if (!expected.remove(row)) {
+                userCaseAccessRepository.delete(row);
+            }
+        }
+        userCaseAccessRepository.saveAll(expected);
+    }
+
+    @Transactional
+    public void removeCase(Long caseId) {
+        userCaseAccessRepository.deleteByCaseIdInBulk(caseId);
+    }
+
+    /**
+     * Rebuilds the whole index from cases and participants in three set-based inserts.
+     */
+    @Transactional
+    public void rebuild() {
+        userCaseAccessRepository.deleteAllInBatch();
+        int rows = userCaseAccessRepository.backfillCreators()
+                + userCaseAccessRepository.backfillAssignees()
+                + userCaseAccessRepository.backfillParticipants();
+        log.info("Rebuilt case access index with {} row(s)", rows);
+    }
+
+    // Existing databases start with an empty index; fill it once on startup
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void backfillIfEmpty() {
+        if (userCaseAccessRepository.count() == 0 && caseRepository.count() > 0) {
+            rebuild();
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.skk.jdsbackend.service;
+
+import com.skk.jdsbackend.repository.CaseRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Repairs drift in the denormalized notes/documents/tasks counters on cases,
+ * e.g. after rows were inserted or removed outside the services.
+ * Works in id-range batches so each transaction stays short.
+ * Also runs once at startup, which fills in the counters on cases created
+ * before the columns existed (they start out at 0).
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class CaseCounterReconciliationJob {
+
+    private final CaseRepository caseRepository;
+
+    @Value("${app.counters.reconcile-batch-size:1000}")
+    private int batchSize;
+
+    @Value("${app.counters.reconcile-on-startup:true}")
+    private boolean reconcileOnStartup;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void reconcileAtStartup() {
+        if (reconcileOnStartup) {
+            reconcile();
+        }
+    }
+
+    @Scheduled(cron = "${app.counters.reconcile-cron:0 30 2 * * *}")
+    public void reconcileScheduled() {
+        reconcile();
+    }
+
+    public int reconcile() {
+        long maxId = caseRepository.findMaxIdIncludingDeleted();
+        int repaired = 0;
+        for (long fromId = 1; fromId <= maxId; fromId += batchSize) {
+            repaired += caseRepository.reconcileCounters(fromId, fromId + batchSize - 1);
+        }
+        if (repaired > 0) {
+            log.warn("Repaired counters on {} case(s)", repaired);
+        } else {
+            log.info("Case counters consistent (checked ids up to {})", maxId);
+        }
+        return repaired;
+    }
+}
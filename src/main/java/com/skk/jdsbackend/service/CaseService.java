@@ -2,25 +2,26 @@ package com.skk.jdsbackend.service;
 
 import com.skk.jdsbackend.dto.*;
 import com.skk.jdsbackend.entity.Case;
+import com.skk.jdsbackend.entity.CaseAccessRelation;
 import com.skk.jdsbackend.entity.CaseStatus;
 import com.skk.jdsbackend.entity.Client;
 import com.skk.jdsbackend.entity.User;
 import com.skk.jdsbackend.exception.ResourceNotFoundException;
 import com.skk.jdsbackend.repository.CaseRepository;
 import com.skk.jdsbackend.repository.ClientRepository;
-import com.skk.jdsbackend.repository.DocumentRepository;
-import com.skk.jdsbackend.repository.NoteRepository;
 import com.skk.jdsbackend.repository.UserRepository;
+import com.skk.jdsbackend.security.CaseSecurity;
 import com.skk.jdsbackend.entity.CaseParticipant;
 import com.skk.jdsbackend.entity.CaseParticipantRole;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.EnumSet;
 import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
 
@@ -28,13 +29,19 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 public class CaseService {
 
+    // "My cases" are the ones assigned to the user or shared with them; used by
+    // getMyCases and by mine=true on the paged listing
+    private static final Set<CaseAccessRelation> MY_CASE_RELATIONS = EnumSet.of(
+            CaseAccessRelation.ASSIGNEE, CaseAccessRelation.EDITOR, CaseAccessRelation.READ_ONLY);
+
     private final CaseRepository caseRepository;
     private final UserRepository userRepository;
     private final ClientRepository clientRepository;
-    private final NoteRepository noteRepository;
-    private final DocumentRepository documentRepository;
     private final ActivityService activityService;
     private final SequenceGeneratorService sequenceGeneratorService;
+    private final AnalyticsSnapshotService analyticsSnapshotService;
+    private final CaseSecurity caseSecurity;
+    private final CaseAccessIndexService caseAccessIndexService;
 
     @Transactional
     public CaseResponse createCase(CaseCreateRequest request, Long creatorId) {
@@ -81,6 +88,8 @@ public class CaseService {
         caseEntity.setLastModifiedByUser(creator);
 
         Case savedCase = caseRepository.save(caseEntity);
+        analyticsSnapshotService.caseChanged(null, savedCase);
+        caseAccessIndexService.syncCase(savedCase);
 
         // Log activity
         activityService.logActivity(
@@ -104,63 +113,80 @@ public class CaseService {
     public List<CaseResponse> getAllCases() {
         List<Case> cases = caseRepository.findAll();
 
-        // Batch load all counts in 2 queries instead of 2N queries
-        Map<Long, Long> noteCounts = noteRepository.countAllGroupedByCaseId().stream()
-                .collect(Collectors.toMap(row -> (Long) row[0], row -> (Long) row[1]));
-        Map<Long, Long> docCounts = documentRepository.countAllGroupedByCaseId().stream()
-                .collect(Collectors.toMap(row -> (Long) row[0], row -> (Long) row[1]));
+        return mapToResponses(cases);
+    }
 
-        return cases.stream()
-                .map(c -> mapToResponse(c, noteCounts, docCounts))
-                .collect(Collectors.toList());
+    /**
+     * Keyset-paginated listing ordered by most recently updated. Fetches one row
+     * more than requested to find out whether another page exists.
+     */
+    @Transactional(readOnly = true)
+    public CasePageResponse getCasesPage(CaseListFilter filter, Long currentUserId) {
+        int limit = filter.getLimit() != null ? filter.getLimit() : 50;
+        CaseCursor cursor = filter.getCursor() != null && !filter.getCursor().isBlank()
+                ? CaseCursor.decode(filter.getCursor())
+                : null;
+
+        List<Case> cases = caseRepository.findPageByKeyset(
+                filter.getStatus(),
+                filter.getPriority(),
+                filter.getAssignedUserId(),
+                filter.getClientId(),
+                filter.getDueFrom(),
+                filter.getDueTo(),
+                Boolean.TRUE.equals(filter.getMine()) ? currentUserId : null,
+                MY_CASE_RELATIONS,
+                cursor != null ? cursor.getUpdatedAt() : null,
+                cursor != null ? cursor.getId() : null,
+                PageRequest.of(0, limit + 1));
+
+        boolean hasMore = cases.size() > limit;
+        if (hasMore) {
+            cases = cases.subList(0, limit);
+        }
+
+        if (!cases.isEmpty()) {
+            // Initializes participants on the already-managed page entities in one query
+            caseRepository.findWithParticipantsByIdIn(cases.stream().map(Case::getId).toList());
+        }
+
+        List<CaseResponse> items = mapToResponses(cases);
+
+        String nextCursor = null;
+        if (hasMore) {
+            Case last = cases.get(cases.size() - 1);
+            nextCursor = new CaseCursor(last.getUpdatedAt(), last.getId()).encode();
+        }
+
+        return new CasePageResponse(items, nextCursor, hasMore);
     }
 
     @Transactional(readOnly = true)
     public List<CaseResponse> getCasesByStatus(CaseStatus status) {
         List<Case> cases = caseRepository.findByStatus(status);
 
-        Map<Long, Long> noteCounts = noteRepository.countAllGroupedByCaseId().stream()
-                .collect(Collectors.toMap(row -> (Long) row[0], row -> (Long) row[1]));
-        Map<Long, Long> docCounts = documentRepository.countAllGroupedByCaseId().stream()
-                .collect(Collectors.toMap(row -> (Long) row[0], row -> (Long) row[1]));
-
-        return cases.stream()
-                .map(c -> mapToResponse(c, noteCounts, docCounts))
-                .collect(Collectors.toList());
+        return mapToResponses(cases);
     }
 
     @Transactional(readOnly = true)
     public List<CaseResponse> getCasesByAssignedUser(Long userId) {
         List<Case> cases = caseRepository.findByAssignedUserId(userId);
 
-        Map<Long, Long> noteCounts = noteRepository.countAllGroupedByCaseId().stream()
-                .collect(Collectors.toMap(row -> (Long) row[0], row -> (Long) row[1]));
-        Map<Long, Long> docCounts = documentRepository.countAllGroupedByCaseId().stream()
-                .collect(Collectors.toMap(row -> (Long) row[0], row -> (Long) row[1]));
-
-        return cases.stream()
-                .map(c -> mapToResponse(c, noteCounts, docCounts))
-                .collect(Collectors.toList());
+        return mapToResponses(cases);
     }
 
     @Transactional(readOnly = true)
     public List<CaseResponse> searchCasesByTitle(String title) {
         List<Case> cases = caseRepository.findByTitleContainingIgnoreCase(title);
 
-        Map<Long, Long> noteCounts = noteRepository.countAllGroupedByCaseId().stream()
-                .collect(Collectors.toMap(row -> (Long) row[0], row -> (Long) row[1]));
-        Map<Long, Long> docCounts = documentRepository.countAllGroupedByCaseId().stream()
-                .collect(Collectors.toMap(row -> (Long) row[0], row -> (Long) row[1]));
-
-        return cases.stream()
-                .map(c -> mapToResponse(c, noteCounts, docCounts))
-                .collect(Collectors.toList());
+        return mapToResponses(cases);
     }
 
     @Transactional
     public CaseResponse updateCase(Long id, CaseUpdateRequest request, Long modifierId) {
         Case caseEntity = caseRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Case not found with id: " + id));
+        AnalyticsSnapshotService.CaseFacts before = AnalyticsSnapshotService.CaseFacts.of(caseEntity);
 
         if (request.getTitle() != null) {
             caseEntity.setTitle(request.getTitle());
@@ -216,29 +242,30 @@ public class CaseService {
         caseEntity.setLastModifiedByUser(modifier);
 
         Case updatedCase = caseRepository.save(caseEntity);
+        analyticsSnapshotService.caseChanged(before, updatedCase);
+        if (request.getAssignedUserId() != null || request.getParticipantIds() != null) {
+            caseAccessIndexService.syncCase(updatedCase);
+            caseSecurity.evictCase(id);
+        }
         return mapToResponse(updatedCase);
     }
 
     @Transactional
     public void deleteCase(Long id) {
-        if (!caseRepository.existsById(id)) {
-            throw new ResourceNotFoundException("Case not found with id: " + id);
-        }
-        caseRepository.deleteById(id);
+        Case caseEntity = caseRepository.findById(id)
+                .orElseThrow(() -> new ResourceNotFoundException("Case not found with id: " + id));
+        AnalyticsSnapshotService.CaseFacts before = AnalyticsSnapshotService.CaseFacts.of(caseEntity);
+        caseRepository.delete(caseEntity);
+        analyticsSnapshotService.caseChanged(before, null);
+        caseAccessIndexService.removeCase(id);
+        caseSecurity.evictCase(id);
     }
 
     @Transactional(readOnly = true)
     public List<CaseResponse> getCasesByParticipant(Long userId) {
         List<Case> cases = caseRepository.findByParticipantId(userId);
 
-        Map<Long, Long> noteCounts = noteRepository.countAllGroupedByCaseId().stream()
-                .collect(Collectors.toMap(row -> (Long) row[0], row -> (Long) row[1]));
-        Map<Long, Long> docCounts = documentRepository.countAllGroupedByCaseId().stream()
-                .collect(Collectors.toMap(row -> (Long) row[0], row -> (Long) row[1]));
-
-        return cases.stream()
-                .map(c -> mapToResponse(c, noteCounts, docCounts))
-                .collect(Collectors.toList());
+        return mapToResponses(cases);
     }
 
     @Transactional
@@ -251,6 +278,8 @@ public class CaseService {
 
         caseEntity.addParticipant(user, role);
         Case updatedCase = caseRepository.save(caseEntity);
+        caseAccessIndexService.syncCase(updatedCase);
+        caseSecurity.evictCase(caseId);
 
         return mapToResponse(updatedCase);
     }
@@ -264,70 +293,19 @@ public class CaseService {
 
         caseEntity.removeParticipant(user);
         Case updatedCase = caseRepository.save(caseEntity);
+        caseAccessIndexService.syncCase(updatedCase);
+        caseSecurity.evictCase(caseId);
 
         return mapToResponse(updatedCase);
     }
 
     @Transactional(readOnly = true)
     public List<CaseResponse> getMyCases(Long userId) {
-        List<Case> cases = caseRepository.findAllRelatedToUser(userId);
-        return cases.stream()
-                .map(this::mapToResponse)
-                .collect(Collectors.toList());
+        List<Case> cases = caseRepository.findByAccessIndex(userId, MY_CASE_RELATIONS);
+        return mapToResponses(cases);
     }
 
     private CaseResponse mapToResponse(Case caseEntity) {
-        CaseResponse response = new CaseResponse();
-        response.setId(caseEntity.getId());
-        response.setTitle(caseEntity.getTitle());
-        response.setDescription(caseEntity.getDescription());
-        response.setStatus(caseEntity.getStatus());
-        response.setPriority(caseEntity.getPriority());
-        response.setCreatedAt(caseEntity.getCreatedAt());
-        response.setUpdatedAt(caseEntity.getUpdatedAt());
-        response.setReferenceNumber(caseEntity.getReferenceNumber());
-        if (caseEntity.getCreatedByUser() != null) {
-            response.setCreatedByUser(mapToUserSummary(caseEntity.getCreatedByUser()));
-        }
-        if (caseEntity.getLastModifiedByUser() != null) {
-            response.setLastModifiedByUser(mapToUserSummary(caseEntity.getLastModifiedByUser()));
-        }
-
-        if (caseEntity.getAssignedUser() != null) {
-            UserSummaryDto userSummary = new UserSummaryDto();
-            userSummary.setId(caseEntity.getAssignedUser().getId());
-            userSummary.setUsername(caseEntity.getAssignedUser().getUsername());
-            userSummary.setEmail(caseEntity.getAssignedUser().getEmail());
-            response.setAssignedUser(userSummary);
-        }
-
-        if (caseEntity.getClient() != null) {
-            ClientSummaryDto clientSummary = new ClientSummaryDto();
-            clientSummary.setId(caseEntity.getClient().getId());
-            clientSummary.setFirstname(caseEntity.getClient().getFirstname());
-            clientSummary.setLastname(caseEntity.getClient().getLastname());
-            clientSummary.setEmail(caseEntity.getClient().getEmail());
-            clientSummary.setCompany(caseEntity.getClient().getCompany());
-            response.setClient(clientSummary);
-        }
-
-        // Map participants
-        if (caseEntity.getParticipants() != null && !caseEntity.getParticipants().isEmpty()) {
-            List<UserSummaryDto> participantsList = caseEntity.getParticipants().stream()
-                    .map(p -> mapToUserSummary(p.getUser()))
-                    .collect(Collectors.toList());
-            response.setParticipants(participantsList);
-        }
-
-        // Use efficient count queries for single entity lookups
-        response.setNotesCount((int) noteRepository.countByCaseEntityId(caseEntity.getId()));
-        response.setDocumentsCount((int) documentRepository.countByCaseEntityId(caseEntity.getId()));
-
-        return response;
-    }
-
-    // Overloaded version for batch operations - uses pre-loaded counts
-    private CaseResponse mapToResponse(Case caseEntity, Map<Long, Long> noteCounts, Map<Long, Long> docCounts) {
         CaseResponse response = new CaseResponse();
         response.setId(caseEntity.getId());
         response.setTitle(caseEntity.getTitle());
@@ -373,13 +351,21 @@ public class CaseService {
             response.setParticipants(participantsList);
         }
 
-        // Use pre-loaded counts from batch query
-        response.setNotesCount(noteCounts.getOrDefault(caseEntity.getId(), 0L).intValue());
-        response.setDocumentsCount(docCounts.getOrDefault(caseEntity.getId(), 0L).intValue());
+        // Maintained counters - no count queries on read
+        response.setNotesCount(caseEntity.getNotesCount());
+        response.setDocumentsCount(caseEntity.getDocumentsCount());
+        response.setTasksCount(caseEntity.getTasksCount());
 
         return response;
     }
 
+    // Batch mapping - counters are denormalized on Case, so no extra queries are needed
+    private List<CaseResponse> mapToResponses(List<Case> cases) {
+        return cases.stream()
+                .map(this::mapToResponse)
+                .collect(Collectors.toList());
+    }
+
     private UserSummaryDto mapToUserSummary(User user) {
         return new UserSummaryDto(
                 user.getId(),
@@ -6,6 +6,7 @@ import com.skk.jdsbackend.dto.ClientUpdateRequest;
 import com.skk.jdsbackend.dto.UserSummaryDto;
 import com.skk.jdsbackend.entity.Client;
 import com.skk.jdsbackend.entity.User;
+import com.skk.jdsbackend.exception.BadRequestException;
 import com.skk.jdsbackend.exception.ResourceNotFoundException;
 import com.skk.jdsbackend.repository.ClientRepository;
 import com.skk.jdsbackend.repository.UserRepository;
@@ -23,12 +24,13 @@ public class ClientService {
     private final ClientRepository clientRepository;
     private final UserRepository userRepository;
     private final SequenceGeneratorService sequenceGeneratorService;
+    private final AnalyticsSnapshotService analyticsSnapshotService;
 
     @Transactional
     public ClientResponse createClient(ClientCreateRequest request, Long creatorId) {
         // Check if email already exists
         if (clientRepository.existsByEmail(request.getEmail())) {
-            throw new IllegalArgumentException("Client with email " + request.getEmail() + " already exists");
+            throw new BadRequestException("Client with email " + request.getEmail() + " already exists");
         }
 
         Client client = new Client();
@@ -59,6 +61,7 @@ public class ClientService {
         client.setLastModifiedByUser(creator);
 
         Client savedClient = clientRepository.save(client);
+        analyticsSnapshotService.clientCountChanged(1);
 
         // Handle assigned user if provided
         if (request.getAssignedUserId() != null) {
@@ -108,7 +111,7 @@ public class ClientService {
             // Check if new email already exists for a different client
             if (!request.getEmail().equals(client.getEmail()) &&
                     clientRepository.existsByEmail(request.getEmail())) {
-                throw new IllegalArgumentException("Client with email " + request.getEmail() + " already exists");
+                throw new BadRequestException("Client with email " + request.getEmail() + " already exists");
             }
             client.setEmail(request.getEmail());
         }
@@ -166,6 +169,7 @@ public class ClientService {
         }
 
         clientRepository.deleteById(id);
+        analyticsSnapshotService.clientCountChanged(-1);
     }
 
     @Transactional
@@ -1,69 +1,204 @@
 package com.skk.jdsbackend.service;
 
+import com.skk.jdsbackend.dto.OcrJobResponse;
 import com.skk.jdsbackend.entity.Document;
+import com.skk.jdsbackend.entity.ExtractedText;
+import com.skk.jdsbackend.entity.OcrJob;
+import com.skk.jdsbackend.entity.OcrJobStatus;
+import com.skk.jdsbackend.exception.BadRequestException;
 import com.skk.jdsbackend.exception.ResourceNotFoundException;
+import com.skk.jdsbackend.ocr.OcrEngine;
+import com.skk.jdsbackend.ocr.PdfTextLayer;
 import com.skk.jdsbackend.repository.DocumentRepository;
+import com.skk.jdsbackend.repository.ExtractedTextRepository;
+import com.skk.jdsbackend.repository.OcrJobRepository;
+import com.skk.jdsbackend.storage.BlobStore;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
- * Service for OCR (Optical Character Recognition) functionality
- * This is a basic implementation. For production, integrate with:
- * - Tesseract OCR
- * - Google Cloud Vision API
- * - AWS Textract
- * - Azure Computer Vision
+ * OCR (Optical Character Recognition) as a background job pipeline.
+ *
+ * Submitting a document, explicitly or by uploading an image or PDF, inserts a
+ * QUEUED ocr_jobs row and hands it to a bounded worker pool once the transaction
+ * has committed, so the request returns straight away. A worker claims the row,
+ * asks the OcrEngine for the page count and recognises the pages in parallel on a
+ * second pool, counting finished pages on the row. No transaction is held while
+ * the engine runs.
+ *
+ * PDFs are read page by page through their text layer first, and only pages
+ * without extractable text are sent to the engine, while the remaining pages are
+ * still being read. Text lives in extracted_texts under the content checksum,
+ * not on the document row: a document's text is the row for its current checksum,
+ * and the same bytes, e.g. a re-upload or a restored version, are not extracted
+ * twice unless the OCR engine has changed since, as told by OcrEngine.id.
+ *
+ * The table is the queue: when the worker pool is full a job simply stays QUEUED.
+ * A scheduled sweep dispatches queued jobs and requeues RUNNING ones that stopped
+ * making progress, e.g. because the instance running them was restarted. The same
+ * sweep bumps the jobs this instance is running, so one slow page does not count
+ * as a stall. Should a live run be requeued anyway, its attempt number no longer
+ * matches the row and its updates are ignored.
+ *
+ * Extraction time, the share of pages read from the text layer and pages per
+ * source are published as document.text.* meters at /actuator/metrics, and each
+ * finished extraction is also logged with its own time and text-layer share.
  */
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class DocumentOCRService {
 
+    private static final List<OcrJobStatus> UNFINISHED = List.of(OcrJobStatus.QUEUED, OcrJobStatus.RUNNING);
+
     private final DocumentRepository documentRepository;
+    private final OcrJobRepository jobRepository;
+    private final ExtractedTextRepository extractedTextRepository;
+    private final BlobStore blobStore;
+    private final OcrEngine ocrEngine;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${app.ocr.workers:2}")
+    private int workers;
+
+    @Value("${app.ocr.queue-capacity:100}")
+    private int queueCapacity;
+
+    @Value("${app.ocr.page-workers:4}")
+    private int pageWorkers;
+
+    @Value("${app.ocr.stall-timeout-ms:900000}")
+    private long stallTimeoutMs;
+
+    @Value("${app.ocr.auto-enqueue:true}")
+    private boolean autoEnqueue;
+
+    // Fewer non-whitespace characters than this, e.g. just a page number, means a scanned page
+    @Value("${app.ocr.pdf-text-min-chars:16}")
+    private int pdfTextMinChars;
+
+    // Jobs handed to the pool and not yet finished, so the sweep does not queue them twice
+    private final Set<Long> dispatched = ConcurrentHashMap.newKeySet();
+
+    // Job id to attempt for the runs in progress here, kept alive by the sweep
+    private final Map<Long, Integer> running = new ConcurrentHashMap<>();
+
+    private ThreadPoolExecutor jobExecutor;
+    private ThreadPoolExecutor pageExecutor;
+
+    private Timer extractionTime;
+    private DistributionSummary ocrSkippedRatio;
+    private Counter textLayerPages;
+    private Counter ocrPages;
+    private Counter cachedPages;
+
+    @PostConstruct
+    void start() {
+        extractionTime = Timer.builder("document.text.extraction")
+                .description("Time to extract the text of one document, text layer and OCR together")
+                .register(meterRegistry);
+        ocrSkippedRatio = DistributionSummary.builder("document.text.ocr.skipped.ratio")
+                .description("Share of a document's pages read from the PDF text layer instead of OCR")
+                .register(meterRegistry);
+        textLayerPages = pagesCounter("text-layer");
+        ocrPages = pagesCounter("ocr");
+        cachedPages = pagesCounter("cache");
+
+        jobExecutor = newPool("ocr-job-", workers, new ArrayBlockingQueue<>(queueCapacity),
+                new ThreadPoolExecutor.AbortPolicy());
+        // With every page worker busy, the job's own thread recognises the page
+        pageExecutor = newPool("ocr-page-", pageWorkers, new SynchronousQueue<>(),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    @PreDestroy
+    void stopWorkers() {
+        // Interrupted jobs stay RUNNING and are requeued by the sweep once stalled
+        jobExecutor.shutdownNow();
+        pageExecutor.shutdownNow();
+    }
 
     /**
-     * Extract text from document using OCR
-     * This is a placeholder method. Implement actual OCR integration as needed.
+     * Queue OCR of a document's current content. Returns the unfinished job for the
+     * same content instead if there is one.
      */
     @Transactional
-    public String extractTextFromDocument(Long documentId) {
+    public OcrJobResponse submit(Long documentId, String username) {
         Document document = documentRepository.findById(documentId)
                 .orElseThrow(() -> new ResourceNotFoundException("Document not found with id: " + documentId));
 
-        try {
-            // Check file type - OCR typically works with images and PDFs
-            String fileType = document.getFileType().toLowerCase();
-            
-            if (!isOCRSupported(fileType)) {
-                log.warn("OCR not supported for file type: {}", fileType);
-                return "OCR not supported for this file type: " + fileType;
-            }
-
-            // Placeholder for actual OCR implementation
-            // In production, you would:
-            // 1. Read the file from document.getFilePath()
-            // 2. Send it to OCR service (Tesseract, Google Vision, etc.)
-            // 3. Get extracted text
-            // 4. Store in document.setOcrText()
-            
-            String extractedText = performOCR(document.getFilePath(), fileType);
-            
-            // Save extracted text to document
-            document.setOcrText(extractedText);
-            documentRepository.save(document);
-            
-            return extractedText;
+        // Check file type - OCR typically works with images and PDFs
+        if (!isOCRSupported(document.getFileType())) {
+            throw new BadRequestException("OCR not supported for file type: " + document.getFileType());
+        }
+        if (document.getChecksum() == null) {
+            throw new BadRequestException("Document content is still being migrated, please retry later");
+        }
+        return mapToResponse(enqueue(document, username));
+    }
 
-        } catch (Exception e) {
-            log.error("Error extracting text from document: {}", documentId, e);
-            throw new RuntimeException("Failed to extract text from document", e);
+    /**
+     * Hook for new document content (upload or new current version). Unless the
+     * text of the content is cached already, images and PDFs are queued for OCR
+     * unless app.ocr.auto-enqueue is off.
+     */
+    public void contentChanged(Document document) {
+        if (autoEnqueue && document.getChecksum() != null && isOCRSupported(document.getFileType())
+                && cachedText(document.getChecksum()) == null) {
+            enqueue(document, null);
         }
     }
 
+    @Transactional(readOnly = true)
+    public OcrJobResponse getJob(Long jobId) {
+        return jobRepository.findById(jobId)
+                .map(this::mapToResponse)
+                .orElseThrow(() -> new ResourceNotFoundException("OCR job not found with id: " + jobId));
+    }
+
+    @Transactional(readOnly = true)
+    public OcrJobResponse getLatestJob(Long documentId) {
+        return jobRepository.findFirstByDocumentIdOrderByIdDesc(documentId)
+                .map(this::mapToResponse)
+                .orElseThrow(() -> new ResourceNotFoundException("No OCR job for document id: " + documentId));
+    }
+
     /**
      * Get OCR text from document (if already extracted)
      */
@@ -72,58 +207,277 @@ public class DocumentOCRService {
         Document document = documentRepository.findById(documentId)
                 .orElseThrow(() -> new ResourceNotFoundException("Document not found with id: " + documentId));
         
-        if (document.getOcrText() == null || document.getOcrText().isEmpty()) {
+        String text = getText(document);
+        if (text == null || text.isEmpty()) {
             return "No OCR text available. Please extract text first.";
         }
         
-        return document.getOcrText();
+        return text;
+    }
+
+    /**
+     * Extracted text of a document's current content, or null if there is none yet.
+     */
+    public String getText(Document document) {
+        if (document.getChecksum() == null) {
+            return null;
+        }
+        return extractedTextRepository.findById(document.getChecksum())
+                .map(ExtractedText::getText)
+                .orElse(null);
+    }
+
+    @Scheduled(fixedDelayString = "${app.ocr.sweep-interval-ms:30000}",
+            initialDelayString = "${app.ocr.sweep-interval-ms:30000}")
+    public void sweep() {
+        LocalDateTime now = LocalDateTime.now();
+        running.forEach((jobId, attempt) -> jobRepository.heartbeat(jobId, attempt, now));
+        int requeued = jobRepository.requeueStalled(now.minus(Duration.ofMillis(stallTimeoutMs)), now);
+        if (requeued > 0) {
+            log.warn("Requeued {} stalled OCR job(s)", requeued);
+        }
+        int free = jobExecutor.getQueue().remainingCapacity();
+        if (free > 0) {
+            jobRepository.findQueuedIds(PageRequest.of(0, free)).forEach(this::dispatch);
+        }
     }
 
     /**
      * Check if OCR is supported for the file type
      */
     private boolean isOCRSupported(String fileType) {
+        if (fileType == null) {
+            return false;
+        }
+        fileType = fileType.toLowerCase();
         return fileType.contains("image") || 
                fileType.contains("pdf") || 
                fileType.contains("tiff") || 
                fileType.contains("tif");
     }
 
-    /**
-     * Perform OCR on the file
-     * This is a placeholder implementation.
-     * 
-     * For production, integrate with:
-     * 1. Tesseract OCR (open source): https://github.com/tesseract-ocr/tesseract
-     * 2. Google Cloud Vision API: https://cloud.google.com/vision
-     * 3. AWS Textract: https://aws.amazon.com/textract/
-     * 4. Azure Computer Vision: https://azure.microsoft.com/en-us/services/cognitive-services/computer-vision/
-     * 
-     * Example with Tesseract (requires dependency):
-     * <dependency>
-     *     <groupId>net.sourceforge.tess4j</groupId>
-     *     <artifactId>tess4j</artifactId>
-     *     <version>5.7.0</version>
-     * </dependency>
-     * 
-     * Tesseract tesseract = new Tesseract();
-     * tesseract.setDatapath("/path/to/tessdata");
-     * return tesseract.doOCR(new File(filePath));
-     */
-    private String performOCR(String filePath, String fileType) throws IOException {
-        // Placeholder implementation
-        log.info("Performing OCR on file: {} of type: {}", filePath, fileType);
-        
-        // For demonstration, return a placeholder message
-        // In production, this would be replaced with actual OCR logic
-        return "[OCR Placeholder] To enable OCR, integrate with Tesseract, Google Vision, AWS Textract, or Azure Computer Vision.\n\n" +
-               "File: " + filePath + "\n" +
-               "Type: " + fileType + "\n\n" +
-               "Instructions:\n" +
-               "1. Add OCR library dependency to pom.xml\n" +
-               "2. Configure OCR service credentials\n" +
-               "3. Implement actual OCR extraction logic in performOCR() method\n" +
-               "4. Process the file and extract text\n" +
-               "5. Return the extracted text";
+    private OcrJob enqueue(Document document, String username) {
+        Optional<OcrJob> pending = document.getChecksum() != null
+                ? jobRepository.findFirstByDocumentIdAndChecksumAndStatusIn(document.getId(),
+                        document.getChecksum(), UNFINISHED)
+                : Optional.empty();
+        if (pending.isPresent()) {
+            return pending.get();
+        }
+
+        OcrJob job = new OcrJob();
+        job.setDocumentId(document.getId());
+        job.setChecksum(document.getChecksum());
+        job.setRequestedBy(username);
+        OcrJob saved = jobRepository.save(job);
+
+        // Workers must not look for the row before it is committed
+        Long jobId = saved.getId();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    dispatch(jobId);
+                }
+            });
+        } else {
+            dispatch(jobId);
+        }
+        return saved;
+    }
+
+    private void dispatch(Long jobId) {
+        if (!dispatched.add(jobId)) {
+            return;
+        }
+        try {
+            jobExecutor.execute(() -> run(jobId));
+        } catch (RejectedExecutionException e) {
+            // Pool is full; the sweep picks the job up later
+            dispatched.remove(jobId);
+            log.debug("OCR queue full, job {} stays queued", jobId);
+        }
+    }
+
+    private void run(Long jobId) {
+        try {
+            OcrJob job = jobRepository.findById(jobId).orElse(null);
+            if (job == null || job.getStatus() != OcrJobStatus.QUEUED) {
+                return;
+            }
+            int attempt = job.getAttempt() + 1;
+            if (jobRepository.claim(jobId, job.getAttempt(), LocalDateTime.now()) == 0) {
+                return;
+            }
+            running.put(jobId, attempt);
+            try {
+                recognize(job, attempt);
+                jobRepository.finish(jobId, attempt, OcrJobStatus.COMPLETED, null, LocalDateTime.now());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                log.info("OCR job {} interrupted, it will be requeued", jobId);
+            } catch (Exception e) {
+                log.error("Error extracting text in OCR job: {}", jobId, e);
+                String error = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+                jobRepository.finish(jobId, attempt, OcrJobStatus.FAILED, error, LocalDateTime.now());
+            } finally {
+                running.remove(jobId);
+            }
+        } finally {
+            dispatched.remove(jobId);
+        }
+    }
+
+    private void recognize(OcrJob job, int attempt) throws Exception {
+        Long jobId = job.getId();
+        Document document = documentRepository.findById(job.getDocumentId())
+                .orElseThrow(() -> new ResourceNotFoundException(
+                        "Document not found with id: " + job.getDocumentId()));
+
+        // Jobs queued before a legacy file was migrated pick up its checksum now
+        String checksum = job.getChecksum() != null ? job.getChecksum() : document.getChecksum();
+        if (checksum == null) {
+            throw new IllegalStateException("Document content is still being migrated, please retry later");
+        }
+
+        ExtractedText extracted = cachedText(checksum);
+        if (extracted != null) {
+            cachedPages.increment(extracted.getPageCount());
+        } else {
+            long start = System.nanoTime();
+            // The blob the job was submitted for, even if the document has moved on since
+            extracted = extract(jobId, attempt, blobStore.resource(BlobStore.keyOf(checksum)),
+                    document.getFileType());
+            long elapsed = System.nanoTime() - start;
+            extractionTime.record(elapsed, TimeUnit.NANOSECONDS);
+            double skipped = extracted.getPageCount() > 0
+                    ? (double) extracted.getTextLayerPages() / extracted.getPageCount() : 0;
+            if (extracted.getPageCount() > 0) {
+                ocrSkippedRatio.record(skipped);
+            }
+            log.info("OCR job {} extracted {} page(s) of document {} in {} ms, {} from the text layer ({}%)",
+                    jobId, extracted.getPageCount(), document.getId(), TimeUnit.NANOSECONDS.toMillis(elapsed),
+                    extracted.getTextLayerPages(), Math.round(skipped * 100));
+            extracted.setChecksum(checksum);
+            if (extracted.getTextLayerPages() < extracted.getPageCount()) {
+                extracted.setEngine(ocrEngine.id());
+            }
+            try {
+                extractedTextRepository.saveAndFlush(extracted);
+            } catch (DataIntegrityViolationException e) {
+                // Another job extracted the same content first
+                log.debug("Text of {} cached concurrently", checksum);
+            }
+        }
+        jobRepository.recordPages(jobId, attempt, extracted.getPageCount(), extracted.getTextLayerPages(),
+                LocalDateTime.now());
+    }
+
+    // Text of the content unless it was read by an engine other than the current one
+    private ExtractedText cachedText(String checksum) {
+        return extractedTextRepository.findById(checksum)
+                .filter(text -> text.getEngine() == null || text.getEngine().equals(ocrEngine.id()))
+                .orElse(null);
+    }
+
+    // Text layer first for PDFs; each page without one is handed to the OCR pool as soon as it is found
+    private ExtractedText extract(Long jobId, int attempt, Resource content, String fileType) throws Exception {
+
+        List<Future<String>> results = new ArrayList<>();
+        int fromTextLayer = 0;
+        try {
+            PdfTextLayer layer = fileType.toLowerCase().contains("pdf") ? openTextLayer(content, jobId) : null;
+            if (layer != null) {
+                try (layer) {
+                    int pages = layer.pageCount();
+                    jobRepository.setPagesTotal(jobId, attempt, pages, LocalDateTime.now());
+                    for (int page = 0; page < pages; page++) {
+                        String text = layer.pageText(page);
+                        if (PdfTextLayer.hasText(text, pdfTextMinChars)) {
+                            results.add(CompletableFuture.completedFuture(text.strip()));
+                            fromTextLayer++;
+                        } else {
+                            results.add(recognizeLater(jobId, attempt, content, fileType, page));
+                        }
+                    }
+                }
+            } else {
+                int pages = ocrEngine.pageCount(content, fileType);
+                jobRepository.setPagesTotal(jobId, attempt, pages, LocalDateTime.now());
+                for (int page = 0; page < pages; page++) {
+                    results.add(recognizeLater(jobId, attempt, content, fileType, page));
+                }
+            }
+
+            StringBuilder text = new StringBuilder();
+            for (Future<String> result : results) {
+                if (!text.isEmpty()) {
+                    text.append("\n\n");
+                }
+                text.append(result.get());
+            }
+            textLayerPages.increment(fromTextLayer);
+            ocrPages.increment(results.size() - fromTextLayer);
+            return new ExtractedText(null, text.toString(), results.size(), fromTextLayer, null, null);
+        } catch (Exception e) {
+            results.forEach(result -> result.cancel(true));
+            if (e instanceof ExecutionException && e.getCause() instanceof Exception cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private PdfTextLayer openTextLayer(Resource content, Long jobId) {
+        try {
+            return PdfTextLayer.open(content);
+        } catch (IOException e) {
+            // Damaged or encrypted; the OCR engine may still cope with it
+            log.warn("No readable text layer in OCR job {}, using OCR for every page: {}", jobId, e.getMessage());
+            return null;
+        }
+    }
+
+    private Future<String> recognizeLater(Long jobId, int attempt, Resource content, String fileType, int page) {
+        return pageExecutor.submit(() -> {
+            String text = ocrEngine.recognizePage(content, fileType, page);
+            jobRepository.pageCompleted(jobId, attempt, LocalDateTime.now());
+            return text;
+        });
+    }
+
+    private OcrJobResponse mapToResponse(OcrJob job) {
+        return OcrJobResponse.builder()
+                .id(job.getId())
+                .documentId(job.getDocumentId())
+                .status(job.getStatus())
+                .pagesTotal(job.getPagesTotal())
+                .pagesCompleted(job.getPagesCompleted())
+                .textLayerPages(job.getTextLayerPages())
+                .error(job.getError())
+                .requestedBy(job.getRequestedBy())
+                .createdAt(job.getCreatedAt())
+                .startedAt(job.getStartedAt())
+                .finishedAt(job.getFinishedAt())
+                .build();
+    }
+
+    private Counter pagesCounter(String source) {
+        return Counter.builder("document.text.pages")
+                .description("Pages whose text was extracted, by where it came from")
+                .tag("source", source)
+                .register(meterRegistry);
+    }
+
+    private static ThreadPoolExecutor newPool(String prefix, int size, BlockingQueue<Runnable> queue,
+                                              RejectedExecutionHandler rejection) {
+        AtomicInteger threadCount = new AtomicInteger();
+        return new ThreadPoolExecutor(size, size, 0L, TimeUnit.MILLISECONDS, queue,
+                runnable -> {
+                    Thread thread = new Thread(runnable, prefix + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                rejection);
     }
 }
@@ -1,29 +1,28 @@
 package com.skk.jdsbackend.service;
 
 import com.skk.jdsbackend.dto.DocumentResponse;
+import com.skk.jdsbackend.dto.DocumentSummaryDto;
 import com.skk.jdsbackend.entity.Case;
 import com.skk.jdsbackend.entity.Document;
+import com.skk.jdsbackend.exception.BadRequestException;
 import com.skk.jdsbackend.exception.ResourceNotFoundException;
 import com.skk.jdsbackend.repository.CaseRepository;
 import com.skk.jdsbackend.repository.DocumentRepository;
+import com.skk.jdsbackend.storage.BlobStore;
+import com.skk.jdsbackend.storage.ContentTypeSniffer;
+import com.skk.jdsbackend.storage.FileDownload;
+import com.skk.jdsbackend.storage.StoredFile;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.core.io.Resource;
-import org.springframework.core.io.UrlResource;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.util.StringUtils;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
-import java.net.MalformedURLException;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
-import java.nio.file.StandardCopyOption;
+import java.io.InputStream;
 import java.util.List;
-import java.util.UUID;
-import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
@@ -32,93 +31,132 @@ public class DocumentService {
     private final DocumentRepository documentRepository;
     private final CaseRepository caseRepository;
     private final ActivityService activityService;
+    private final DocumentOCRService ocrService;
 
-    @Value("${file.upload-dir:uploads}")
-    private String uploadDir;
+    private final BlobStore blobStore;
+    private final TransactionTemplate transactionTemplate;
 
-    @Transactional
-    public DocumentResponse uploadDocument(Long caseId, MultipartFile file) {
-        Case caseEntity = caseRepository.findById(caseId)
-                .orElseThrow(() -> new ResourceNotFoundException("Case not found with id: " + caseId));
+    @Value("${file.max-upload-bytes:104857600}")
+    private long maxUploadBytes;
 
-        String originalFileName = StringUtils.cleanPath(file.getOriginalFilename());
-        String fileExtension = "";
-        if (originalFileName.contains(".")) {
-            fileExtension = originalFileName.substring(originalFileName.lastIndexOf("."));
+    public DocumentResponse uploadDocument(Long caseId, MultipartFile file) {
+        try (InputStream in = file.getInputStream()) {
+            return storeDocument(caseId, file.getOriginalFilename(), file.getContentType(), in);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to store file: " + file.getOriginalFilename(), e);
         }
+    }
 
-        // Generate unique filename
-        String uniqueFileName = UUID.randomUUID().toString() + fileExtension;
-
+    /**
+     * Stores a raw request body as a new document. Unlike the multipart path the
+     * bytes are written straight to the upload directory without a temp copy.
+     */
+    public DocumentResponse uploadDocumentStream(Long caseId, String fileName, String contentType, InputStream in) {
         try {
-            // Create upload directory if it doesn't exist
-            Path uploadPath = Paths.get(uploadDir);
-            if (!Files.exists(uploadPath)) {
-                Files.createDirectories(uploadPath);
-            }
-
-            // Save file
-            Path filePath = uploadPath.resolve(uniqueFileName);
-            Files.copy(file.getInputStream(), filePath, StandardCopyOption.REPLACE_EXISTING);
-
-            // Create document entity
-            Document document = new Document();
-            document.setFileName(originalFileName);
-            document.setFilePath(filePath.toString());
-            document.setFileType(file.getContentType());
-            document.setFileSize(file.getSize());
-            document.setCaseEntity(caseEntity);
+            return storeDocument(caseId, fileName, contentType, in);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to store file: " + fileName, e);
+        }
+    }
 
-            Document savedDocument = documentRepository.save(document);
+    // The body is drained with no transaction open, so a slow client does not hold a
+    // pooled connection; the row is written in a short transaction afterwards
+    private DocumentResponse storeDocument(Long caseId, String fileName, String declaredType, InputStream in)
+            throws IOException {
+        if (!caseRepository.existsById(caseId)) {
+            throw new ResourceNotFoundException("Case not found with id: " + caseId);
+        }
+        if (!StringUtils.hasText(fileName)) {
+            throw new BadRequestException("File name is required");
+        }
+        String originalFileName = StringUtils.cleanPath(fileName);
 
-            // Log activity
-            activityService.logActivity(
-                    "document_uploaded",
-                    "DOCUMENT",
-                    savedDocument.getId(),
-                    caseId,
-                    String.format("Uploaded document: %s (%.2f KB)", originalFileName, file.getSize() / 1024.0));
+        StoredFile stored = blobStore.store(in, maxUploadBytes);
+        try {
+            return transactionTemplate.execute(status -> {
+                Case caseEntity = caseRepository.findById(caseId)
+                        .orElseThrow(() -> new ResourceNotFoundException("Case not found with id: " + caseId));
+                return createDocument(caseEntity, originalFileName, declaredType, stored);
+            });
+        } catch (RuntimeException e) {
+            // No document took over the reference
+            blobStore.release(stored.sha256());
+            throw e;
+        }
+    }
 
-            return mapToResponse(savedDocument);
+    /**
+     * Creates a document around a blob that is already in the store; the document
+     * takes over the caller's reference. Used when an upload session is committed.
+     */
+    @Transactional
+    public DocumentResponse createDocumentFromBlob(Long caseId, String fileName, String declaredType,
+                                                   StoredFile stored) {
+        Case caseEntity = caseRepository.findById(caseId)
+                .orElseThrow(() -> new ResourceNotFoundException("Case not found with id: " + caseId));
+        return createDocument(caseEntity, StringUtils.cleanPath(fileName), declaredType, stored);
+    }
 
-        } catch (IOException e) {
-            throw new RuntimeException("Failed to store file: " + originalFileName, e);
-        }
+    private DocumentResponse createDocument(Case caseEntity, String originalFileName, String declaredType,
+                                            StoredFile stored) {
+        Long caseId = caseEntity.getId();
+
+        // Create document entity
+        Document document = new Document();
+        document.setFileName(originalFileName);
+        document.setFilePath(stored.key());
+        document.setFileType(ContentTypeSniffer.resolve(stored.sniffedContentType(), declaredType, originalFileName));
+        document.setFileSize(stored.size());
+        document.setChecksum(stored.sha256());
+        document.setCaseEntity(caseEntity);
+
+        Document savedDocument = documentRepository.save(document);
+        caseRepository.adjustDocumentsCount(caseId, 1);
+        ocrService.contentChanged(savedDocument);
+
+        // Log activity
+        activityService.logActivity(
+                "document_uploaded",
+                "DOCUMENT",
+                savedDocument.getId(),
+                caseId,
+                String.format("Uploaded document: %s (%.2f KB)", originalFileName, stored.size() / 1024.0));
+
+        return mapToResponse(savedDocument);
     }
 
+    /**
+     * The extracted text is only looked up with includeText, as it can be far larger
+     * than the rest of the response.
+     */
     @Transactional(readOnly = true)
-    public DocumentResponse getDocumentById(Long id) {
+    public DocumentResponse getDocumentById(Long id, boolean includeText) {
         Document document = documentRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Document not found with id: " + id));
-        return mapToResponse(document);
+        DocumentResponse response = mapToResponse(document);
+        if (includeText) {
+            response.setOcrText(ocrService.getText(document));
+        }
+        return response;
     }
 
     @Transactional(readOnly = true)
-    public List<DocumentResponse> getDocumentsByCaseId(Long caseId) {
+    public List<DocumentSummaryDto> getDocumentsByCaseId(Long caseId) {
         Case caseEntity = caseRepository.findById(caseId)
                 .orElseThrow(() -> new ResourceNotFoundException("Case not found with id: " + caseId));
-        return documentRepository.findByCaseEntityOrderByUploadedAtDesc(caseEntity).stream()
-                .map(this::mapToResponse)
-                .collect(Collectors.toList());
+        return documentRepository.findSummariesByCaseEntity(caseEntity);
     }
 
+    /**
+     * Resolves the current file of a document with its HTTP validators in one lookup.
+     */
     @Transactional(readOnly = true)
-    public Resource downloadDocument(Long id) {
+    public FileDownload downloadDocument(Long id) {
         Document document = documentRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Document not found with id: " + id));
 
-        try {
-            Path filePath = Paths.get(document.getFilePath());
-            Resource resource = new UrlResource(filePath.toUri());
-
-            if (resource.exists() && resource.isReadable()) {
-                return resource;
-            } else {
-                throw new RuntimeException("File not found or not readable: " + document.getFileName());
-            }
-        } catch (MalformedURLException e) {
-            throw new RuntimeException("File not found: " + document.getFileName(), e);
-        }
+        return blobStore.download(document.getFilePath(), document.getFileName(), document.getFileType(),
+                "v" + document.getCurrentVersion(), document.getChecksum(), document.getUpdatedAt());
     }
 
     @Transactional
@@ -130,12 +168,18 @@ public class DocumentService {
         Long caseId = document.getCaseEntity() != null ? document.getCaseEntity().getId() : null;
 
         try {
-            // Delete file from filesystem
-            Path filePath = Paths.get(document.getFilePath());
-            Files.deleteIfExists(filePath);
+            // Drop the blob references held by the document and its versions. A file
+            // stored before the blob store is owned by the row and deleted directly.
+            if (!blobStore.release(document.getChecksum())) {
+                blobStore.deleteLegacy(document.getFilePath());
+            }
+            document.getVersions().forEach(version -> blobStore.release(version.getBlobChecksum()));
 
             // Delete document record
             documentRepository.deleteById(id);
+            if (caseId != null) {
+                caseRepository.adjustDocumentsCount(caseId, -1);
+            }
 
             // Log activity
             activityService.logActivity(
@@ -159,7 +203,6 @@ public class DocumentService {
         response.setCaseId(document.getCaseEntity().getId());
         response.setCurrentVersion(document.getCurrentVersion());
         response.setDescription(document.getDescription());
-        response.setOcrText(document.getOcrText());
         response.setIsTemplateBased(document.getIsTemplateBased());
 
         if (document.getTemplate() != null) {
@@ -201,16 +244,23 @@ public class DocumentService {
         try {
             // Download the saved document from ONLYOFFICE callback URL
             java.net.URI uri = new java.net.URI(callback.getUrl());
-            java.io.InputStream inputStream = uri.toURL().openStream();
 
-            // Save the updated file
-            Path filePath = Paths.get(document.getFilePath());
-            Files.copy(inputStream, filePath, StandardCopyOption.REPLACE_EXISTING);
-            inputStream.close();
+            // Save the updated file as a new blob; earlier content stays with any version that references it
+            StoredFile stored;
+            try (InputStream inputStream = uri.toURL().openStream()) {
+                stored = blobStore.store(inputStream, maxUploadBytes);
+            }
+            if (!blobStore.release(document.getChecksum())) {
+                blobStore.deleteLegacy(document.getFilePath());
+            }
 
             // Update document version
+            document.setFilePath(stored.key());
+            document.setFileSize(stored.size());
+            document.setChecksum(stored.sha256());
             document.setCurrentVersion(document.getCurrentVersion() + 1);
             documentRepository.save(document);
+            ocrService.contentChanged(document);
 
             // Log activity
             activityService.logActivity(
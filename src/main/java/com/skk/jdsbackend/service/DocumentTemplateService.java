@@ -7,23 +7,20 @@ import com.skk.jdsbackend.entity.User;
 import com.skk.jdsbackend.exception.ResourceNotFoundException;
 import com.skk.jdsbackend.repository.DocumentTemplateRepository;
 import com.skk.jdsbackend.repository.UserRepository;
+import com.skk.jdsbackend.storage.BlobStore;
+import com.skk.jdsbackend.storage.ContentTypeSniffer;
+import com.skk.jdsbackend.storage.FileDownload;
+import com.skk.jdsbackend.storage.StoredFile;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.core.io.Resource;
-import org.springframework.core.io.UrlResource;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.StringUtils;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
-import java.net.MalformedURLException;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
-import java.nio.file.StandardCopyOption;
+import java.io.InputStream;
 import java.util.List;
-import java.util.UUID;
 import java.util.stream.Collectors;
 
 @Service
@@ -33,8 +30,10 @@ public class DocumentTemplateService {
     private final DocumentTemplateRepository templateRepository;
     private final UserRepository userRepository;
 
-    @Value("${file.template-dir:templates}")
-    private String templateDir;
+    private final BlobStore blobStore;
+
+    @Value("${file.max-upload-bytes:104857600}")
+    private long maxUploadBytes;
 
     /**
      * Create a new document template
@@ -46,27 +45,17 @@ public class DocumentTemplateService {
                 .orElseThrow(() -> new ResourceNotFoundException("User not found: " + username));
 
         String originalFileName = StringUtils.cleanPath(file.getOriginalFilename());
-        String fileExtension = "";
-        if (originalFileName.contains(".")) {
-            fileExtension = originalFileName.substring(originalFileName.lastIndexOf("."));
-        }
-
-        String uniqueFileName = UUID.randomUUID().toString() + fileExtension;
-
-        try {
-            Path templatePath = Paths.get(templateDir);
-            if (!Files.exists(templatePath)) {
-                Files.createDirectories(templatePath);
-            }
 
-            Path filePath = templatePath.resolve(uniqueFileName);
-            Files.copy(file.getInputStream(), filePath, StandardCopyOption.REPLACE_EXISTING);
+        try (InputStream in = file.getInputStream()) {
+            StoredFile stored = blobStore.store(in, maxUploadBytes);
 
             DocumentTemplate template = new DocumentTemplate();
             template.setName(request.getName());
             template.setDescription(request.getDescription());
-            template.setFilePath(filePath.toString());
-            template.setFileType(file.getContentType());
+            template.setFilePath(stored.key());
+            template.setFileType(ContentTypeSniffer.resolve(stored.sniffedContentType(), file.getContentType(),
+                    originalFileName));
+            template.setChecksum(stored.sha256());
             template.setCategory(request.getCategory());
             template.setCreatedBy(user);
             template.setIsActive(true);
@@ -113,22 +102,13 @@ public class DocumentTemplateService {
      * Download template file
      */
     @Transactional(readOnly = true)
-    public Resource downloadTemplate(Long id) {
+    public FileDownload downloadTemplate(Long id) {
         DocumentTemplate template = templateRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Template not found with id: " + id));
 
-        try {
-            Path filePath = Paths.get(template.getFilePath());
-            Resource resource = new UrlResource(filePath.toUri());
-
-            if (resource.exists() && resource.isReadable()) {
-                return resource;
-            } else {
-                throw new RuntimeException("Template file not found or not readable: " + template.getName());
-            }
-        } catch (MalformedURLException e) {
-            throw new RuntimeException("Template file not found: " + template.getName(), e);
-        }
+        // Template files are never replaced, so the row id is enough as a version marker
+        return blobStore.download(template.getFilePath(), template.getName(), template.getFileType(),
+                "t" + template.getId(), template.getChecksum(), template.getUpdatedAt());
     }
 
     /**
@@ -173,8 +153,10 @@ public class DocumentTemplateService {
                 .orElseThrow(() -> new ResourceNotFoundException("Template not found with id: " + id));
 
         try {
-            Path filePath = Paths.get(template.getFilePath());
-            Files.deleteIfExists(filePath);
+            // Templates stored before the blob store own their file outright
+            if (!blobStore.release(template.getChecksum())) {
+                blobStore.deleteLegacy(template.getFilePath());
+            }
             templateRepository.deleteById(id);
         } catch (IOException e) {
             throw new RuntimeException("Failed to delete template file: " + template.getName(), e);
@@ -4,27 +4,27 @@ import com.skk.jdsbackend.dto.DocumentVersionResponse;
 import com.skk.jdsbackend.entity.Document;
 import com.skk.jdsbackend.entity.DocumentVersion;
 import com.skk.jdsbackend.entity.User;
+import com.skk.jdsbackend.entity.VersionStorageMode;
+import com.skk.jdsbackend.exception.BadRequestException;
 import com.skk.jdsbackend.exception.ResourceNotFoundException;
 import com.skk.jdsbackend.repository.DocumentRepository;
 import com.skk.jdsbackend.repository.DocumentVersionRepository;
 import com.skk.jdsbackend.repository.UserRepository;
+import com.skk.jdsbackend.storage.BlobStore;
+import com.skk.jdsbackend.storage.ContentTypeSniffer;
+import com.skk.jdsbackend.storage.FileDownload;
+import com.skk.jdsbackend.storage.StoredFile;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.core.io.Resource;
-import org.springframework.core.io.UrlResource;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.util.StringUtils;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
-import java.net.MalformedURLException;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
-import java.nio.file.StandardCopyOption;
+import java.io.InputStream;
 import java.util.List;
-import java.util.UUID;
 import java.util.stream.Collectors;
 
 @Service
@@ -35,71 +35,111 @@ public class DocumentVersionService {
     private final DocumentRepository documentRepository;
     private final UserRepository userRepository;
 
-    @Value("${file.upload-dir:uploads}")
-    private String uploadDir;
+    private final BlobStore blobStore;
+    private final VersionDeltaService deltaService;
+    private final DocumentOCRService ocrService;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${file.max-upload-bytes:104857600}")
+    private long maxUploadBytes;
 
     /**
      * Create a new version of an existing document
      */
-    @Transactional
     public DocumentVersionResponse createNewVersion(Long documentId, MultipartFile file, 
                                                     String changeDescription, String username) {
-        Document document = documentRepository.findById(documentId)
-                .orElseThrow(() -> new ResourceNotFoundException("Document not found with id: " + documentId));
-
-        User user = userRepository.findByUsername(username)
-                .orElseThrow(() -> new ResourceNotFoundException("User not found: " + username));
-
-        // Get the latest version number
-        Integer newVersionNumber = document.getCurrentVersion() + 1;
+        try (InputStream in = file.getInputStream()) {
+            return storeVersion(documentId, file.getOriginalFilename(), file.getContentType(), in,
+                    changeDescription, username);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to store new version: " + file.getOriginalFilename(), e);
+        }
+    }
 
-        String originalFileName = StringUtils.cleanPath(file.getOriginalFilename());
-        String fileExtension = "";
-        if (originalFileName.contains(".")) {
-            fileExtension = originalFileName.substring(originalFileName.lastIndexOf("."));
+    /**
+     * Create a new version from a raw request body, written to disk in one pass
+     */
+    public DocumentVersionResponse createNewVersionStream(Long documentId, String fileName, String contentType,
+                                                          InputStream in, String changeDescription,
+                                                          String username) {
+        try {
+            return storeVersion(documentId, fileName, contentType, in, changeDescription, username);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to store new version: " + fileName, e);
         }
+    }
 
-        // Generate unique filename for the new version
-        String uniqueFileName = UUID.randomUUID().toString() + fileExtension;
+    private DocumentVersionResponse storeVersion(Long documentId, String fileName, String declaredType,
+                                                 InputStream in, String changeDescription, String username)
+            throws IOException {
+        if (!documentRepository.existsById(documentId)) {
+            throw new ResourceNotFoundException("Document not found with id: " + documentId);
+        }
+        if (!StringUtils.hasText(fileName)) {
+            throw new BadRequestException("File name is required");
+        }
 
+        // Save the new version file with no transaction open, then add the row in a short one
+        StoredFile stored = blobStore.store(in, maxUploadBytes);
         try {
-            Path uploadPath = Paths.get(uploadDir);
-            if (!Files.exists(uploadPath)) {
-                Files.createDirectories(uploadPath);
-            }
-
-            // Save the new version file
-            Path filePath = uploadPath.resolve(uniqueFileName);
-            Files.copy(file.getInputStream(), filePath, StandardCopyOption.REPLACE_EXISTING);
-
-            // Create version record
-            DocumentVersion version = new DocumentVersion();
-            version.setDocument(document);
-            version.setVersionNumber(newVersionNumber);
-            version.setFileName(originalFileName);
-            version.setFilePath(filePath.toString());
-            version.setFileType(file.getContentType());
-            version.setFileSize(file.getSize());
-            version.setUploadedBy(user);
-            version.setChangeDescription(changeDescription);
-
-            DocumentVersion savedVersion = versionRepository.save(version);
-
-            // Update the document with the new version info
-            document.setCurrentVersion(newVersionNumber);
-            document.setFileName(originalFileName);
-            document.setFilePath(filePath.toString());
-            document.setFileType(file.getContentType());
-            document.setFileSize(file.getSize());
-            documentRepository.save(document);
+            return transactionTemplate.execute(status ->
+                    createVersionFromBlob(documentId, fileName, declaredType, stored, changeDescription, username));
+        } catch (RuntimeException e) {
+            // No version took over the reference
+            blobStore.release(stored.sha256());
+            throw e;
+        }
+    }
 
-            return mapToResponse(savedVersion);
+    /**
+     * Adds a version around a blob that is already in the store; the version takes
+     * over the caller's reference. Used when an upload session is committed.
+     */
+    @Transactional
+    public DocumentVersionResponse createVersionFromBlob(Long documentId, String fileName, String declaredType,
+                                                         StoredFile stored, String changeDescription,
+                                                         String username) {
+        Document document = documentRepository.findById(documentId)
+                .orElseThrow(() -> new ResourceNotFoundException("Document not found with id: " + documentId));
+
+        User user = userRepository.findByUsername(username)
+                .orElseThrow(() -> new ResourceNotFoundException("User not found: " + username));
 
+        try {
+            return createVersion(document, user, StringUtils.cleanPath(fileName), declaredType, stored,
+                    changeDescription);
         } catch (IOException e) {
-            throw new RuntimeException("Failed to store new version: " + originalFileName, e);
+            throw new RuntimeException("Failed to store new version: " + fileName, e);
         }
     }
 
+    private DocumentVersionResponse createVersion(Document document, User user, String originalFileName,
+                                                  String declaredType, StoredFile stored,
+                                                  String changeDescription) throws IOException {
+        // Get the latest version number
+        Integer newVersionNumber = document.getCurrentVersion() + 1;
+
+        // Create version record
+        DocumentVersion version = new DocumentVersion();
+        version.setDocument(document);
+        version.setVersionNumber(newVersionNumber);
+        version.setFileName(originalFileName);
+        version.setFilePath(stored.key());
+        version.setFileType(ContentTypeSniffer.resolve(stored.sniffedContentType(), declaredType, originalFileName));
+        version.setFileSize(stored.size());
+        version.setChecksum(stored.sha256());
+        version.setUploadedBy(user);
+        version.setChangeDescription(changeDescription);
+
+        DocumentVersion savedVersion = versionRepository.save(version);
+
+        // Update the document with the new version info
+        pointDocumentAt(document, version);
+        documentRepository.save(document);
+
+        return mapToResponse(savedVersion);
+    }
+
     /**
      * Get all versions of a document
      */
@@ -127,22 +167,16 @@ public class DocumentVersionService {
      * Download a specific version of a document
      */
     @Transactional(readOnly = true)
-    public Resource downloadVersion(Long versionId) {
+    public FileDownload downloadVersion(Long versionId) {
         DocumentVersion version = versionRepository.findById(versionId)
                 .orElseThrow(() -> new ResourceNotFoundException("Document version not found with id: " + versionId));
 
-        try {
-            Path filePath = Paths.get(version.getFilePath());
-            Resource resource = new UrlResource(filePath.toUri());
-
-            if (resource.exists() && resource.isReadable()) {
-                return resource;
-            } else {
-                throw new RuntimeException("File not found or not readable: " + version.getFileName());
-            }
-        } catch (MalformedURLException e) {
-            throw new RuntimeException("File not found: " + version.getFileName(), e);
+        if (version.getStorageMode() == VersionStorageMode.DELTA) {
+            return FileDownload.of(deltaService.resource(version), version.getFileName(), version.getFileType(),
+                    "v" + version.getVersionNumber(), version.getChecksum(), version.getCreatedAt());
         }
+        return blobStore.download(version.getFilePath(), version.getFileName(), version.getFileType(),
+                "v" + version.getVersionNumber(), version.getChecksum(), version.getCreatedAt());
     }
 
     /**
@@ -164,39 +198,28 @@ public class DocumentVersionService {
         Integer newVersionNumber = document.getCurrentVersion() + 1;
 
         try {
-            // Copy the file from the version to restore
-            Path sourcePath = Paths.get(versionToRestore.getFilePath());
-            String fileExtension = "";
-            if (versionToRestore.getFileName().contains(".")) {
-                fileExtension = versionToRestore.getFileName()
-                        .substring(versionToRestore.getFileName().lastIndexOf("."));
-            }
-            
-            String uniqueFileName = UUID.randomUUID().toString() + fileExtension;
-            Path uploadPath = Paths.get(uploadDir);
-            Path targetPath = uploadPath.resolve(uniqueFileName);
-
-            Files.copy(sourcePath, targetPath, StandardCopyOption.REPLACE_EXISTING);
+            // Point at the restored version's blob instead of copying it; a legacy file is imported once
+            // and a delta-encoded version is rebuilt into a full blob, since the newest version is always full
+            StoredFile blob = versionToRestore.getStorageMode() == VersionStorageMode.DELTA
+                    ? deltaService.materialize(versionToRestore)
+                    : blobStore.retain(versionToRestore.getChecksum(), versionToRestore.getFilePath());
 
             // Create new version record
             DocumentVersion newVersion = new DocumentVersion();
             newVersion.setDocument(document);
             newVersion.setVersionNumber(newVersionNumber);
             newVersion.setFileName(versionToRestore.getFileName());
-            newVersion.setFilePath(targetPath.toString());
+            newVersion.setFilePath(blob.key());
             newVersion.setFileType(versionToRestore.getFileType());
-            newVersion.setFileSize(versionToRestore.getFileSize());
+            newVersion.setFileSize(blob.size());
+            newVersion.setChecksum(blob.sha256());
             newVersion.setUploadedBy(user);
             newVersion.setChangeDescription("Restored from version " + versionNumber);
 
             DocumentVersion savedVersion = versionRepository.save(newVersion);
 
             // Update document with restored version info
-            document.setCurrentVersion(newVersionNumber);
-            document.setFileName(versionToRestore.getFileName());
-            document.setFilePath(targetPath.toString());
-            document.setFileType(versionToRestore.getFileType());
-            document.setFileSize(versionToRestore.getFileSize());
+            pointDocumentAt(document, newVersion);
             documentRepository.save(document);
 
             return mapToResponse(savedVersion);
@@ -206,6 +229,20 @@ public class DocumentVersionService {
         }
     }
 
+    // The document holds its own reference on the blob of its current version
+    private void pointDocumentAt(Document document, DocumentVersion version) throws IOException {
+        blobStore.retain(version.getChecksum(), version.getFilePath());
+        blobStore.release(document.getChecksum());
+
+        document.setCurrentVersion(version.getVersionNumber());
+        document.setFileName(version.getFileName());
+        document.setFilePath(version.getFilePath());
+        document.setFileType(version.getFileType());
+        document.setFileSize(version.getFileSize());
+        document.setChecksum(version.getChecksum());
+        ocrService.contentChanged(document);
+    }
+
     private DocumentVersionResponse mapToResponse(DocumentVersion version) {
         return DocumentVersionResponse.builder()
                 .id(version.getId())
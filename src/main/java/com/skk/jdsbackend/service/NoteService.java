@@ -41,6 +41,7 @@ public class NoteService {
         note.setAuthor(currentUser);
 
         Note savedNote = noteRepository.save(note);
+        caseRepository.adjustNotesCount(caseEntity.getId(), 1);
         return mapToResponse(savedNote);
     }
 
@@ -103,7 +104,9 @@ public class NoteService {
             throw new RuntimeException("You can only delete your own notes");
         }
 
+        Long caseId = note.getCaseEntity().getId();
         noteRepository.deleteById(id);
+        caseRepository.adjustNotesCount(caseId, -1);
     }
 
     private User getCurrentUser() {
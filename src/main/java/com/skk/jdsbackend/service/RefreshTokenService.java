@@ -5,21 +5,39 @@ import com.skk.jdsbackend.entity.User;
 import com.skk.jdsbackend.exception.TokenRefreshException;
 import com.skk.jdsbackend.repository.RefreshTokenRepository;
 import com.skk.jdsbackend.repository.UserRepository;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
 import java.time.Instant;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.List;
 import java.util.Optional;
-import java.util.UUID;
 
 @Service
+@Slf4j
 public class RefreshTokenService {
 
+    private static final SecureRandom secureRandom = new SecureRandom();
+
     @Value("${app.jwt.refresh-expiration-ms}")
     private Long refreshTokenDurationMs;
 
+    // Live refresh tokens kept per user; the oldest are dropped beyond this
+    @Value("${app.jwt.refresh-max-per-user:5}")
+    private int maxTokensPerUser;
+
+    @Value("${app.jwt.refresh-purge-batch-size:1000}")
+    private int purgeBatchSize;
+
     @Autowired
     private RefreshTokenRepository refreshTokenRepository;
 
@@ -27,30 +45,51 @@ public class RefreshTokenService {
     private UserRepository userRepository;
 
     public Optional<RefreshToken> findByToken(String token) {
-        return refreshTokenRepository.findByToken(token);
+        return refreshTokenRepository.findByToken(hash(token));
     }
 
+    /**
+     * Issues a new refresh token. The returned entity carries the raw token in
+     * rawToken; only its hash is persisted.
+     */
+    @Transactional
     public RefreshToken createRefreshToken(Long userId) {
         RefreshToken refreshToken = new RefreshToken();
 
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new RuntimeException("User not found"));
 
+        byte[] tokenBytes = new byte[32];
+        secureRandom.nextBytes(tokenBytes);
+        String rawToken = Base64.getUrlEncoder().withoutPadding().encodeToString(tokenBytes);
+
         refreshToken.setUser(user);
         refreshToken.setExpiryDate(Instant.now().plusMillis(refreshTokenDurationMs));
-        refreshToken.setToken(UUID.randomUUID().toString());
+        refreshToken.setToken(hash(rawToken));
 
         refreshToken = refreshTokenRepository.save(refreshToken);
+        refreshToken.setRawToken(rawToken);
+
+        enforcePerUserLimit(userId);
         return refreshToken;
     }
 
-    public RefreshToken verifyExpiration(RefreshToken token) {
-        if (token.getExpiryDate().compareTo(Instant.now()) < 0) {
-            refreshTokenRepository.delete(token);
-            throw new TokenRefreshException(token.getToken(),
-                    "Refresh token has expired. Please make a new login request");
+    /**
+     * Exchanges a presented refresh token for a new one. The presented token is
+     * deleted, so each refresh token can be used once.
+     */
+    @Transactional(noRollbackFor = TokenRefreshException.class)
+    public RefreshToken rotate(String presentedToken) {
+        RefreshToken current = findByToken(presentedToken)
+                .orElseThrow(() -> new TokenRefreshException("Refresh token is not in database!"));
+        if (current.getExpiryDate().compareTo(Instant.now()) < 0) {
+            refreshTokenRepository.delete(current);
+            throw new TokenRefreshException("Refresh token has expired. Please make a new login request");
         }
-        return token;
+
+        Long userId = current.getUser().getId();
+        refreshTokenRepository.delete(current);
+        return createRefreshToken(userId);
     }
 
     @Transactional
@@ -62,6 +101,41 @@ public class RefreshTokenService {
 
     @Transactional
     public void deleteByToken(String token) {
-        refreshTokenRepository.deleteByToken(token);
+        refreshTokenRepository.deleteByToken(hash(token));
+    }
+
+    /**
+     * Removes expired tokens in batches so the table stays proportional to
+     * active sessions. Each batch commits on its own.
+     */
+    @Scheduled(fixedDelayString = "${app.jwt.refresh-purge-interval-ms:3600000}")
+    public int purgeExpired() {
+        Instant now = Instant.now();
+        int purged = 0;
+        int deleted;
+        do {
+            deleted = refreshTokenRepository.deleteExpiredBatch(now, purgeBatchSize);
+            purged += deleted;
+        } while (deleted == purgeBatchSize);
+        if (purged > 0) {
+            log.info("Purged {} expired refresh token(s)", purged);
+        }
+        return purged;
+    }
+
+    private void enforcePerUserLimit(Long userId) {
+        List<RefreshToken> tokens = refreshTokenRepository.findByUserIdOrderByCreatedAtDesc(userId);
+        if (tokens.size() > maxTokensPerUser) {
+            refreshTokenRepository.deleteAll(tokens.subList(maxTokensPerUser, tokens.size()));
+        }
+    }
+
+    static String hash(String token) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
     }
 }
@@ -0,0 +1,166 @@
+package com.skk.jdsbackend.service;
+
+import com.skk.jdsbackend.repository.DocumentRepository;
+import com.skk.jdsbackend.repository.DocumentTemplateRepository;
+import com.skk.jdsbackend.repository.DocumentVersionRepository;
+import com.skk.jdsbackend.repository.FilePathRepository;
+import com.skk.jdsbackend.storage.BlobStore;
+import com.skk.jdsbackend.storage.DocumentStorage;
+import com.skk.jdsbackend.storage.StoredFile;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Moves stored files onto the sharded DocumentStorage layout while the
+ * application keeps serving them.
+ *
+ * Two kinds of leftovers are handled: blob files still in the flat blobs/
+ * directory, which the storage moves into shards, and rows whose filePath is a
+ * plain path rather than a storage key. Rows pointing at a blob only get their
+ * filePath rewritten. Rows pointing at a file from before the blob store have it
+ * imported as a blob, and the old file is deleted once no row refers to it.
+ *
+ * Each row is migrated in its own short transaction with a conditional update, so
+ * a row replaced or deleted meanwhile is simply skipped. Reads work throughout
+ * because BlobStore resolves both forms. Once a pass finds nothing to do the job
+ * stays idle until restart.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class StorageMigrationJob {
+
+    private final DocumentStorage storage;
+    private final BlobStore blobStore;
+    private final DocumentRepository documentRepository;
+    private final DocumentVersionRepository versionRepository;
+    private final DocumentTemplateRepository templateRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${app.storage.migration.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.storage.migration.batch-size:200}")
+    private int batchSize;
+
+    private volatile boolean finished;
+
+    @Scheduled(fixedDelayString = "${app.storage.migration.interval-ms:60000}",
+            initialDelayString = "${app.storage.migration.initial-delay-ms:30000}")
+    public void migrateScheduled() {
+        if (enabled && !finished) {
+            finished = migrate() == 0;
+        }
+    }
+
+    /**
+     * Runs one full pass.
+     *
+     * @return how many files and rows were migrated
+     */
+    public int migrate() {
+        int files = 0;
+        try {
+            int moved;
+            while ((moved = storage.migrateLayout(batchSize)) > 0) {
+                files += moved;
+            }
+        } catch (IOException e) {
+            log.error("Moving blob files into shards failed", e);
+        }
+
+        int rows = 0;
+        for (Map.Entry<String, FilePathRepository> table : tables().entrySet()) {
+            rows += migrateRows(table.getKey(), table.getValue());
+        }
+
+        if (files > 0 || rows > 0) {
+            log.info("Storage migration moved {} blob file(s) into shards and rewrote {} file path(s)", files, rows);
+        }
+        return files + rows;
+    }
+
+    private Map<String, FilePathRepository> tables() {
+        return Map.of("documents", documentRepository,
+                "document_versions", versionRepository,
+                "document_templates", templateRepository);
+    }
+
+    private int migrateRows(String table, FilePathRepository repository) {
+        int migrated = 0;
+        long afterId = 0;
+        List<Object[]> batch;
+        while (!(batch = repository.findLegacyFilePaths(afterId, PageRequest.of(0, batchSize))).isEmpty()) {
+            for (Object[] row : batch) {
+                Long id = (Long) row[0];
+                String oldPath = (String) row[1];
+                try {
+                    if (migrateRow(repository, id, oldPath)) {
+                        migrated++;
+                        deleteIfUnreferenced(oldPath);
+                    }
+                } catch (RuntimeException e) {
+                    log.warn("Could not migrate file of {} row {} ({})", table, id, oldPath, e);
+                }
+            }
+            afterId = (Long) batch.get(batch.size() - 1)[0];
+        }
+        return migrated;
+    }
+
+    private boolean migrateRow(FilePathRepository repository, Long id, String oldPath) {
+        Boolean migrated = transactionTemplate.execute(status -> {
+            String key = BlobStore.keyFor(oldPath);
+            String checksum;
+            if (key != null) {
+                checksum = key.substring(BlobStore.BLOB_PREFIX.length());
+            } else {
+                // The row takes its own reference on the imported blob
+                StoredFile blob = importLegacyFile(oldPath);
+                key = blob.key();
+                checksum = blob.sha256();
+            }
+            if (repository.relocateFile(id, oldPath, key, checksum) == 0) {
+                status.setRollbackOnly();
+                return false;
+            }
+            return true;
+        });
+        return Boolean.TRUE.equals(migrated);
+    }
+
+    private StoredFile importLegacyFile(String path) {
+        try (InputStream in = blobStore.open(path)) {
+            return blobStore.store(in, 0);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to import " + path, e);
+        }
+    }
+
+    // A legacy file may be shared by a document and its latest version
+    private void deleteIfUnreferenced(String oldPath) {
+        if (BlobStore.keyFor(oldPath) != null) {
+            return;
+        }
+        for (FilePathRepository repository : tables().values()) {
+            if (repository.existsByFilePath(oldPath)) {
+                return;
+            }
+        }
+        try {
+            blobStore.deleteLegacy(oldPath);
+        } catch (IOException e) {
+            log.warn("Could not remove migrated file {}", oldPath, e);
+        }
+    }
+}
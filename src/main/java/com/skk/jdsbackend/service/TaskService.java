@@ -22,6 +22,7 @@ public class TaskService {
     private final CaseRepository caseRepository;
     private final UserRepository userRepository;
     private final ActivityService activityService;
+    private final AnalyticsSnapshotService analyticsSnapshotService;
 
     @Transactional
     public TaskResponse createTask(TaskCreateRequest request) {
@@ -42,6 +43,8 @@ public class TaskService {
         task.setAssignedUser(assignedUser);
 
         Task savedTask = taskRepository.save(task);
+        caseRepository.adjustTasksCount(caseEntity.getId(), 1);
+        analyticsSnapshotService.taskStatusChanged(null, savedTask.getStatus());
         
         // Log activity
         activityService.logActivity(
@@ -104,6 +107,7 @@ public class TaskService {
     public TaskResponse updateTask(Long id, TaskUpdateRequest request) {
         Task task = taskRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Task not found with id: " + id));
+        TaskStatus previousStatus = task.getStatus();
 
         if (request.getTitle() != null) {
             task.setTitle(request.getTitle());
@@ -128,6 +132,7 @@ public class TaskService {
         }
 
         Task updatedTask = taskRepository.save(task);
+        analyticsSnapshotService.taskStatusChanged(previousStatus, updatedTask.getStatus());
         
         // Log activity
         activityService.logActivity(
@@ -147,9 +152,14 @@ public class TaskService {
                 .orElseThrow(() -> new ResourceNotFoundException("Task not found with id: " + id));
         
         String taskTitle = task.getTitle();
+        TaskStatus taskStatus = task.getStatus();
         Long caseId = task.getCaseEntity() != null ? task.getCaseEntity().getId() : null;
         
         taskRepository.deleteById(id);
+        if (caseId != null) {
+            caseRepository.adjustTasksCount(caseId, -1);
+        }
+        analyticsSnapshotService.taskStatusChanged(taskStatus, null);
         
         // Log activity
         activityService.logActivity(
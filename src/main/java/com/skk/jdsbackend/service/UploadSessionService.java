@@ -0,0 +1,398 @@
+package com.skk.jdsbackend.service;
+
+import com.skk.jdsbackend.dto.DocumentResponse;
+import com.skk.jdsbackend.dto.DocumentVersionResponse;
+import com.skk.jdsbackend.dto.UploadSessionCreateRequest;
+import com.skk.jdsbackend.dto.UploadSessionResponse;
+import com.skk.jdsbackend.entity.UploadSession;
+import com.skk.jdsbackend.entity.UploadSessionStatus;
+import com.skk.jdsbackend.entity.User;
+import com.skk.jdsbackend.exception.BadRequestException;
+import com.skk.jdsbackend.exception.PayloadTooLargeException;
+import com.skk.jdsbackend.exception.ResourceNotFoundException;
+import com.skk.jdsbackend.repository.CaseRepository;
+import com.skk.jdsbackend.repository.DocumentRepository;
+import com.skk.jdsbackend.repository.UploadSessionRepository;
+import com.skk.jdsbackend.repository.UserRepository;
+import com.skk.jdsbackend.storage.BlobStore;
+import com.skk.jdsbackend.storage.StoredFile;
+import com.skk.jdsbackend.storage.StreamingFileWriter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Resumable chunked uploads.
+ *
+ * A session preallocates its file under upload-dir/sessions. Each chunk is written
+ * from the request body straight to its offset in the session file with positional
+ * writes, so chunks can arrive in any order and in parallel and are never copied
+ * again. A chunk of the wrong size leaves its range unmarked; resending overwrites
+ * it. On commit the file is hashed once and renamed into the blob store.
+ *
+ * Ordering between instances goes through the session row. A chunk write counts
+ * itself in activeWrites under the row lock before touching the file and marks
+ * the chunk received in a second short transaction afterwards; no transaction is
+ * open while the body is read. Commit switches the status to COMMITTING under the
+ * row lock, and only when no write is active, so no chunk can land in the file
+ * once it is moved. A write that has not finished within
+ * app.upload.session.write-timeout-ms gives up before writing further, and commit
+ * then ignores its count, so a crashed instance cannot block a session forever.
+ * Sessions idle for longer than app.upload.session.ttl-ms are deleted by a
+ * scheduled sweep.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class UploadSessionService {
+
+    // Keeps the bitset within the received_chunks column
+    static final int MAX_CHUNKS = 65536;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    public record CommitResult(DocumentResponse document, DocumentVersionResponse version) {
+    }
+
+    private final UploadSessionRepository sessionRepository;
+    private final CaseRepository caseRepository;
+    private final DocumentRepository documentRepository;
+    private final UserRepository userRepository;
+    private final DocumentService documentService;
+    private final DocumentVersionService versionService;
+    private final BlobStore blobStore;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${file.upload-dir:uploads}")
+    private String uploadDir;
+
+    @Value("${app.upload.session.chunk-size:8388608}")
+    private int chunkSize;
+
+    @Value("${app.upload.session.max-bytes:5368709120}")
+    private long maxBytes;
+
+    @Value("${app.upload.session.ttl-ms:86400000}")
+    private long ttlMillis;
+
+    @Value("${app.upload.session.write-timeout-ms:3600000}")
+    private long writeTimeoutMillis;
+
+    public UploadSessionResponse createSession(UploadSessionCreateRequest request, String username) {
+        if ((request.getCaseId() == null) == (request.getDocumentId() == null)) {
+            throw new BadRequestException("Exactly one of caseId or documentId is required");
+        }
+        if (request.getTotalSize() > maxBytes) {
+            throw new PayloadTooLargeException("Upload exceeds the maximum size of " + maxBytes + " bytes");
+        }
+        long chunks = (request.getTotalSize() + chunkSize - 1) / chunkSize;
+        if (chunks > MAX_CHUNKS) {
+            throw new BadRequestException("Upload needs more than " + MAX_CHUNKS + " chunks");
+        }
+
+        return transactionTemplate.execute(status -> {
+            if (request.getCaseId() != null && !caseRepository.existsById(request.getCaseId())) {
+                throw new ResourceNotFoundException("Case not found with id: " + request.getCaseId());
+            }
+            if (request.getDocumentId() != null && !documentRepository.existsById(request.getDocumentId())) {
+                throw new ResourceNotFoundException("Document not found with id: " + request.getDocumentId());
+            }
+            User user = userRepository.findByUsername(username)
+                    .orElseThrow(() -> new ResourceNotFoundException("User not found: " + username));
+
+            UploadSession session = new UploadSession();
+            session.setId(UUID.randomUUID().toString());
+            session.setCaseId(request.getCaseId());
+            session.setDocumentId(request.getDocumentId());
+            session.setFileName(request.getFileName());
+            session.setContentType(request.getContentType());
+            session.setChangeDescription(request.getChangeDescription());
+            session.setTotalSize(request.getTotalSize());
+            session.setChunkSize(chunkSize);
+            session.setChunkCount((int) chunks);
+            session.setReceivedChunks(new byte[(int) ((chunks + 7) / 8)]);
+            session.setCreatedBy(user);
+
+            // Sparse on most filesystems; blocks are allocated as chunks land
+            try {
+                Files.createDirectories(sessionDirectory());
+                try (RandomAccessFile file = new RandomAccessFile(dataPath(session.getId()).toFile(), "rw")) {
+                    file.setLength(session.getTotalSize());
+                }
+            } catch (IOException e) {
+                throw new RuntimeException("Failed to allocate upload session file", e);
+            }
+            return mapToResponse(sessionRepository.save(session));
+        });
+    }
+
+    public UploadSessionResponse getSession(String id, String username) {
+        return transactionTemplate.execute(status -> mapToResponse(loadOwned(id, username, false)));
+    }
+
+    /**
+     * Whether the session adds a version to an existing document; used to check
+     * roles before commit. Unknown sessions are left for commit to report.
+     */
+    public boolean isVersionUpload(String id) {
+        return sessionRepository.findById(id).map(session -> session.getDocumentId() != null).orElse(false);
+    }
+
+    /**
+     * Streams one chunk into place. Re-sending a chunk overwrites it, so a client
+     * that lost the response can simply retry.
+     */
+    public UploadSessionResponse writeChunk(String id, int index, InputStream body, String username) {
+        // Taken before the row is stamped, so this write's deadline never outlasts what commit allows for
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(writeTimeoutMillis);
+        UploadSession session = transactionTemplate.execute(status -> {
+            UploadSession locked = loadOwned(id, username, true);
+            if (locked.getStatus() != UploadSessionStatus.UPLOADING) {
+                throw new BadRequestException("Upload is being committed");
+            }
+            if (index < 0 || index >= locked.getChunkCount()) {
+                throw new BadRequestException("Chunk index must be between 0 and " + (locked.getChunkCount() - 1));
+            }
+            locked.setActiveWrites(locked.getActiveWrites() + 1);
+            return sessionRepository.save(locked);
+        });
+
+        long expected = session.chunkLength(index);
+        boolean written = false;
+        try {
+            long received = writeAt(dataPath(id), (long) index * session.getChunkSize(), expected, body, deadline);
+            if (received != expected) {
+                throw new BadRequestException("Chunk " + index + " must be " + expected + " bytes, got " + received);
+            }
+            written = true;
+        } catch (NoSuchFileException e) {
+            throw new ResourceNotFoundException("Upload session not found: " + id);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to write chunk " + index + " of upload " + id, e);
+        } finally {
+            if (!written) {
+                try {
+                    finishWrite(id, index, false);
+                } catch (RuntimeException e) {
+                    log.warn("Could not release chunk write on upload session {}", id, e);
+                }
+            }
+        }
+        return finishWrite(id, index, true);
+    }
+
+    /**
+     * Turns a complete session into a document or a new version and deletes it.
+     */
+    public CommitResult commit(String id, String username) {
+        LocalDateTime writesStaleBefore = LocalDateTime.now().minus(Duration.ofMillis(writeTimeoutMillis));
+        UploadSession session = transactionTemplate.execute(status -> {
+            UploadSession loaded = loadOwned(id, username, true);
+            if (loaded.getStatus() != UploadSessionStatus.UPLOADING) {
+                throw new BadRequestException("Upload is already being committed");
+            }
+            if (loaded.getActiveWrites() > 0 && loaded.getUpdatedAt().isAfter(writesStaleBefore)) {
+                throw new BadRequestException("Chunks are still being written, please retry the commit shortly");
+            }
+            if (!loaded.isComplete()) {
+                throw new BadRequestException("Upload is incomplete: " + loaded.getReceivedCount()
+                        + " of " + loaded.getChunkCount() + " chunks received");
+            }
+            // Checked before the file is moved, since a failure afterwards would lose the upload
+            if (loaded.getCaseId() != null && !caseRepository.existsById(loaded.getCaseId())) {
+                throw new ResourceNotFoundException("Case not found with id: " + loaded.getCaseId());
+            }
+            if (loaded.getDocumentId() != null && !documentRepository.existsById(loaded.getDocumentId())) {
+                throw new ResourceNotFoundException("Document not found with id: " + loaded.getDocumentId());
+            }
+            loaded.setStatus(UploadSessionStatus.COMMITTING);
+            return sessionRepository.save(loaded);
+        });
+
+        // Hashing and moving a large file holds no row lock and no connection
+        Path committing = commitPath(id);
+        StoredFile blob;
+        try {
+            StreamingFileWriter.moveIntoPlace(dataPath(id), committing);
+            blob = blobStore.storeExisting(committing);
+        } catch (NoSuchFileException e) {
+            restore(id, committing);
+            throw new ResourceNotFoundException("Upload session not found: " + id);
+        } catch (IOException | RuntimeException e) {
+            restore(id, committing);
+            throw e instanceof RuntimeException runtime ? runtime
+                    : new RuntimeException("Failed to store upload " + id, e);
+        }
+
+        try {
+            return transactionTemplate.execute(status -> {
+                // Gone if the session expired in the meantime
+                sessionRepository.delete(loadOwned(id, username, true));
+                if (session.getCaseId() != null) {
+                    return new CommitResult(documentService.createDocumentFromBlob(session.getCaseId(),
+                            session.getFileName(), session.getContentType(), blob), null);
+                }
+                return new CommitResult(null, versionService.createVersionFromBlob(session.getDocumentId(),
+                        session.getFileName(), session.getContentType(), blob, session.getChangeDescription(),
+                        username));
+            });
+        } catch (RuntimeException e) {
+            // Nothing took over the reference; the sweep collects the blob after its grace period
+            blobStore.release(blob.sha256());
+            throw e;
+        }
+    }
+
+    public void abort(String id, String username) {
+        transactionTemplate.executeWithoutResult(status -> {
+            UploadSession session = loadOwned(id, username, true);
+            if (session.getStatus() != UploadSessionStatus.UPLOADING) {
+                throw new BadRequestException("Upload is being committed");
+            }
+            sessionRepository.delete(session);
+        });
+        StreamingFileWriter.deleteQuietly(dataPath(id));
+    }
+
+    @Scheduled(fixedDelayString = "${app.upload.session.cleanup-interval-ms:900000}",
+            initialDelayString = "${app.upload.session.cleanup-interval-ms:900000}")
+    public void deleteAbandonedSessions() {
+        LocalDateTime cutoff = LocalDateTime.now().minus(Duration.ofMillis(ttlMillis));
+        List<String> idle = sessionRepository.findIdleSince(cutoff, PageRequest.of(0, 500));
+        int deleted = 0;
+        for (String id : idle) {
+            Integer rows = transactionTemplate.execute(status -> sessionRepository.deleteIfIdleSince(id, cutoff));
+            if (rows != null && rows > 0) {
+                StreamingFileWriter.deleteQuietly(dataPath(id));
+                // Left behind by a commit that died before storing its file
+                StreamingFileWriter.deleteQuietly(commitPath(id));
+                deleted++;
+            }
+        }
+        if (deleted > 0) {
+            log.info("Deleted {} abandoned upload session(s)", deleted);
+        }
+    }
+
+    private UploadSession loadOwned(String id, String username, boolean forUpdate) {
+        UploadSession session = (forUpdate ? sessionRepository.findByIdForUpdate(id) : sessionRepository.findById(id))
+                .orElseThrow(() -> new ResourceNotFoundException("Upload session not found: " + id));
+        // Another user's session is reported as missing rather than forbidden
+        if (!session.getCreatedBy().getUsername().equals(username)) {
+            throw new ResourceNotFoundException("Upload session not found: " + id);
+        }
+        return session;
+    }
+
+    // Ends a chunk write started by writeChunk, marking the chunk if it arrived whole
+    private UploadSessionResponse finishWrite(String id, int index, boolean received) {
+        return transactionTemplate.execute(status -> {
+            UploadSession locked = sessionRepository.findByIdForUpdate(id)
+                    .orElseThrow(() -> new ResourceNotFoundException("Upload session not found: " + id));
+            locked.setActiveWrites(Math.max(0, locked.getActiveWrites() - 1));
+            if (received) {
+                locked.markReceived(index);
+            }
+            return mapToResponse(sessionRepository.save(locked));
+        });
+    }
+
+    // Writes at most length bytes of the body at position but reads one buffer past
+    // them, so an oversized chunk is detected without reading it all
+    private static long writeAt(Path target, long position, long length, InputStream body, long deadline)
+            throws IOException {
+        long received = 0;
+        try (FileChannel channel = FileChannel.open(target, StandardOpenOption.WRITE)) {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int read;
+            while (received <= length && (read = body.read(buffer)) != -1) {
+                int keep = (int) Math.min(read, Math.max(0, length - received));
+                if (keep > 0) {
+                    // Past this, commit may already have moved the file
+                    if (System.nanoTime() - deadline > 0) {
+                        throw new BadRequestException("Chunk took too long to arrive, please send it again");
+                    }
+                    ByteBuffer source = ByteBuffer.wrap(buffer, 0, keep);
+                    long at = position + received;
+                    while (source.hasRemaining()) {
+                        at += channel.write(source, at);
+                    }
+                }
+                received += read;
+            }
+            channel.force(false);
+        }
+        return received;
+    }
+
+    // Puts the session file back after a failed commit and reopens the session, so
+    // the client can retry
+    private void restore(String id, Path committing) {
+        try {
+            if (Files.exists(committing)) {
+                StreamingFileWriter.moveIntoPlace(committing, dataPath(id));
+            }
+        } catch (IOException e) {
+            log.warn("Could not restore upload session file {}", id, e);
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> sessionRepository.findByIdForUpdate(id)
+                    .ifPresent(session -> {
+                        session.setStatus(UploadSessionStatus.UPLOADING);
+                        sessionRepository.save(session);
+                    }));
+        } catch (RuntimeException e) {
+            log.warn("Could not reopen upload session {}", id, e);
+        }
+    }
+
+    private UploadSessionResponse mapToResponse(UploadSession session) {
+        return UploadSessionResponse.builder()
+                .id(session.getId())
+                .caseId(session.getCaseId())
+                .documentId(session.getDocumentId())
+                .fileName(session.getFileName())
+                .totalSize(session.getTotalSize())
+                .chunkSize(session.getChunkSize())
+                .chunkCount(session.getChunkCount())
+                .receivedChunks(session.getReceivedCount())
+                .missingChunks(session.getMissingChunks())
+                .complete(session.isComplete())
+                .createdAt(session.getCreatedAt())
+                .expiresAt(session.getUpdatedAt() != null
+                        ? session.getUpdatedAt().plus(Duration.ofMillis(ttlMillis)) : null)
+                .build();
+    }
+
+    private Path sessionDirectory() {
+        return Paths.get(uploadDir, "sessions");
+    }
+
+    private Path dataPath(String id) {
+        return sessionDirectory().resolve(id + ".upload");
+    }
+
+    private Path commitPath(String id) {
+        return sessionDirectory().resolve(id + ".commit");
+    }
+}
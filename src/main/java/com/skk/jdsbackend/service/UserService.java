@@ -4,6 +4,8 @@ import com.skk.jdsbackend.dto.UserResponse;
 import com.skk.jdsbackend.entity.User;
 import com.skk.jdsbackend.exception.ResourceNotFoundException;
 import com.skk.jdsbackend.repository.UserRepository;
+import com.skk.jdsbackend.security.TokenRevocationService;
+import com.skk.jdsbackend.security.UserPrincipalCache;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -16,6 +18,8 @@ import java.util.stream.Collectors;
 public class UserService {
 
         private final UserRepository userRepository;
+        private final UserPrincipalCache userPrincipalCache;
+        private final TokenRevocationService tokenRevocationService;
 
         @Transactional(readOnly = true)
         public List<UserResponse> getAllUsers() {
@@ -36,6 +40,8 @@ public class UserService {
                 User user = userRepository.findById(id)
                                 .orElseThrow(() -> new ResourceNotFoundException("User not found with id: " + id));
                 userRepository.delete(user);
+                userPrincipalCache.invalidate(user.getUsername());
+                tokenRevocationService.revokeUser(user.getId());
         }
 
         private UserResponse mapToResponse(User user) {
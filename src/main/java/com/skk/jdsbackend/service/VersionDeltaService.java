@@ -0,0 +1,335 @@
+package com.skk.jdsbackend.service;
+
+import com.skk.jdsbackend.entity.DocumentVersion;
+import com.skk.jdsbackend.entity.VersionStorageMode;
+import com.skk.jdsbackend.exception.ResourceNotFoundException;
+import com.skk.jdsbackend.exception.TooManyRequestsException;
+import com.skk.jdsbackend.repository.DocumentVersionRepository;
+import com.skk.jdsbackend.storage.BlobStore;
+import com.skk.jdsbackend.storage.DeltaCodec;
+import com.skk.jdsbackend.storage.StoredFile;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.AbstractResource;
+import org.springframework.core.io.Resource;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Optional reverse-delta storage for document versions, switched on with
+ * app.storage.delta.enabled.
+ *
+ * Once a version is superseded, a background pass replaces its full file with a
+ * binary delta against the next newer version, so a contract edited thirty
+ * times costs one full copy plus thirty small deltas. Every
+ * keyframe-interval-th version number stays full, which bounds any chain to
+ * fewer than keyframe-interval deltas. The newest version and the document row
+ * always point at a full file, so current downloads never pay for reconstruction.
+ * Versions whose delta would not save at least 1 - max-ratio of their size, or
+ * that are larger than max-bytes, are left full too.
+ *
+ * Reading an older version loads the nearest full file, applies the deltas above
+ * the requested version in memory, then streams the last step to the client.
+ * A DELTA row holds its blob reference on the delta, not on the full content.
+ *
+ * Reconstruction and encoding keep whole versions in heap, so at most
+ * max-concurrent-reconstructions of them run at once. Downloads wait up to
+ * acquire-timeout-ms for a slot and then get a 429; the background pass waits.
+ * Encoding reads and diffs the files outside any transaction and only swaps the
+ * row in a short one at the end.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class VersionDeltaService {
+
+    private final DocumentVersionRepository versionRepository;
+    private final BlobStore blobStore;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${app.storage.delta.enabled:false}")
+    private boolean enabled;
+
+    @Value("${app.storage.delta.keyframe-interval:10}")
+    private int keyframeInterval;
+
+    @Value("${app.storage.delta.max-bytes:67108864}")
+    private long maxBytes;
+
+    @Value("${app.storage.delta.max-ratio:0.5}")
+    private double maxRatio;
+
+    @Value("${app.storage.delta.batch-size:100}")
+    private int batchSize;
+
+    @Value("${app.storage.delta.max-concurrent-reconstructions:4}")
+    private int maxConcurrentReconstructions;
+
+    @Value("${app.storage.delta.acquire-timeout-ms:2000}")
+    private long acquireTimeoutMillis;
+
+    private Semaphore reconstructions;
+
+    @PostConstruct
+    void start() {
+        reconstructions = new Semaphore(maxConcurrentReconstructions, true);
+    }
+
+    @Scheduled(fixedDelayString = "${app.storage.delta.interval-ms:300000}",
+            initialDelayString = "${app.storage.delta.interval-ms:300000}")
+    public void encodeScheduled() {
+        if (enabled) {
+            encodeSupersededVersions();
+        }
+    }
+
+    /**
+     * Looks at every superseded version not looked at before.
+     *
+     * @return how many were replaced by deltas
+     */
+    public int encodeSupersededVersions() {
+        int encoded = 0;
+        long afterId = 0;
+        List<Long> ids;
+        while (!(ids = versionRepository.findDeltaCandidates(afterId, PageRequest.of(0, batchSize))).isEmpty()) {
+            for (Long id : ids) {
+                try {
+                    if (encode(id)) {
+                        encoded++;
+                    }
+                } catch (RuntimeException e) {
+                    log.warn("Could not delta-encode document version {}", id, e);
+                }
+            }
+            afterId = ids.get(ids.size() - 1);
+        }
+        if (encoded > 0) {
+            log.info("Replaced {} superseded document version(s) by deltas", encoded);
+        }
+        return encoded;
+    }
+
+    /**
+     * The content of a version, reconstructed if it is stored as a delta.
+     */
+    public InputStream open(DocumentVersion version) throws IOException {
+        return open(resolveChain(version));
+    }
+
+    /**
+     * The content of a version as a Resource for downloads. The chain is resolved
+     * now, so the body can be streamed after the transaction has ended.
+     */
+    public Resource resource(DocumentVersion version) {
+        List<String> chain = resolveChain(version);
+        long size = version.getFileSize();
+        String description = "document version " + version.getId();
+        return new AbstractResource() {
+            @Override
+            public InputStream getInputStream() throws IOException {
+                return open(chain);
+            }
+
+            @Override
+            public boolean exists() {
+                return true;
+            }
+
+            @Override
+            public long contentLength() {
+                return size;
+            }
+
+            @Override
+            public String getDescription() {
+                return description;
+            }
+        };
+    }
+
+    /**
+     * Stores the full content of a version as a blob and takes a reference on it,
+     * e.g. when the version is restored.
+     */
+    public StoredFile materialize(DocumentVersion version) throws IOException {
+        try (InputStream in = open(version)) {
+            return blobStore.store(in, 0);
+        }
+    }
+
+    // What encoding a version needs from the database, read in one short transaction
+    private record Candidate(Long id, String filePath, String checksum, Long baseId, List<String> baseChain) {
+    }
+
+    private boolean encode(Long id) {
+        Candidate candidate = transactionTemplate.execute(status -> findCandidate(id));
+        if (candidate == null) {
+            return false;
+        }
+
+        StoredFile blob;
+        try {
+            byte[] delta = diff(candidate);
+            if (delta == null) {
+                versionRepository.keepFull(id);
+                return false;
+            }
+            blob = blobStore.store(new ByteArrayInputStream(delta), 0);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to delta-encode document version " + id, e);
+        }
+
+        // The row swaps its reference on the full file for one on the delta, unless
+        // it was changed while the files were being read
+        boolean stored;
+        try {
+            stored = Boolean.TRUE.equals(transactionTemplate.execute(status -> {
+                if (versionRepository.storeAsDelta(id, candidate.filePath(), blob.key(), blob.sha256(),
+                        candidate.baseId()) == 0) {
+                    return false;
+                }
+                blobStore.release(candidate.checksum());
+                return true;
+            }));
+        } catch (RuntimeException e) {
+            blobStore.release(blob.sha256());
+            throw e;
+        }
+        if (!stored) {
+            blobStore.release(blob.sha256());
+        }
+        return stored;
+    }
+
+    private Candidate findCandidate(Long id) {
+        DocumentVersion version = versionRepository.findById(id).orElse(null);
+        if (version == null || version.getStorageMode() != null) {
+            return null;
+        }
+        DocumentVersion base = versionRepository
+                .findFirstByDocumentAndVersionNumberGreaterThanOrderByVersionNumberAsc(
+                        version.getDocument(), version.getVersionNumber())
+                .orElse(null);
+        if (base == null) {
+            return null;
+        }
+        if (version.getVersionNumber() % keyframeInterval == 0
+                || version.getFileSize() > maxBytes || base.getFileSize() > maxBytes) {
+            versionRepository.keepFull(id);
+            return null;
+        }
+        return new Candidate(id, version.getFilePath(), version.getChecksum(), base.getId(), resolveChain(base));
+    }
+
+    // The delta from the base to the version, or null if it would not save enough
+    private byte[] diff(Candidate candidate) throws IOException {
+        acquireWaiting();
+        try {
+            byte[] baseContent = reconstruct(candidate.baseChain());
+            byte[] content;
+            try (InputStream in = blobStore.open(candidate.filePath())) {
+                content = in.readAllBytes();
+            }
+            ByteArrayOutputStream delta = new ByteArrayOutputStream();
+            DeltaCodec.encode(baseContent, content, delta);
+            return delta.size() > content.length * maxRatio ? null : delta.toByteArray();
+        } finally {
+            reconstructions.release();
+        }
+    }
+
+    // File paths from the version down to the nearest full one: deltas first, full file last
+    private List<String> resolveChain(DocumentVersion version) {
+        List<String> chain = new ArrayList<>();
+        DocumentVersion current = version;
+        while (current.getStorageMode() == VersionStorageMode.DELTA) {
+            chain.add(current.getFilePath());
+            Long baseId = current.getDeltaBaseVersionId();
+            current = versionRepository.findById(baseId)
+                    .orElseThrow(() -> new ResourceNotFoundException("Delta base version not found: " + baseId));
+        }
+        chain.add(current.getFilePath());
+        return chain;
+    }
+
+    // Holds a reconstruction slot until the returned stream is closed
+    private InputStream open(List<String> chain) throws IOException {
+        if (chain.size() == 1) {
+            return blobStore.open(chain.get(0));
+        }
+        acquire();
+        try {
+            byte[] base = reconstruct(chain.subList(1, chain.size()));
+            return new FilterInputStream(DeltaCodec.decode(blobStore.open(chain.get(0)), base)) {
+                private boolean closed;
+
+                @Override
+                public void close() throws IOException {
+                    try {
+                        super.close();
+                    } finally {
+                        if (!closed) {
+                            closed = true;
+                            reconstructions.release();
+                        }
+                    }
+                }
+            };
+        } catch (IOException | RuntimeException e) {
+            reconstructions.release();
+            throw e;
+        }
+    }
+
+    // Applies the deltas of a chain in memory and returns the full content
+    private byte[] reconstruct(List<String> chain) throws IOException {
+        int full = chain.size() - 1;
+        byte[] content;
+        try (InputStream in = blobStore.open(chain.get(full))) {
+            content = in.readAllBytes();
+        }
+        for (int i = full - 1; i >= 0; i--) {
+            try (InputStream in = DeltaCodec.decode(blobStore.open(chain.get(i)), content)) {
+                content = in.readAllBytes();
+            }
+        }
+        return content;
+    }
+
+    private void acquire() throws InterruptedIOException {
+        try {
+            if (!reconstructions.tryAcquire(acquireTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                throw new TooManyRequestsException(
+                        "Too many older versions are being rebuilt, please retry shortly", 1);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a reconstruction slot");
+        }
+    }
+
+    private void acquireWaiting() throws InterruptedIOException {
+        try {
+            reconstructions.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a reconstruction slot");
+        }
+    }
+}
@@ -0,0 +1,265 @@
+package com.skk.jdsbackend.storage;
+
+import com.skk.jdsbackend.entity.StoredBlob;
+import com.skk.jdsbackend.repository.ExtractedTextRepository;
+import com.skk.jdsbackend.repository.StoredBlobRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Content-addressed file store shared by documents, versions and templates.
+ *
+ * Files are kept in DocumentStorage under "blobs/&lt;sha256&gt;", so identical uploads
+ * are kept once, and that key is what entity rows store as their filePath. Each
+ * entity row carrying a checksum owns one reference on the matching stored_blobs
+ * row. Taking and dropping references happens in the caller's transaction, so it
+ * commits or rolls back with the row that owns it. Blobs that reach zero are not
+ * deleted straight away: a scheduled sweep removes them after a grace period, which
+ * also covers blobs orphaned by a rolled-back upload. The text extracted from a
+ * blob goes with it.
+ *
+ * Creating a blob row runs in its own transaction, and so does deleting one. The
+ * sweep claims a row with a conditional delete and removes the file before that
+ * transaction commits; registering takes a PESSIMISTIC_WRITE lock on the row
+ * first. The row lock thus orders the two across instances, and a file is never
+ * moved into place while another instance is deleting it.
+ *
+ * Rows written before the store existed hold a plain file path instead of a key.
+ * download, open and deleteLegacy accept either until StorageMigrationJob has
+ * rewritten them.
+ */
+@Component
+@Slf4j
+public class BlobStore {
+
+    public static final String BLOB_PREFIX = "blobs/";
+
+    private static final String STAGING_PREFIX = "staging/";
+
+    // Blob files referenced by path before keys, e.g. "uploads/blobs/<sha256>"
+    private static final Pattern BLOB_PATH = Pattern.compile("(?:^|.*[/\\\\])blobs[/\\\\]([0-9a-f]{64})");
+
+    private final StoredBlobRepository blobRepository;
+    private final ExtractedTextRepository extractedTextRepository;
+    private final DocumentStorage storage;
+    private final TransactionTemplate newTransaction;
+
+    @Value("${app.storage.blob-gc.grace-ms:3600000}")
+    private long gcGraceMillis;
+
+    @Value("${app.storage.blob-gc.batch-size:500}")
+    private int gcBatchSize;
+
+    public BlobStore(StoredBlobRepository blobRepository, ExtractedTextRepository extractedTextRepository,
+                     DocumentStorage storage, PlatformTransactionManager transactionManager) {
+        this.blobRepository = blobRepository;
+        this.extractedTextRepository = extractedTextRepository;
+        this.storage = storage;
+        this.newTransaction = new TransactionTemplate(transactionManager);
+        this.newTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * Stores the stream and takes one reference on the resulting blob. If the
+     * content is already present the new copy is discarded.
+     *
+     * @return the blob's key, size, checksum and sniffed content type
+     */
+    public StoredFile store(InputStream in, long maxBytes) throws IOException {
+        return add(storage.write(stagingKey(), in, maxBytes));
+    }
+
+    /**
+     * Moves an existing local file into the store and takes one reference. On the
+     * filesystem storage the file is read once for the digest but never copied;
+     * it is gone when this returns.
+     */
+    public StoredFile storeExisting(Path file) throws IOException {
+        return add(storage.importFile(stagingKey(), file));
+    }
+
+    private StoredFile add(StoredFile staged) throws IOException {
+        try {
+            if (blobRepository.incrementRefCount(staged.sha256()) == 0) {
+                register(staged);
+                if (blobRepository.incrementRefCount(staged.sha256()) == 0) {
+                    throw new IllegalStateException("Blob " + staged.sha256() + " vanished while being stored");
+                }
+            } else if (!storage.exists(keyOf(staged.sha256()))) {
+                // The row outlived its file; put the fresh copy in place
+                register(staged);
+            }
+        } finally {
+            deleteQuietly(staged.key());
+        }
+        return staged.withKey(keyOf(staged.sha256()));
+    }
+
+    /**
+     * Takes another reference on an existing blob. Files written before the blob
+     * store existed have no blob row; those are imported from filePath.
+     *
+     * @return the blob backing the reference
+     */
+    public StoredFile retain(String sha256, String filePath) throws IOException {
+        if (sha256 != null && blobRepository.incrementRefCount(sha256) > 0) {
+            return new StoredFile(keyOf(sha256), storage.size(keyOf(sha256)), sha256, null);
+        }
+        try (InputStream in = open(filePath)) {
+            return store(in, 0);
+        }
+    }
+
+    /**
+     * Drops one reference.
+     *
+     * @return false if sha256 is not a blob, i.e. the row points at a legacy file
+     *         that the caller still owns
+     */
+    public boolean release(String sha256) {
+        return sha256 != null && blobRepository.decrementRefCount(sha256, Instant.now()) > 0;
+    }
+
+    public static String keyOf(String sha256) {
+        return BLOB_PREFIX + sha256;
+    }
+
+    /**
+     * The storage key behind a row's filePath, or null if it names a legacy file
+     * outside the store.
+     */
+    public static String keyFor(String filePath) {
+        if (filePath.startsWith(BLOB_PREFIX)) {
+            return filePath;
+        }
+        Matcher matcher = BLOB_PATH.matcher(filePath);
+        return matcher.matches() ? keyOf(matcher.group(1)) : null;
+    }
+
+    /**
+     * Resolves a row's file for download; see FileDownload.of for the parameters.
+     */
+    public FileDownload download(String filePath, String fileName, String contentType, String version,
+                                 String checksum, LocalDateTime modified) {
+        try {
+            return FileDownload.of(resource(filePath), fileName, contentType, version, checksum, modified);
+        } catch (IOException e) {
+            throw new RuntimeException("File not found: " + fileName, e);
+        }
+    }
+
+    public Resource resource(String filePath) throws IOException {
+        String key = keyFor(filePath);
+        return key != null ? storage.resource(key) : new FileSystemResource(filePath);
+    }
+
+    public InputStream open(String filePath) throws IOException {
+        String key = keyFor(filePath);
+        return key != null ? storage.open(key) : Files.newInputStream(Paths.get(filePath));
+    }
+
+    /**
+     * Deletes a file that was stored before the blob store and is owned by a
+     * single row. Blob keys are left alone; their references are dropped with release.
+     */
+    public void deleteLegacy(String filePath) throws IOException {
+        if (keyFor(filePath) == null) {
+            Files.deleteIfExists(Paths.get(filePath));
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.storage.blob-gc.interval-ms:3600000}",
+            initialDelayString = "${app.storage.blob-gc.interval-ms:3600000}")
+    public void collectGarbage() {
+        Instant cutoff = Instant.now().minusMillis(gcGraceMillis);
+        List<String> candidates = blobRepository.findUnreferencedBefore(cutoff, PageRequest.of(0, gcBatchSize));
+        int deleted = 0;
+        for (String sha256 : candidates) {
+            try {
+                Boolean claimed = newTransaction.execute(status -> {
+                    if (blobRepository.deleteIfUnreferencedBefore(sha256, cutoff) == 0) {
+                        return false;
+                    }
+                    extractedTextRepository.deleteByChecksum(sha256);
+                    // Still holding the row lock; a failure rolls the claim back
+                    try {
+                        storage.delete(keyOf(sha256));
+                    } catch (IOException e) {
+                        throw new UncheckedIOException("Failed to delete blob " + sha256, e);
+                    }
+                    return true;
+                });
+                if (Boolean.TRUE.equals(claimed)) {
+                    deleted++;
+                }
+            } catch (RuntimeException e) {
+                log.warn("Could not collect blob {}", sha256, e);
+            }
+        }
+        if (deleted > 0) {
+            log.info("Removed {} unreferenced blob(s)", deleted);
+        }
+    }
+
+    // Moves a finished staged object into place and creates its row with no references,
+    // or puts the file back if the row exists without one
+    private void register(StoredFile staged) throws IOException {
+        String sha256 = staged.sha256();
+        String key = keyOf(sha256);
+        try {
+            newTransaction.executeWithoutResult(status -> {
+                try {
+                    // Waits for a sweep deleting the same blob to finish
+                    boolean exists = blobRepository.findByIdForUpdate(sha256).isPresent();
+                    if (!exists || !storage.exists(key)) {
+                        storage.move(staged.key(), key);
+                    }
+                    if (!exists) {
+                        blobRepository.saveAndFlush(new StoredBlob(sha256, staged.size()));
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (DataIntegrityViolationException e) {
+            // Another instance registered the same content first; its file has the same bytes
+            log.debug("Blob {} registered concurrently", sha256);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private void deleteQuietly(String key) {
+        try {
+            storage.delete(key);
+        } catch (IOException e) {
+            log.warn("Could not remove {}", key, e);
+        }
+    }
+
+    private static String stagingKey() {
+        return STAGING_PREFIX + UUID.randomUUID();
+    }
+}
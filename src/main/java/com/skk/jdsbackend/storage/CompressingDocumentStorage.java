@@ -0,0 +1,155 @@
+package com.skk.jdsbackend.storage;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.core.io.Resource;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Decorator that compresses compressible documents at rest.
+ *
+ * When enabled, a write whose leading bytes sniff as text, PDF, TIFF, RTF or a
+ * legacy Office file is stored in the framed format described on FrameIndex;
+ * images and ZIP-based formats are already compressed and are stored as they are.
+ * Reads recognise framed objects by their header and trailer and decompress them
+ * on the fly, so plain and compressed objects can sit side by side and
+ * switching compression off later keeps everything readable. Keys, sizes and
+ * checksums always describe the original bytes.
+ *
+ * Parsed frame indexes are cached per key. Keys under "blobs/" never change
+ * content, and every write, move and delete here invalidates the key it touches.
+ */
+public class CompressingDocumentStorage implements DocumentStorage {
+
+    private static final Set<String> INCOMPRESSIBLE = Set.of(
+            "image/png", "image/jpeg", "image/gif", ContentTypeSniffer.ZIP);
+
+    private final DocumentStorage delegate;
+    private final boolean enabled;
+    private final int frameSize;
+    private final int level;
+    private final CompressionMetrics metrics;
+    private final Cache<String, Optional<FrameIndex>> indexes;
+
+    public CompressingDocumentStorage(DocumentStorage delegate, boolean enabled, int frameSize, int level,
+                                      MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.enabled = enabled;
+        this.frameSize = frameSize;
+        this.level = level;
+        this.metrics = new CompressionMetrics(meterRegistry);
+        this.indexes = Caffeine.newBuilder()
+                .maximumWeight(64L * 1024 * 1024)
+                .weigher((String key, Optional<FrameIndex> index) ->
+                        64 + index.map(i -> i.frameCount() * (Long.BYTES + Integer.BYTES)).orElse(0))
+                .build();
+    }
+
+    @Override
+    public StoredFile write(String key, InputStream in, long maxBytes) throws IOException {
+        indexes.invalidate(key);
+        if (!enabled) {
+            return delegate.write(key, in, maxBytes);
+        }
+        BufferedInputStream buffered = new BufferedInputStream(in);
+        buffered.mark(ContentTypeSniffer.HEAD_LENGTH);
+        byte[] head = buffered.readNBytes(ContentTypeSniffer.HEAD_LENGTH);
+        buffered.reset();
+        String sniffed = ContentTypeSniffer.sniff(head, head.length);
+        if (!isCompressible(sniffed)) {
+            return delegate.write(key, buffered, maxBytes);
+        }
+
+        try (FrameEncodingInputStream encoder = new FrameEncodingInputStream(buffered, frameSize, level,
+                maxBytes, metrics)) {
+            delegate.write(key, encoder, 0);
+            metrics.recordStored(encoder.size(), encoder.storedSize());
+            return new StoredFile(key, encoder.size(), encoder.sha256(), sniffed);
+        }
+    }
+
+    @Override
+    public StoredFile importFile(String key, Path file) throws IOException {
+        indexes.invalidate(key);
+        if (enabled && isCompressible(sniff(file))) {
+            StoredFile stored;
+            try (InputStream in = Files.newInputStream(file)) {
+                stored = write(key, in, 0);
+            }
+            Files.delete(file);
+            return stored;
+        }
+        return delegate.importFile(key, file);
+    }
+
+    @Override
+    public void move(String sourceKey, String targetKey) throws IOException {
+        delegate.move(sourceKey, targetKey);
+        indexes.invalidate(sourceKey);
+        indexes.invalidate(targetKey);
+    }
+
+    @Override
+    public boolean exists(String key) {
+        return delegate.exists(key);
+    }
+
+    @Override
+    public long size(String key) throws IOException {
+        FrameIndex index = indexOf(key);
+        return index != null ? index.uncompressedSize() : delegate.size(key);
+    }
+
+    @Override
+    public InputStream open(String key) throws IOException {
+        FrameIndex index = indexOf(key);
+        return index != null ? new FrameDecodingInputStream(delegate, key, index, metrics) : delegate.open(key);
+    }
+
+    @Override
+    public Resource resource(String key) throws IOException {
+        FrameIndex index = indexOf(key);
+        Resource stored = delegate.resource(key);
+        return index != null ? new FramedResource(delegate, key, index, stored, metrics) : stored;
+    }
+
+    @Override
+    public void delete(String key) throws IOException {
+        delegate.delete(key);
+        indexes.invalidate(key);
+    }
+
+    @Override
+    public int migrateLayout(int limit) throws IOException {
+        return delegate.migrateLayout(limit);
+    }
+
+    private FrameIndex indexOf(String key) throws IOException {
+        Optional<FrameIndex> cached = indexes.getIfPresent(key);
+        if (cached == null) {
+            cached = Optional.ofNullable(FrameIndex.read(delegate, key));
+            indexes.put(key, cached);
+        }
+        return cached.orElse(null);
+    }
+
+    private static boolean isCompressible(String sniffedContentType) {
+        // Unrecognised content is mostly text: exports, CSV, XML, e-mail
+        return sniffedContentType == null || !INCOMPRESSIBLE.contains(sniffedContentType);
+    }
+
+    private static String sniff(Path file) throws IOException {
+        try (InputStream in = Files.newInputStream(file)) {
+            byte[] head = in.readNBytes(ContentTypeSniffer.HEAD_LENGTH);
+            return ContentTypeSniffer.sniff(head, head.length);
+        }
+    }
+}
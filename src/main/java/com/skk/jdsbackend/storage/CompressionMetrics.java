@@ -0,0 +1,97 @@
+package com.skk.jdsbackend.storage;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Meters for compression at rest:
+ * - document.storage.compression.cpu{direction}: CPU time spent in deflate/inflate
+ * - document.storage.compression.processed{direction}: uncompressed bytes handled;
+ *   dividing the two rates gives CPU cost per MB
+ * - document.storage.compression.original / .stored: bytes before and after
+ *   compression of objects written compressed
+ * - document.storage.compression.ratio: stored over original since startup
+ */
+final class CompressionMetrics {
+
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    private final Timer compressCpu;
+    private final Timer decompressCpu;
+    private final Counter compressed;
+    private final Counter decompressed;
+    private final Counter original;
+    private final Counter stored;
+    private final AtomicLong originalTotal = new AtomicLong();
+    private final AtomicLong storedTotal = new AtomicLong();
+
+    CompressionMetrics(MeterRegistry registry) {
+        this.compressCpu = cpuTimer(registry, "compress");
+        this.decompressCpu = cpuTimer(registry, "decompress");
+        this.compressed = processedCounter(registry, "compress");
+        this.decompressed = processedCounter(registry, "decompress");
+        this.original = Counter.builder("document.storage.compression.original")
+                .description("Size of documents stored compressed, before compression")
+                .baseUnit("bytes")
+                .register(registry);
+        this.stored = Counter.builder("document.storage.compression.stored")
+                .description("Size of documents stored compressed, as stored")
+                .baseUnit("bytes")
+                .register(registry);
+        Gauge.builder("document.storage.compression.ratio", this, CompressionMetrics::ratio)
+                .description("Stored over original size of documents written compressed since startup")
+                .register(registry);
+    }
+
+    /**
+     * CPU time of the current thread in nanoseconds, or wall time where the JVM
+     * cannot measure it.
+     */
+    static long cpuTime() {
+        return THREADS.isCurrentThreadCpuTimeSupported() ? THREADS.getCurrentThreadCpuTime() : System.nanoTime();
+    }
+
+    void recordCompress(long cpuNanos, int bytes) {
+        compressCpu.record(cpuNanos, TimeUnit.NANOSECONDS);
+        compressed.increment(bytes);
+    }
+
+    void recordDecompress(long cpuNanos, int bytes) {
+        decompressCpu.record(cpuNanos, TimeUnit.NANOSECONDS);
+        decompressed.increment(bytes);
+    }
+
+    void recordStored(long originalBytes, long storedBytes) {
+        original.increment(originalBytes);
+        stored.increment(storedBytes);
+        originalTotal.addAndGet(originalBytes);
+        storedTotal.addAndGet(storedBytes);
+    }
+
+    private double ratio() {
+        long originalBytes = originalTotal.get();
+        return originalBytes == 0 ? 1.0 : (double) storedTotal.get() / originalBytes;
+    }
+
+    private static Timer cpuTimer(MeterRegistry registry, String direction) {
+        return Timer.builder("document.storage.compression.cpu")
+                .description("CPU time spent compressing or decompressing stored documents, per frame")
+                .tag("direction", direction)
+                .register(registry);
+    }
+
+    private static Counter processedCounter(MeterRegistry registry, String direction) {
+        return Counter.builder("document.storage.compression.processed")
+                .description("Uncompressed bytes compressed or decompressed")
+                .tag("direction", direction)
+                .baseUnit("bytes")
+                .register(registry);
+    }
+}
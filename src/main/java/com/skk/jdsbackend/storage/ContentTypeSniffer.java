@@ -0,0 +1,107 @@
+package com.skk.jdsbackend.storage;
+
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Detects a content type from the leading bytes of a file. Only formats with an
+ * unambiguous signature are recognised; everything else falls back to the
+ * client-declared type or the file name.
+ */
+public final class ContentTypeSniffer {
+
+    /** Number of leading bytes needed to recognise every supported signature. */
+    public static final int HEAD_LENGTH = 16;
+
+    static final String ZIP = "application/zip";
+    static final String OLE2 = "application/x-ole-storage";
+
+    private ContentTypeSniffer() {
+    }
+
+    /**
+     * Returns the type implied by the magic bytes, or null when the head does not
+     * match a known signature.
+     */
+    public static String sniff(byte[] head, int length) {
+        if (startsWith(head, length, "%PDF-")) {
+            return MediaType.APPLICATION_PDF_VALUE;
+        }
+        if (startsWith(head, length, 0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A)) {
+            return MediaType.IMAGE_PNG_VALUE;
+        }
+        if (startsWith(head, length, 0xFF, 0xD8, 0xFF)) {
+            return MediaType.IMAGE_JPEG_VALUE;
+        }
+        if (startsWith(head, length, "GIF87a") || startsWith(head, length, "GIF89a")) {
+            return MediaType.IMAGE_GIF_VALUE;
+        }
+        if (startsWith(head, length, 'I', 'I', '*', 0x00) || startsWith(head, length, 'M', 'M', 0x00, '*')) {
+            return "image/tiff";
+        }
+        if (startsWith(head, length, "{\\rtf")) {
+            return "application/rtf";
+        }
+        if (startsWith(head, length, 'P', 'K', 0x03, 0x04)) {
+            return ZIP;
+        }
+        if (startsWith(head, length, 0xD0, 0xCF, 0x11, 0xE0, 0xA1, 0xB1, 0x1A, 0xE1)) {
+            return OLE2;
+        }
+        return null;
+    }
+
+    /**
+     * Picks the stored content type. A specific sniffed type wins over what the
+     * client declared. Container formats (OOXML is a zip, legacy Office is OLE2) only
+     * tell us the wrapper, so the declared type or the file extension is preferred
+     * for those.
+     */
+    public static String resolve(String sniffed, String declared, String fileName) {
+        if (sniffed != null && !ZIP.equals(sniffed) && !OLE2.equals(sniffed)) {
+            return sniffed;
+        }
+        if (isSpecific(declared)) {
+            return declared;
+        }
+        String byName = MediaTypeFactory.getMediaType(fileName)
+                .map(MediaType::toString)
+                .orElse(null);
+        if (byName != null) {
+            return byName;
+        }
+        return sniffed != null ? sniffed : MediaType.APPLICATION_OCTET_STREAM_VALUE;
+    }
+
+    private static boolean isSpecific(String declared) {
+        return declared != null && !declared.isBlank()
+                && !MediaType.APPLICATION_OCTET_STREAM_VALUE.equalsIgnoreCase(declared);
+    }
+
+    private static boolean startsWith(byte[] head, int length, String ascii) {
+        byte[] prefix = ascii.getBytes(StandardCharsets.US_ASCII);
+        if (length < prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (head[i] != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean startsWith(byte[] head, int length, int... prefix) {
+        if (length < prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if ((head[i] & 0xFF) != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,279 @@
+package com.skk.jdsbackend.storage;
+
+import java.io.BufferedInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * Binary delta between two versions of a file, as copy/insert instructions.
+ *
+ * The encoder indexes the base in BLOCK-byte blocks by a rolling hash, then slides
+ * a window over the target: where the window's hash names base blocks with the same
+ * bytes, the longest match is extended in both directions and emitted as a COPY from
+ * the base; everything between matches is an INSERT of literal bytes. Near-identical
+ * versions therefore cost little more than the bytes that actually changed.
+ *
+ * Format: "JDSD", version, varint base length, varint target length, then
+ * instructions (COPY varint offset, varint length | INSERT varint length, bytes)
+ * and END.
+ */
+public final class DeltaCodec {
+
+    private static final byte[] MAGIC = { 'J', 'D', 'S', 'D' };
+    private static final byte VERSION = 1;
+    private static final int BLOCK = 32;
+    private static final int MULTIPLIER = 0x01000193;
+    // Equal base blocks compared per target position
+    private static final int MAX_CANDIDATES = 64;
+    // MULTIPLIER^(BLOCK-1), to drop the outgoing byte when rolling
+    private static final int OUTGOING_FACTOR;
+
+    private static final int END = 0;
+    private static final int COPY = 1;
+    private static final int INSERT = 2;
+
+    static {
+        int factor = 1;
+        for (int i = 0; i < BLOCK - 1; i++) {
+            factor *= MULTIPLIER;
+        }
+        OUTGOING_FACTOR = factor;
+    }
+
+    private DeltaCodec() {
+    }
+
+    /**
+     * Writes a delta that turns base into target.
+     */
+    public static void encode(byte[] base, byte[] target, OutputStream out) throws IOException {
+        out.write(MAGIC);
+        out.write(VERSION);
+        writeVarint(out, base.length);
+        writeVarint(out, target.length);
+
+        // At least twice as many slots as base blocks; equal blocks are chained per slot
+        int bits = Math.min(28, Math.max(10, 33 - Integer.numberOfLeadingZeros(Math.max(1, base.length / BLOCK))));
+        int[] table = new int[1 << bits];
+        int[] chain = new int[base.length / BLOCK];
+        Arrays.fill(table, -1);
+        for (int i = 0; i + BLOCK <= base.length; i += BLOCK) {
+            int slot = slot(hash(base, i), bits);
+            chain[i / BLOCK] = table[slot];
+            table[slot] = i;
+        }
+
+        int literalStart = 0;
+        int position = 0;
+        // Base minus target offset of the last match, tried first: after an edit the
+        // rest of the file usually follows on from where the previous match left off
+        int shift = 0;
+        int hash = target.length >= BLOCK ? hash(target, 0) : 0;
+        while (position + BLOCK <= target.length) {
+            // Repetitive content has many equal blocks, so keep the longest match
+            int bestBase = -1;
+            int bestBack = 0;
+            int bestLength = 0;
+            int candidate = position + shift;
+            if (candidate < 0 || candidate + BLOCK > base.length) {
+                candidate = table[slot(hash, bits)];
+            }
+            boolean predicted = candidate == position + shift;
+            for (int tries = 0; candidate >= 0 && tries < MAX_CANDIDATES; tries++) {
+                int forward = forwardMatch(base, candidate, target, position);
+                if (forward >= BLOCK) {
+                    int back = 0;
+                    while (position - back > literalStart && candidate - back > 0
+                            && target[position - back - 1] == base[candidate - back - 1]) {
+                        back++;
+                    }
+                    if (back + forward > bestLength) {
+                        bestBase = candidate;
+                        bestBack = back;
+                        bestLength = back + forward;
+                    }
+                    if (position + forward == target.length) {
+                        break;
+                    }
+                }
+                if (predicted) {
+                    predicted = false;
+                    candidate = table[slot(hash, bits)];
+                } else {
+                    candidate = chain[candidate / BLOCK];
+                }
+            }
+
+            if (bestBase >= 0) {
+                int start = position - bestBack;
+                int baseStart = bestBase - bestBack;
+                writeInsert(out, target, literalStart, start);
+                out.write(COPY);
+                writeVarint(out, baseStart);
+                writeVarint(out, bestLength);
+                shift = baseStart - start;
+                position = start + bestLength;
+                literalStart = position;
+                if (position + BLOCK <= target.length) {
+                    hash = hash(target, position);
+                }
+            } else if (position + BLOCK < target.length) {
+                hash = (hash - (target[position] & 0xff) * OUTGOING_FACTOR) * MULTIPLIER
+                        + (target[position + BLOCK] & 0xff);
+                position++;
+            } else {
+                break;
+            }
+        }
+        writeInsert(out, target, literalStart, target.length);
+        out.write(END);
+    }
+
+    /**
+     * Streams the target reconstructed from a delta and its base. Closing the
+     * returned stream closes delta.
+     */
+    public static InputStream decode(InputStream delta, byte[] base) throws IOException {
+        return new Decoder(delta, base);
+    }
+
+    private static void writeInsert(OutputStream out, byte[] target, int from, int to) throws IOException {
+        if (to > from) {
+            out.write(INSERT);
+            writeVarint(out, to - from);
+            out.write(target, from, to - from);
+        }
+    }
+
+    // Number of equal bytes from base[from] and target[at] on
+    private static int forwardMatch(byte[] base, int from, byte[] target, int at) {
+        int mismatch = Arrays.mismatch(base, from, base.length, target, at, target.length);
+        return mismatch < 0 ? target.length - at : mismatch;
+    }
+
+    private static int hash(byte[] data, int offset) {
+        int hash = 0;
+        for (int i = 0; i < BLOCK; i++) {
+            hash = hash * MULTIPLIER + (data[offset + i] & 0xff);
+        }
+        return hash;
+    }
+
+    private static int slot(int hash, int bits) {
+        return (hash * 0x9E3779B1) >>> (32 - bits);
+    }
+
+    private static void writeVarint(OutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static long readVarint(InputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.read();
+            if (b < 0) {
+                throw new EOFException("Truncated delta");
+            }
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed delta varint");
+    }
+
+    private static final class Decoder extends InputStream {
+
+        private final InputStream delta;
+        private final byte[] base;
+        private final long targetLength;
+        private long produced;
+        private int op = -1;
+        private long copyOffset;
+        private long remaining;
+        private boolean finished;
+
+        Decoder(InputStream delta, byte[] base) throws IOException {
+            this.delta = new BufferedInputStream(delta);
+            this.base = base;
+            byte[] header = this.delta.readNBytes(MAGIC.length + 1);
+            if (header.length != MAGIC.length + 1 || !Arrays.equals(header, 0, MAGIC.length, MAGIC, 0, MAGIC.length)
+                    || header[MAGIC.length] != VERSION) {
+                throw new IOException("Not a delta");
+            }
+            if (readVarint(this.delta) != base.length) {
+                throw new IOException("Delta does not match its base");
+            }
+            this.targetLength = readVarint(this.delta);
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] one = new byte[1];
+            return read(one, 0, 1) == -1 ? -1 : one[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            while (remaining == 0) {
+                if (finished || !nextInstruction()) {
+                    finished = true;
+                    return -1;
+                }
+            }
+            int n = (int) Math.min(len, remaining);
+            if (op == COPY) {
+                System.arraycopy(base, (int) copyOffset, b, off, n);
+                copyOffset += n;
+            } else {
+                n = delta.read(b, off, n);
+                if (n < 0) {
+                    throw new EOFException("Truncated delta");
+                }
+            }
+            remaining -= n;
+            produced += n;
+            return n;
+        }
+
+        @Override
+        public void close() throws IOException {
+            delta.close();
+        }
+
+        private boolean nextInstruction() throws IOException {
+            op = delta.read();
+            switch (op) {
+                case COPY -> {
+                    copyOffset = readVarint(delta);
+                    remaining = readVarint(delta);
+                    if (copyOffset + remaining > base.length) {
+                        throw new IOException("Delta copies past the end of its base");
+                    }
+                }
+                case INSERT -> remaining = readVarint(delta);
+                case END -> {
+                    if (produced != targetLength) {
+                        throw new IOException("Delta produced " + produced + " of " + targetLength + " bytes");
+                    }
+                    return false;
+                }
+                default -> throw new IOException("Malformed delta instruction " + op);
+            }
+            if (produced + remaining > targetLength) {
+                throw new IOException("Delta overruns its target length");
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.skk.jdsbackend.storage;
+
+import org.springframework.core.io.Resource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+
+/**
+ * Where document, version and template bytes live.
+ *
+ * Objects are addressed by slash-separated keys such as "blobs/&lt;sha256&gt;"; how a
+ * key maps onto the backing store is up to the implementation. A write becomes
+ * visible under its key only once complete. Callers never build filesystem paths
+ * themselves, so the layout can change without touching the services.
+ */
+public interface DocumentStorage {
+
+    /**
+     * Writes the stream under key, digesting and sniffing it on the way. An
+     * existing object is replaced. maxBytes <= 0 means unlimited.
+     *
+     * @throws com.skk.jdsbackend.exception.PayloadTooLargeException if the stream is longer than maxBytes
+     */
+    StoredFile write(String key, InputStream in, long maxBytes) throws IOException;
+
+    /**
+     * Takes over a finished local file, e.g. an assembled chunked upload. The file
+     * is gone when this returns; implementations backed by the same disk rename it
+     * rather than copying.
+     */
+    StoredFile importFile(String key, Path file) throws IOException;
+
+    /**
+     * Renames an object, replacing anything already under target.
+     */
+    void move(String sourceKey, String targetKey) throws IOException;
+
+    boolean exists(String key);
+
+    long size(String key) throws IOException;
+
+    InputStream open(String key) throws IOException;
+
+    /**
+     * The object as a Resource for downloads. File-backed implementations return a
+     * FileSystemResource so ZeroCopyFileSender can hand it to the connector.
+     */
+    Resource resource(String key) throws IOException;
+
+    /**
+     * Removes the object if present.
+     */
+    void delete(String key) throws IOException;
+
+    /**
+     * Moves up to limit objects still kept in an older layout into the current
+     * one. Objects remain readable under their key throughout.
+     *
+     * @return how many were moved; 0 once nothing is left
+     */
+    default int migrateLayout(int limit) throws IOException {
+        return 0;
+    }
+}
@@ -0,0 +1,75 @@
+package com.skk.jdsbackend.storage;
+
+import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+/**
+ * A stored file resolved for download together with the validators used for
+ * conditional and range requests.
+ *
+ * The ETag is strong: it combines the entity's version with the SHA-256 of the
+ * bytes, so it changes whenever the content does. Spring MVC evaluates
+ * If-None-Match and If-Modified-Since against these headers for ResponseEntity
+ * return values, answering 304 without touching the file. For a Resource body it
+ * also advertises Accept-Ranges and serves Range requests as 206, including
+ * multipart/byteranges for several ranges.
+ */
+public record FileDownload(Resource resource, String fileName, String contentType, String etag,
+                           Instant lastModified) {
+
+    // Cacheable by the browser only, and always revalidated through the ETag
+    static final CacheControl CACHE_CONTROL = CacheControl.noCache().cachePrivate();
+
+    /**
+     * @param version  version marker of the owning row, e.g. "v3"
+     * @param checksum SHA-256 of the file, or null for files stored before checksums
+     * @param modified when the row last changed, or null to use the file's mtime
+     */
+    public static FileDownload of(Resource resource, String fileName, String contentType, String version,
+                                  String checksum, LocalDateTime modified) {
+        if (!resource.exists() || !resource.isReadable()) {
+            throw new RuntimeException("File not found or not readable: " + fileName);
+        }
+        try {
+            // Files without a checksum fall back to size and mtime, which is what servers usually hash
+            String tag = checksum != null
+                    ? checksum
+                    : Long.toHexString(resource.contentLength()) + "-" + Long.toHexString(resource.lastModified());
+            Instant lastModified = modified != null
+                    ? modified.atZone(ZoneId.systemDefault()).toInstant()
+                    : Instant.ofEpochMilli(resource.lastModified());
+            return new FileDownload(resource, fileName, contentType, "\"" + version + "-" + tag + "\"", lastModified);
+        } catch (IOException e) {
+            throw new RuntimeException("File not found: " + fileName, e);
+        }
+    }
+
+    /**
+     * Builds the response with the given Content-Disposition type ("inline" or "attachment").
+     */
+    public ResponseEntity<Resource> toResponse(String disposition) {
+        ResponseEntity.BodyBuilder builder = ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(contentType))
+                .header(HttpHeaders.CONTENT_DISPOSITION, contentDisposition(disposition))
+                .cacheControl(CACHE_CONTROL)
+                .eTag(etag)
+                .lastModified(lastModified);
+        if (resource instanceof FramedResource) {
+            // ZeroCopyFileSender serves the same document gzip-encoded to other clients
+            builder.varyBy(HttpHeaders.ACCEPT_ENCODING);
+        }
+        return builder.body(resource);
+    }
+
+    String contentDisposition(String disposition) {
+        return disposition + "; filename=\"" + fileName + "\"";
+    }
+}
@@ -0,0 +1,160 @@
+package com.skk.jdsbackend.storage;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+/**
+ * Plain bytes of a framed object. skip() seeks through the frame index instead of
+ * inflating what it skips, so Spring's range support, which skips to the start
+ * of each range, only decompresses the frames a range overlaps.
+ */
+class FrameDecodingInputStream extends InputStream {
+
+    private static final int GZIP_HEADER_LENGTH = 10;
+    private static final int GZIP_TRAILER_LENGTH = 8;
+
+    private final DocumentStorage storage;
+    private final String key;
+    private final FrameIndex index;
+    private final CompressionMetrics metrics;
+    private final Inflater inflater = new Inflater(true);
+    private final CRC32 crc = new CRC32();
+    private final byte[] frame;
+
+    private InputStream source;
+    private long sourcePosition;
+    private int nextFrame;
+    private int position;
+    private int limit;
+
+    FrameDecodingInputStream(DocumentStorage storage, String key, FrameIndex index, CompressionMetrics metrics) {
+        this.storage = storage;
+        this.key = key;
+        this.index = index;
+        this.metrics = metrics;
+        this.frame = new byte[index.frameSize()];
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] one = new byte[1];
+        return read(one, 0, 1) == -1 ? -1 : one[0] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (position == limit && !loadFrame(nextFrame)) {
+            return -1;
+        }
+        int n = Math.min(len, limit - position);
+        System.arraycopy(frame, position, b, off, n);
+        position += n;
+        return n;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        if (n <= 0 || (position == limit && nextFrame >= index.frameCount())) {
+            return 0;
+        }
+        long current = (long) (nextFrame - (limit > 0 ? 1 : 0)) * index.frameSize() + position;
+        long target = Math.min(current + n, index.uncompressedSize());
+        if (limit > 0 && target < current - position + limit) {
+            // Still inside the frame already inflated
+            position += (int) (target - current);
+            return target - current;
+        }
+        int targetFrame = (int) (target / index.frameSize());
+        if (targetFrame >= index.frameCount()) {
+            // End of stream
+            nextFrame = index.frameCount();
+            position = 0;
+            limit = 0;
+            return target - current;
+        }
+        loadFrame(targetFrame);
+        position = (int) (target - (long) targetFrame * index.frameSize());
+        return target - current;
+    }
+
+    @Override
+    public int available() {
+        return limit - position;
+    }
+
+    @Override
+    public void close() throws IOException {
+        inflater.end();
+        if (source != null) {
+            source.close();
+        }
+    }
+
+    private boolean loadFrame(int frameNumber) throws IOException {
+        if (frameNumber >= index.frameCount()) {
+            return false;
+        }
+        byte[] member = readMember(frameNumber);
+
+        long cpuStart = CompressionMetrics.cpuTime();
+        inflater.reset();
+        inflater.setInput(member, GZIP_HEADER_LENGTH, member.length - GZIP_HEADER_LENGTH - GZIP_TRAILER_LENGTH);
+        int inflated = 0;
+        try {
+            while (!inflater.finished() && inflated < frame.length) {
+                int n = inflater.inflate(frame, inflated, frame.length - inflated);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                inflated += n;
+            }
+        } catch (DataFormatException e) {
+            throw new ZipException("Corrupt frame " + frameNumber + " in " + key + ": " + e.getMessage());
+        }
+        crc.reset();
+        crc.update(frame, 0, inflated);
+        int trailer = member.length - GZIP_TRAILER_LENGTH;
+        if (!inflater.finished() || readIntLE(member, trailer) != (int) crc.getValue()
+                || readIntLE(member, trailer + 4) != inflated) {
+            throw new ZipException("Corrupt frame " + frameNumber + " in " + key);
+        }
+        metrics.recordDecompress(CompressionMetrics.cpuTime() - cpuStart, inflated);
+
+        nextFrame = frameNumber + 1;
+        position = 0;
+        limit = inflated;
+        return inflated > 0;
+    }
+
+    // Reads the member from the stored object, reopening only to go backwards
+    private byte[] readMember(int frameNumber) throws IOException {
+        long offset = index.offsets()[frameNumber];
+        if (source == null || offset < sourcePosition) {
+            if (source != null) {
+                source.close();
+            }
+            source = storage.open(key);
+            sourcePosition = 0;
+        }
+        source.skipNBytes(offset - sourcePosition);
+        int length = index.lengths()[frameNumber];
+        byte[] member = source.readNBytes(length);
+        if (member.length != length) {
+            throw new EOFException("Truncated frame " + frameNumber + " in " + key);
+        }
+        sourcePosition = offset + length;
+        return member;
+    }
+
+    private static int readIntLE(byte[] b, int at) {
+        return (b[at] & 0xff) | (b[at + 1] & 0xff) << 8 | (b[at + 2] & 0xff) << 16 | (b[at + 3] & 0xff) << 24;
+    }
+}
@@ -0,0 +1,177 @@
+package com.skk.jdsbackend.storage;
+
+import com.skk.jdsbackend.exception.PayloadTooLargeException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Reads plain bytes from the source and yields them in the framed format
+ * described on FrameIndex, one gzip member per frame. Works on demand, so the
+ * encoded object is never held in memory beyond a single frame.
+ *
+ * The SHA-256, size and leading bytes of the plain content are taken on the way
+ * through, as the storage key and entity rows refer to the original bytes. Frames
+ * that deflate by less than MIN_SAVING are a sign of already compressed content;
+ * the next SKIP_AFTER_POOR_FRAME frames are then written as stored deflate blocks,
+ * which costs almost no CPU but keeps the gzip stream valid.
+ */
+class FrameEncodingInputStream extends InputStream {
+
+    private static final double MIN_SAVING = 0.03;
+    private static final int SKIP_AFTER_POOR_FRAME = 8;
+
+    // Fixed member header: deflate, no flags, no mtime, unknown OS
+    private static final byte[] GZIP_HEADER = { 0x1f, (byte) 0x8b, 8, 0, 0, 0, 0, 0, 0, (byte) 0xff };
+    private static final int GZIP_TRAILER_LENGTH = 8;
+
+    private final InputStream source;
+    private final int frameSize;
+    private final int level;
+    private final long maxBytes;
+    private final CompressionMetrics metrics;
+    private final Deflater deflater;
+    private final CRC32 crc = new CRC32();
+    private final MessageDigest digest = StreamingFileWriter.sha256();
+    private final byte[] frame;
+
+    private byte[] out = FrameIndex.header();
+    private int position;
+    private int limit = out.length;
+    private int[] lengths = new int[16];
+    private int frameCount;
+    private int framesToStore;
+    private long size;
+    private long storedSize = out.length;
+    private boolean sourceDone;
+    private boolean done;
+
+    FrameEncodingInputStream(InputStream source, int frameSize, int level, long maxBytes, CompressionMetrics metrics) {
+        this.source = source;
+        this.frameSize = frameSize;
+        this.level = level;
+        this.maxBytes = maxBytes;
+        this.metrics = metrics;
+        this.deflater = new Deflater(level, true);
+        this.frame = new byte[frameSize];
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] one = new byte[1];
+        return read(one, 0, 1) == -1 ? -1 : one[0] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        while (position == limit) {
+            if (done) {
+                return -1;
+            }
+            fill();
+        }
+        int n = Math.min(len, limit - position);
+        System.arraycopy(out, position, b, off, n);
+        position += n;
+        return n;
+    }
+
+    @Override
+    public void close() throws IOException {
+        deflater.end();
+        source.close();
+    }
+
+    /**
+     * Size of the plain content; valid once the stream has been read to the end.
+     */
+    long size() {
+        return size;
+    }
+
+    long storedSize() {
+        return storedSize;
+    }
+
+    String sha256() {
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private void fill() throws IOException {
+        if (sourceDone) {
+            out = FrameIndex.indexAndTrailer(size, frameSize, lengths, frameCount);
+            position = 0;
+            limit = out.length;
+            storedSize += limit;
+            done = true;
+            return;
+        }
+        int read = source.readNBytes(frame, 0, frameSize);
+        sourceDone = read < frameSize;
+        if (read > 0) {
+            size += read;
+            if (maxBytes > 0 && size > maxBytes) {
+                throw new PayloadTooLargeException("Upload exceeds the maximum size of " + maxBytes + " bytes");
+            }
+            digest.update(frame, 0, read);
+            encodeFrame(read);
+        }
+    }
+
+    private void encodeFrame(int length) {
+        long cpuStart = CompressionMetrics.cpuTime();
+        boolean store = framesToStore > 0;
+        deflater.reset();
+        deflater.setLevel(store ? Deflater.NO_COMPRESSION : level);
+        deflater.setInput(frame, 0, length);
+        deflater.finish();
+        crc.reset();
+        crc.update(frame, 0, length);
+
+        // Stored blocks add 5 bytes per 64k, so this rarely grows
+        if (out.length < length + length / 1000 + 64) {
+            out = new byte[length + length / 1000 + 64];
+        }
+        System.arraycopy(GZIP_HEADER, 0, out, 0, GZIP_HEADER.length);
+        int written = GZIP_HEADER.length;
+        while (!deflater.finished()) {
+            if (written == out.length - GZIP_TRAILER_LENGTH) {
+                out = Arrays.copyOf(out, out.length * 2);
+            }
+            written += deflater.deflate(out, written, out.length - GZIP_TRAILER_LENGTH - written);
+        }
+        writeIntLE((int) crc.getValue(), written);
+        writeIntLE(length, written + 4);
+        written += GZIP_TRAILER_LENGTH;
+        metrics.recordCompress(CompressionMetrics.cpuTime() - cpuStart, length);
+
+        if (framesToStore > 0) {
+            framesToStore--;
+        } else if (written - GZIP_HEADER.length - GZIP_TRAILER_LENGTH > length * (1 - MIN_SAVING)) {
+            framesToStore = SKIP_AFTER_POOR_FRAME;
+        }
+
+        if (frameCount == lengths.length) {
+            lengths = Arrays.copyOf(lengths, lengths.length * 2);
+        }
+        lengths[frameCount++] = written;
+        storedSize += written;
+        position = 0;
+        limit = written;
+    }
+
+    private void writeIntLE(int value, int at) {
+        out[at] = (byte) value;
+        out[at + 1] = (byte) (value >>> 8);
+        out[at + 2] = (byte) (value >>> 16);
+        out[at + 3] = (byte) (value >>> 24);
+    }
+}
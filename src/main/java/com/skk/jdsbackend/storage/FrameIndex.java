@@ -0,0 +1,111 @@
+package com.skk.jdsbackend.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Layout of an object written by CompressingDocumentStorage:
+ *
+ * <pre>
+ * "JDSF" version                      header, HEADER_LENGTH bytes
+ * gzip member per frame               each frame holds frameSize bytes, the last may be shorter
+ * int compressed length per frame     the index
+ * long size, int frameSize, int frameCount, "JDSF"   trailer, TRAILER_LENGTH bytes
+ * </pre>
+ *
+ * The members sit back to back, so the region between header and index is itself
+ * a valid multi-member gzip stream that can be sent to clients as it is. The index
+ * lets a reader seek to the frame holding any offset without inflating the ones
+ * before it. All integers are big-endian.
+ */
+record FrameIndex(long uncompressedSize, int frameSize, long[] offsets, int[] lengths) {
+
+    static final byte[] MAGIC = { 'J', 'D', 'S', 'F' };
+    static final byte VERSION = 1;
+    static final int HEADER_LENGTH = MAGIC.length + 1;
+    static final int TRAILER_LENGTH = Long.BYTES + Integer.BYTES + Integer.BYTES + MAGIC.length;
+
+    int frameCount() {
+        return lengths.length;
+    }
+
+    /**
+     * Bytes of the gzip stream, i.e. the stored size without header, index and trailer.
+     */
+    long compressedLength() {
+        return lengths.length == 0 ? 0 : offsets[lengths.length - 1] + lengths[lengths.length - 1] - HEADER_LENGTH;
+    }
+
+    static byte[] header() {
+        byte[] header = Arrays.copyOf(MAGIC, HEADER_LENGTH);
+        header[MAGIC.length] = VERSION;
+        return header;
+    }
+
+    static byte[] indexAndTrailer(long uncompressedSize, int frameSize, int[] lengths, int frameCount) {
+        ByteBuffer buffer = ByteBuffer.allocate(frameCount * Integer.BYTES + TRAILER_LENGTH);
+        for (int i = 0; i < frameCount; i++) {
+            buffer.putInt(lengths[i]);
+        }
+        buffer.putLong(uncompressedSize).putInt(frameSize).putInt(frameCount).put(MAGIC);
+        return buffer.array();
+    }
+
+    /**
+     * Reads the index of a stored object, or returns null if the object is a plain
+     * file rather than a framed one.
+     */
+    static FrameIndex read(DocumentStorage storage, String key) throws IOException {
+        long storedSize = storage.size(key);
+        if (storedSize < HEADER_LENGTH + TRAILER_LENGTH) {
+            return null;
+        }
+        ByteBuffer trailer;
+        try (InputStream in = storage.open(key)) {
+            byte[] head = in.readNBytes(HEADER_LENGTH);
+            if (!Arrays.equals(head, header())) {
+                return null;
+            }
+            in.skipNBytes(storedSize - TRAILER_LENGTH - HEADER_LENGTH);
+            trailer = ByteBuffer.wrap(in.readNBytes(TRAILER_LENGTH));
+        }
+        long uncompressedSize = trailer.getLong();
+        int frameSize = trailer.getInt();
+        int frameCount = trailer.getInt();
+        byte[] magic = new byte[MAGIC.length];
+        trailer.get(magic);
+        long indexStart = storedSize - TRAILER_LENGTH - (long) frameCount * Integer.BYTES;
+        if (!Arrays.equals(magic, MAGIC) || frameSize <= 0 || frameCount < 0 || uncompressedSize < 0
+                || frameCount > Integer.MAX_VALUE / Integer.BYTES || indexStart < HEADER_LENGTH) {
+            return null;
+        }
+
+        ByteBuffer index;
+        try (InputStream in = storage.open(key)) {
+            in.skipNBytes(indexStart);
+            index = ByteBuffer.wrap(in.readNBytes(frameCount * Integer.BYTES));
+        }
+        if (index.capacity() != frameCount * Integer.BYTES) {
+            return null;
+        }
+        long[] offsets = new long[frameCount];
+        int[] lengths = new int[frameCount];
+        long offset = HEADER_LENGTH;
+        for (int i = 0; i < frameCount; i++) {
+            offsets[i] = offset;
+            lengths[i] = index.getInt();
+            if (lengths[i] <= 0) {
+                return null;
+            }
+            offset += lengths[i];
+        }
+        // Everything must add up exactly, which also rules out plain files that happen to match the magic
+        if (offset != indexStart || uncompressedSize > (long) frameSize * frameCount
+                || (frameCount > 0 && uncompressedSize <= (long) frameSize * (frameCount - 1))) {
+            return null;
+        }
+        return new FrameIndex(uncompressedSize, frameSize, offsets, lengths);
+    }
+}
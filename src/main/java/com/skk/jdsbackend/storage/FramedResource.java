@@ -0,0 +1,93 @@
+package com.skk.jdsbackend.storage;
+
+import org.springframework.core.io.AbstractResource;
+import org.springframework.core.io.Resource;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * A document stored compressed, presented as its plain content: getInputStream
+ * decompresses and contentLength is the original size. ZeroCopyFileSender uses
+ * stored() and the gzip region to pass the compressed bytes through instead.
+ */
+class FramedResource extends AbstractResource {
+
+    private final DocumentStorage storage;
+    private final String key;
+    private final FrameIndex index;
+    private final Resource stored;
+    private final CompressionMetrics metrics;
+
+    FramedResource(DocumentStorage storage, String key, FrameIndex index, Resource stored,
+                   CompressionMetrics metrics) {
+        this.storage = storage;
+        this.key = key;
+        this.index = index;
+        this.stored = stored;
+        this.metrics = metrics;
+    }
+
+    /**
+     * The object as stored, in the framed format.
+     */
+    Resource stored() {
+        return stored;
+    }
+
+    /**
+     * Offset of the gzip stream within the stored object.
+     */
+    long gzipOffset() {
+        return FrameIndex.HEADER_LENGTH;
+    }
+
+    long gzipLength() {
+        return index.compressedLength();
+    }
+
+    @Override
+    public InputStream getInputStream() throws IOException {
+        return new FrameDecodingInputStream(storage, key, index, metrics);
+    }
+
+    @Override
+    public boolean exists() {
+        return stored.exists();
+    }
+
+    @Override
+    public boolean isReadable() {
+        return stored.isReadable();
+    }
+
+    @Override
+    public long contentLength() {
+        return index.uncompressedSize();
+    }
+
+    @Override
+    public long lastModified() throws IOException {
+        return stored.lastModified();
+    }
+
+    @Override
+    public String getFilename() {
+        return stored.getFilename();
+    }
+
+    @Override
+    public String getDescription() {
+        return "compressed " + stored.getDescription();
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return this == other || (other instanceof FramedResource that && stored.equals(that.stored));
+    }
+
+    @Override
+    public int hashCode() {
+        return stored.hashCode();
+    }
+}
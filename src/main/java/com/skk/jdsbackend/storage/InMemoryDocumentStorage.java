@@ -0,0 +1,88 @@
+package com.skk.jdsbackend.storage;
+
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.Resource;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * DocumentStorage kept on the heap, for tests that should not touch the disk.
+ * Enabled with app.storage.type=memory. Contents are lost on restart.
+ */
+public class InMemoryDocumentStorage implements DocumentStorage {
+
+    private final Map<String, byte[]> objects = new ConcurrentHashMap<>();
+    private final StreamingFileWriter fileWriter;
+
+    public InMemoryDocumentStorage(StreamingFileWriter fileWriter) {
+        this.fileWriter = fileWriter;
+    }
+
+    @Override
+    public StoredFile write(String key, InputStream in, long maxBytes) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        StoredFile stored = fileWriter.copy(key, in, out, maxBytes);
+        objects.put(key, out.toByteArray());
+        return stored;
+    }
+
+    @Override
+    public StoredFile importFile(String key, Path file) throws IOException {
+        StoredFile stored;
+        try (InputStream in = Files.newInputStream(file)) {
+            stored = write(key, in, 0);
+        }
+        Files.delete(file);
+        return stored;
+    }
+
+    @Override
+    public void move(String sourceKey, String targetKey) throws IOException {
+        byte[] data = objects.remove(sourceKey);
+        if (data == null) {
+            throw new NoSuchFileException(sourceKey);
+        }
+        objects.put(targetKey, data);
+    }
+
+    @Override
+    public boolean exists(String key) {
+        return objects.containsKey(key);
+    }
+
+    @Override
+    public long size(String key) throws IOException {
+        return get(key).length;
+    }
+
+    @Override
+    public InputStream open(String key) throws IOException {
+        return new ByteArrayInputStream(get(key));
+    }
+
+    @Override
+    public Resource resource(String key) throws IOException {
+        return new ByteArrayResource(get(key), key);
+    }
+
+    @Override
+    public void delete(String key) {
+        objects.remove(key);
+    }
+
+    private byte[] get(String key) throws NoSuchFileException {
+        byte[] data = objects.get(key);
+        if (data == null) {
+            throw new NoSuchFileException(key);
+        }
+        return data;
+    }
+}
@@ -0,0 +1,175 @@
+package com.skk.jdsbackend.storage;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HexFormat;
+import java.util.List;
+
+/**
+ * DocumentStorage on the local filesystem under file.upload-dir, sharded two
+ * levels deep by hash prefix: "blobs/3fa4…" is stored as blobs/3f/a4/3fa4…. That
+ * keeps every directory at a few hundred entries at most, however many files
+ * there are. Names that are already hex (checksums, UUIDs) are sharded by their
+ * own prefix; anything else by the prefix of its SHA-256.
+ *
+ * Blob directories written before sharding are still read until migrateLayout has
+ * moved their files.
+ */
+@Slf4j
+public class ShardedFileSystemStorage implements DocumentStorage {
+
+    // Directories that were written flat before sharding
+    private static final List<String> FLAT_LAYOUT_DIRECTORIES = List.of("blobs");
+
+    private final Path root;
+    private final StreamingFileWriter fileWriter;
+
+    public ShardedFileSystemStorage(String uploadDir, StreamingFileWriter fileWriter) {
+        this.root = Paths.get(uploadDir);
+        this.fileWriter = fileWriter;
+    }
+
+    @Override
+    public StoredFile write(String key, InputStream in, long maxBytes) throws IOException {
+        return fileWriter.write(key, in, pathFor(key), maxBytes);
+    }
+
+    @Override
+    public StoredFile importFile(String key, Path file) throws IOException {
+        StoredFile stored = fileWriter.describe(key, file);
+        Path target = pathFor(key);
+        Files.createDirectories(target.getParent());
+        StreamingFileWriter.moveIntoPlace(file, target);
+        return stored;
+    }
+
+    @Override
+    public void move(String sourceKey, String targetKey) throws IOException {
+        Path target = pathFor(targetKey);
+        Files.createDirectories(target.getParent());
+        StreamingFileWriter.moveIntoPlace(locate(sourceKey), target);
+    }
+
+    @Override
+    public boolean exists(String key) {
+        return Files.isRegularFile(locate(key));
+    }
+
+    @Override
+    public long size(String key) throws IOException {
+        return Files.size(locate(key));
+    }
+
+    @Override
+    public InputStream open(String key) throws IOException {
+        try {
+            return Files.newInputStream(locate(key));
+        } catch (NoSuchFileException e) {
+            // Moved by migrateLayout between the lookup and the open
+            return Files.newInputStream(pathFor(key));
+        }
+    }
+
+    @Override
+    public Resource resource(String key) {
+        return new FileSystemResource(locate(key));
+    }
+
+    @Override
+    public void delete(String key) throws IOException {
+        // Flat copy first, so a concurrent migrateLayout cannot move it back in after
+        Files.deleteIfExists(flatPathFor(key));
+        Files.deleteIfExists(pathFor(key));
+    }
+
+    @Override
+    public int migrateLayout(int limit) throws IOException {
+        int moved = 0;
+        for (String directory : FLAT_LAYOUT_DIRECTORIES) {
+            Path flat = root.resolve(directory);
+            if (!Files.isDirectory(flat)) {
+                continue;
+            }
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(flat,
+                    path -> Files.isRegularFile(path)
+                            && !path.getFileName().toString().endsWith(StreamingFileWriter.PART_SUFFIX))) {
+                for (Path file : files) {
+                    if (moved >= limit) {
+                        return moved;
+                    }
+                    Path target = pathFor(directory + "/" + file.getFileName());
+                    Files.createDirectories(target.getParent());
+                    try {
+                        StreamingFileWriter.moveIntoPlace(file, target);
+                        moved++;
+                    } catch (NoSuchFileException e) {
+                        log.debug("{} was deleted while being moved", file);
+                    }
+                }
+            }
+        }
+        return moved;
+    }
+
+    Path pathFor(String key) {
+        int slash = key.lastIndexOf('/');
+        String name = key.substring(slash + 1);
+        String shard = isHexPrefixed(name)
+                ? name
+                : HexFormat.of().formatHex(StreamingFileWriter.sha256().digest(name.getBytes(StandardCharsets.UTF_8)));
+        Path directory = slash < 0 ? root : root.resolve(checkedDirectory(key.substring(0, slash)));
+        return directory.resolve(shard.substring(0, 2)).resolve(shard.substring(2, 4)).resolve(checkedName(name));
+    }
+
+    private Path flatPathFor(String key) {
+        int slash = key.lastIndexOf('/');
+        Path directory = slash < 0 ? root : root.resolve(checkedDirectory(key.substring(0, slash)));
+        return directory.resolve(checkedName(key.substring(slash + 1)));
+    }
+
+    // Current layout first, then the pre-sharding one; new objects always go to the former
+    private Path locate(String key) {
+        Path sharded = pathFor(key);
+        if (Files.exists(sharded)) {
+            return sharded;
+        }
+        Path flat = flatPathFor(key);
+        return Files.exists(flat) ? flat : sharded;
+    }
+
+    private static boolean isHexPrefixed(String name) {
+        if (name.length() < 4) {
+            return false;
+        }
+        for (int i = 0; i < 4; i++) {
+            if (Character.digit(name.charAt(i), 16) < 0 || Character.isUpperCase(name.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String checkedDirectory(String directory) {
+        for (String segment : directory.split("/")) {
+            checkedName(segment);
+        }
+        return directory;
+    }
+
+    private static String checkedName(String name) {
+        if (name.isEmpty() || name.equals(".") || name.equals("..") || name.contains("\\")) {
+            throw new IllegalArgumentException("Invalid storage key segment: " + name);
+        }
+        return name;
+    }
+}
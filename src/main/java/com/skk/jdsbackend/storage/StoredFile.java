@@ -0,0 +1,13 @@
+package com.skk.jdsbackend.storage;
+
+/**
+ * Result of a completed write: the storage key the bytes ended up under, how many
+ * there were, their SHA-256 (lower-case hex) and the type sniffed from the
+ * leading bytes (null if unrecognised).
+ */
+public record StoredFile(String key, long size, String sha256, String sniffedContentType) {
+
+    public StoredFile withKey(String newKey) {
+        return new StoredFile(newKey, size, sha256, sniffedContentType);
+    }
+}
@@ -0,0 +1,128 @@
+package com.skk.jdsbackend.storage;
+
+import com.skk.jdsbackend.exception.PayloadTooLargeException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * Copies an upload stream to its destination in a single pass. The digest and the
+ * content type are computed from the same buffer that is written, so the bytes
+ * are never read back. On disk, data goes to a ".part" file that is renamed into
+ * place only once complete, so readers never observe a partial file.
+ */
+@Component
+@Slf4j
+public class StreamingFileWriter {
+
+    static final String PART_SUFFIX = ".part";
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Writes the stream to target via a ".part" file next to it, replacing any
+     * existing file. maxBytes <= 0 means unlimited.
+     *
+     * @throws PayloadTooLargeException if the stream is longer than maxBytes
+     */
+    public StoredFile write(String key, InputStream in, Path target, long maxBytes) throws IOException {
+        Files.createDirectories(target.getParent());
+        Path part = target.resolveSibling(target.getFileName() + PART_SUFFIX);
+        boolean completed = false;
+        try {
+            StoredFile stored;
+            try (OutputStream out = Files.newOutputStream(part, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                stored = copy(key, in, out, maxBytes);
+            }
+            moveIntoPlace(part, target);
+            completed = true;
+            return stored;
+        } finally {
+            if (!completed) {
+                deleteQuietly(part);
+            }
+        }
+    }
+
+    /**
+     * Digests and sniffs a file that is already on disk, without copying it.
+     */
+    public StoredFile describe(String key, Path file) throws IOException {
+        try (InputStream in = Files.newInputStream(file)) {
+            return copy(key, in, OutputStream.nullOutputStream(), 0);
+        }
+    }
+
+    /**
+     * Copies the stream into out, digesting and sniffing it on the way. Does not
+     * close either stream.
+     *
+     * @throws PayloadTooLargeException if the stream is longer than maxBytes
+     */
+    public StoredFile copy(String key, InputStream in, OutputStream out, long maxBytes) throws IOException {
+        MessageDigest digest = sha256();
+        byte[] head = new byte[ContentTypeSniffer.HEAD_LENGTH];
+        int headLength = 0;
+        long size = 0;
+
+        byte[] buffer = new byte[BUFFER_SIZE];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            if (headLength < head.length) {
+                int take = Math.min(read, head.length - headLength);
+                System.arraycopy(buffer, 0, head, headLength, take);
+                headLength += take;
+            }
+            size += read;
+            if (maxBytes > 0 && size > maxBytes) {
+                throw new PayloadTooLargeException("Upload exceeds the maximum size of " + maxBytes + " bytes");
+            }
+            digest.update(buffer, 0, read);
+            out.write(buffer, 0, read);
+        }
+
+        return new StoredFile(key, size, HexFormat.of().formatHex(digest.digest()),
+                ContentTypeSniffer.sniff(head, headLength));
+    }
+
+    /**
+     * Renames a finished file into place, atomically where the filesystem allows.
+     * An existing target is replaced.
+     */
+    public static void moveIntoPlace(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            // Same filesystem, so this only happens on unusual ones
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    public static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.warn("Could not remove {}", path, e);
+        }
+    }
+
+    static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
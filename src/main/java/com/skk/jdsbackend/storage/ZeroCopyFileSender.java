@@ -0,0 +1,266 @@
+package com.skk.jdsbackend.storage;
+
+import com.skk.jdsbackend.exception.TooManyRequestsException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serving path for large files that, where the connector allows, keeps the bytes
+ * off the Java heap.
+ *
+ * On Tomcat with sendfile enabled (the default NIO connector) the file is handed
+ * to the connector, which writes it with sendfile(2) after the request thread has
+ * returned. Otherwise the file is pushed with FileChannel.transferTo into a
+ * channel over the response stream. That fallback is not zero-copy: the channel
+ * Channels.newChannel wraps around the stream copies each write through a small
+ * heap buffer, much as the message converters do, so it only saves their
+ * per-request overhead. These blocking transfers tie up a request thread for
+ * their whole duration, so at most app.storage.zero-copy.max-concurrent run at
+ * once; beyond that callers get 429.
+ *
+ * Sendfile transfers do not take a permit. Tomcat offers no callback when one
+ * finishes, and while it runs it holds a connection on the poller rather than a
+ * request thread, so their number is capped by server.tomcat.max-connections.
+ * Setting app.storage.zero-copy.sendfile=false sends every download through the
+ * bounded blocking path instead.
+ *
+ * Conditional requests and single byte ranges are handled here. Small files and
+ * multi-range requests are left to the regular ResponseEntity path. Documents
+ * compressed at rest are sent as their stored gzip stream, with
+ * Content-Encoding: gzip, to clients that accept it.
+ */
+@Component
+@Slf4j
+public class ZeroCopyFileSender {
+
+    static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    private final long minBytes;
+    private final long acquireTimeoutMillis;
+    private final Semaphore transfers;
+    private final boolean sendfileEnabled;
+
+    public ZeroCopyFileSender(@Value("${app.storage.zero-copy.min-bytes:1048576}") long minBytes,
+                              @Value("${app.storage.zero-copy.max-concurrent:16}") int maxConcurrent,
+                              @Value("${app.storage.zero-copy.acquire-timeout-ms:2000}") long acquireTimeoutMillis,
+                              @Value("${app.storage.zero-copy.sendfile:true}") boolean sendfileEnabled) {
+        this.minBytes = minBytes;
+        this.acquireTimeoutMillis = acquireTimeoutMillis;
+        this.transfers = new Semaphore(maxConcurrent, true);
+        this.sendfileEnabled = sendfileEnabled;
+    }
+
+    /**
+     * Writes the download straight to the response if it qualifies.
+     *
+     * @return false if nothing was written and the caller should use
+     *         FileDownload.toResponse instead
+     */
+    public boolean send(FileDownload download, String disposition, HttpServletRequest request,
+                        HttpServletResponse response) throws IOException {
+        if (download.resource() instanceof FramedResource framed) {
+            // Compressed at rest: clients that take gzip get the stored members as
+            // they are; ranges and identity requests are decompressed by the
+            // ResponseEntity path
+            if (request.getHeader(HttpHeaders.RANGE) == null && framed.gzipLength() > 0 && acceptsGzip(request)
+                    && framed.stored() instanceof FileSystemResource file) {
+                return sendRegion(download, gzipEtag(download.etag()), disposition, request, response,
+                        file.getFile().toPath(), framed.gzipOffset(), framed.gzipLength(), List.of(), true);
+            }
+            return false;
+        }
+        if (!(download.resource() instanceof FileSystemResource file)) {
+            return false;
+        }
+        long length = file.contentLength();
+        if (length < minBytes) {
+            return false;
+        }
+
+        List<HttpRange> ranges = List.of();
+        String rangeHeader = request.getHeader(HttpHeaders.RANGE);
+        if (rangeHeader != null && ifRangeMatches(request, download)) {
+            try {
+                ranges = HttpRange.parseRanges(rangeHeader);
+            } catch (IllegalArgumentException e) {
+                return rangeNotSatisfiable(response, length);
+            }
+            if (ranges.size() > 1) {
+                // multipart/byteranges is rare enough to leave to Spring
+                return false;
+            }
+        }
+        return sendRegion(download, download.etag(), disposition, request, response,
+                file.getFile().toPath(), 0, length, ranges, false);
+    }
+
+    // Sends length bytes of path starting at offset, or the requested range of them
+    private boolean sendRegion(FileDownload download, String etag, String disposition, HttpServletRequest request,
+                               HttpServletResponse response, Path path, long offset, long length,
+                               List<HttpRange> ranges, boolean gzip) throws IOException {
+        ServletWebRequest webRequest = new ServletWebRequest(request, response);
+        if (webRequest.checkNotModified(etag, download.lastModified().toEpochMilli())) {
+            return true;
+        }
+
+        long start = 0;
+        long end = length - 1;
+        if (!ranges.isEmpty()) {
+            try {
+                start = ranges.get(0).getRangeStart(length);
+                end = ranges.get(0).getRangeEnd(length);
+            } catch (IllegalArgumentException e) {
+                return rangeNotSatisfiable(response, length);
+            }
+            if (start >= length || start > end) {
+                return rangeNotSatisfiable(response, length);
+            }
+        }
+        long count = end - start + 1;
+
+        boolean head = "HEAD".equals(request.getMethod());
+        boolean sendfile = sendfileEnabled && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT));
+        // Sendfile runs on the connector after we return; see the class comment for its limit
+        boolean blocking = !head && !sendfile && count > 0;
+        // Acquire before any header is set so a 429 can still be rendered normally
+        if (blocking) {
+            acquire();
+        }
+        try {
+            writeHeaders(download, etag, disposition, response, length, start, end, !ranges.isEmpty(), gzip);
+            if (head || count == 0) {
+                return true;
+            }
+            if (sendfile) {
+                request.setAttribute(SENDFILE_FILENAME, path.toAbsolutePath().toString());
+                request.setAttribute(SENDFILE_START, offset + start);
+                request.setAttribute(SENDFILE_END, offset + end + 1);
+            } else {
+                transfer(path, offset + start, count, response);
+            }
+            return true;
+        } finally {
+            if (blocking) {
+                transfers.release();
+            }
+        }
+    }
+
+    private void writeHeaders(FileDownload download, String etag, String disposition, HttpServletResponse response,
+                              long length, long start, long end, boolean partial, boolean gzip) {
+        response.setContentType(download.contentType());
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, download.contentDisposition(disposition));
+        response.setHeader(HttpHeaders.CACHE_CONTROL, FileDownload.CACHE_CONTROL.getHeaderValue());
+        response.setHeader(HttpHeaders.ETAG, etag);
+        response.setDateHeader(HttpHeaders.LAST_MODIFIED, download.lastModified().toEpochMilli());
+        if (gzip) {
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+            response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        } else {
+            response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        }
+        if (partial) {
+            response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length);
+        }
+        response.setContentLengthLong(end - start + 1);
+    }
+
+    private void transfer(Path path, long start, long count, HttpServletResponse response) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+            long position = start;
+            long remaining = count;
+            while (remaining > 0) {
+                long sent = channel.transferTo(position, remaining, out);
+                if (sent <= 0) {
+                    // File shrank underneath us; the short Content-Length makes the client retry
+                    log.warn("Short transfer of {} at offset {}", path, position);
+                    break;
+                }
+                position += sent;
+                remaining -= sent;
+            }
+        }
+    }
+
+    private void acquire() throws InterruptedIOException {
+        try {
+            if (!transfers.tryAcquire(acquireTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                throw new TooManyRequestsException("Too many concurrent downloads, please retry shortly", 1);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a transfer slot");
+        }
+    }
+
+    // A Range is honoured only if If-Range is absent or still names the current representation
+    private static boolean ifRangeMatches(HttpServletRequest request, FileDownload download) {
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange == null) {
+            return true;
+        }
+        if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+            return ifRange.equals(download.etag());
+        }
+        try {
+            long since = request.getDateHeader(HttpHeaders.IF_RANGE);
+            return since != -1 && download.lastModified().toEpochMilli() / 1000 <= since / 1000;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    // The gzip-encoded representation needs its own strong validator
+    private static String gzipEtag(String etag) {
+        return etag.substring(0, etag.length() - 1) + "-gzip\"";
+    }
+
+    private static boolean acceptsGzip(HttpServletRequest request) {
+        String acceptEncoding = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.trim().split(";");
+            if (parts[0].trim().equalsIgnoreCase("gzip")) {
+                for (int i = 1; i < parts.length; i++) {
+                    String param = parts[i].trim();
+                    if (param.startsWith("q=") && param.substring(2).trim().matches("0(\\.0*)?")) {
+                        return false;
+                    }
+                }
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean rangeNotSatisfiable(HttpServletResponse response, long length) {
+        response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+        response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+        return true;
+    }
+}
@@ -0,0 +1,125 @@
+package com.skk.jdsbackend.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.core.io.FileSystemResource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Download throughput of the three ways a file can reach the client:
+ * - resourceCopy: what ResourceHttpMessageConverter does, a heap-buffer copy
+ *   from the resource's InputStream into the response stream
+ * - transferToStream: ZeroCopyFileSender's fallback, FileChannel.transferTo
+ *   into a channel over the response stream
+ * - transferToFile: transferTo between file descriptors, the kernel path
+ *   (sendfile/copy_file_range) Tomcat's sendfile support uses for sockets
+ *
+ * The response is simulated by a sink that discards bytes, and /dev/null for the
+ * descriptor case. Multiply ops/s by fileSize for bytes/s; run with
+ * -prof gc to compare allocation per download.
+ *
+ * Run with -Dexec.args=FileServingBenchmark, see package-info.java.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+public class FileServingBenchmark {
+
+    @Param({ "1048576", "67108864" })
+    private int fileSize;
+
+    private Path file;
+    private FileChannel devNull;
+
+    @Setup
+    public void setUp() throws IOException {
+        file = Files.createTempFile("file-serving", ".bin");
+        byte[] chunk = new byte[1024 * 1024];
+        ThreadLocalRandom.current().nextBytes(chunk);
+        try (OutputStream out = Files.newOutputStream(file)) {
+            for (int written = 0; written < fileSize; written += chunk.length) {
+                out.write(chunk, 0, Math.min(chunk.length, fileSize - written));
+            }
+        }
+        devNull = FileChannel.open(Paths.get("/dev/null"), StandardOpenOption.WRITE);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        devNull.close();
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public long resourceCopy() throws IOException {
+        CountingSink sink = new CountingSink();
+        try (InputStream in = new FileSystemResource(file).getInputStream()) {
+            in.transferTo(sink);
+        }
+        return sink.count;
+    }
+
+    @Benchmark
+    public long transferToStream() throws IOException {
+        CountingSink sink = new CountingSink();
+        WritableByteChannel out = Channels.newChannel(sink);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            transferAll(channel, out);
+        }
+        return sink.count;
+    }
+
+    @Benchmark
+    public long transferToFile() throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return transferAll(channel, devNull);
+        }
+    }
+
+    private long transferAll(FileChannel channel, WritableByteChannel out) throws IOException {
+        long position = 0;
+        long size = channel.size();
+        while (position < size) {
+            position += channel.transferTo(position, size - position, out);
+        }
+        return position;
+    }
+
+    // Discards the bytes and only counts them
+    private static final class CountingSink extends OutputStream {
+        private long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(FileServingBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,130 @@
+package com.skk.jdsbackend.benchmark;
+
+import com.skk.jdsbackend.entity.Role;
+import com.skk.jdsbackend.entity.User;
+import com.skk.jdsbackend.security.JwtAuthenticationFilter;
+import com.skk.jdsbackend.security.JwtUtils;
+import com.skk.jdsbackend.security.TokenRevocationService;
+import com.skk.jdsbackend.security.UserDetailsImpl;
+import com.skk.jdsbackend.security.UserDetailsServiceImpl;
+import com.skk.jdsbackend.security.UserPrincipalCache;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hot path of JwtAuthenticationFilter: token verification and claim extraction,
+ * and the whole filter with a warm principal cache.
+ *
+ * Run with -Dexec.args=JwtFilterBenchmark, see package-info.java.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtFilterBenchmark {
+
+    private static final String SECRET = "benchmark-secret-key-that-is-long-enough-for-hs512-signing-0123456789";
+
+    private JwtUtils jwtUtils;
+    private JwtAuthenticationFilter filter;
+    private JwtAuthenticationFilter statelessFilter;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        jwtUtils = new JwtUtils();
+        ReflectionTestUtils.setField(jwtUtils, "jwtSecret", SECRET);
+        ReflectionTestUtils.setField(jwtUtils, "jwtExpirationMs", TimeUnit.HOURS.toMillis(1));
+        ReflectionTestUtils.invokeMethod(jwtUtils, "init");
+
+        User user = new User();
+        user.setId(1L);
+        user.setUsername("admin");
+        user.setEmail("admin@example.com");
+        user.setPassword("password");
+        user.setRoles(Set.of(Role.ADMIN));
+        UserDetailsImpl principal = UserDetailsImpl.build(user);
+        token = jwtUtils.generateJwtToken(principal);
+
+        UserDetailsServiceImpl userDetailsService = new UserDetailsServiceImpl() {
+            @Override
+            public UserDetails loadUserByUsername(String username) {
+                return principal;
+            }
+        };
+        UserPrincipalCache principalCache = new UserPrincipalCache(userDetailsService, 300, 1000);
+        filter = new JwtAuthenticationFilter();
+        ReflectionTestUtils.setField(filter, "jwtUtils", jwtUtils);
+        ReflectionTestUtils.setField(filter, "userPrincipalCache", principalCache);
+
+        statelessFilter = new JwtAuthenticationFilter();
+        ReflectionTestUtils.setField(statelessFilter, "jwtUtils", jwtUtils);
+        ReflectionTestUtils.setField(statelessFilter, "userPrincipalCache", principalCache);
+        ReflectionTestUtils.setField(statelessFilter, "tokenRevocationService", new TokenRevocationService());
+        ReflectionTestUtils.setField(statelessFilter, "statelessAuthorization", true);
+    }
+
+    /**
+     * Previous behaviour: key derived and parser built per call, token verified twice.
+     */
+    @Benchmark
+    public String validateThenExtractUncached() {
+        boolean valid = Jwts.parser()
+                .verifyWith(Keys.hmacShaKeyFor(SECRET.getBytes(StandardCharsets.UTF_8)))
+                .build()
+                .parseSignedClaims(token) != null;
+        return valid ? Jwts.parser()
+                .verifyWith(Keys.hmacShaKeyFor(SECRET.getBytes(StandardCharsets.UTF_8)))
+                .build()
+                .parseSignedClaims(token)
+                .getPayload()
+                .getSubject() : null;
+    }
+
+    @Benchmark
+    public Claims parseClaimsOnce() {
+        return jwtUtils.parseClaims(token);
+    }
+
+    @Benchmark
+    public Object filterWithWarmCache() throws Exception {
+        return runFilter(filter);
+    }
+
+    @Benchmark
+    public Object filterStatelessFromClaims() throws Exception {
+        return runFilter(statelessFilter);
+    }
+
+    private Object runFilter(JwtAuthenticationFilter target) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/cases");
+        request.addHeader("Authorization", "Bearer " + token);
+        target.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+        Object principal = SecurityContextHolder.getContext().getAuthentication().getPrincipal();
+        SecurityContextHolder.clearContext();
+        return principal;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(JwtFilterBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,54 @@
+package com.skk.jdsbackend.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Login throughput bound by BCrypt at different cost factors: one matches() per
+ * login, one encode() per registration. Size app.security.password-hashing.max-concurrent
+ * and bcrypt-strength from these numbers.
+ *
+ * Run with -Dexec.args=PasswordHashingBenchmark, see package-info.java.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+public class PasswordHashingBenchmark {
+
+    @Param({ "8", "10", "12" })
+    private int strength;
+
+    private BCryptPasswordEncoder encoder;
+    private String encodedPassword;
+
+    @Setup
+    public void setUp() {
+        encoder = new BCryptPasswordEncoder(strength);
+        encodedPassword = encoder.encode("password123");
+    }
+
+    @Benchmark
+    public boolean login() {
+        return encoder.matches("password123", encodedPassword);
+    }
+
+    @Benchmark
+    public String register() {
+        return encoder.encode("password123");
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(PasswordHashingBenchmark.class.getSimpleName())
+                .threads(Runtime.getRuntime().availableProcessors())
+                .build()).run();
+    }
+}
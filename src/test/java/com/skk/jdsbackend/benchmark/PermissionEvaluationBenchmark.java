@@ -0,0 +1,86 @@
+package com.skk.jdsbackend.benchmark;
+
+import com.skk.jdsbackend.entity.Permission;
+import com.skk.jdsbackend.entity.Role;
+import com.skk.jdsbackend.entity.User;
+import com.skk.jdsbackend.security.CustomPermissionEvaluator;
+import com.skk.jdsbackend.security.RolePermissionMapping;
+import com.skk.jdsbackend.security.UserDetailsImpl;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Permission checks as done by CustomPermissionEvaluator: the previous
+ * authority-string parsing and per-role set streaming, against the
+ * precomputed mask carried on the principal.
+ *
+ * Run with -Dexec.args=PermissionEvaluationBenchmark, see package-info.java.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PermissionEvaluationBenchmark {
+
+    // One granted through SUPERVISOR, one granted to neither role so the old path scans every set
+    @Param({ "ANALYTICS_VIEW", "SYSTEM_ADMIN" })
+    private String permissionName;
+
+    private final RolePermissionMapping rolePermissionMapping = new RolePermissionMapping();
+    private final CustomPermissionEvaluator evaluator = new CustomPermissionEvaluator();
+    private Authentication authentication;
+
+    @Setup
+    public void setUp() {
+        User user = new User();
+        user.setId(1L);
+        user.setUsername("worker");
+        user.setEmail("worker@example.com");
+        user.setPassword("password");
+        user.setRoles(Set.of(Role.CASE_WORKER, Role.SUPERVISOR));
+        UserDetailsImpl principal = UserDetailsImpl.build(user);
+        authentication = new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities());
+    }
+
+    /**
+     * Previous hasPrivilege: parse roles out of the authorities, valueOf the
+     * permission name, then stream each role's permission set.
+     */
+    @Benchmark
+    public boolean parseAuthoritiesAndStream() {
+        Set<Role> roles = authentication.getAuthorities().stream()
+                .filter(auth -> auth.getAuthority().startsWith("ROLE_"))
+                .map(auth -> auth.getAuthority().substring(5))
+                .map(Role::valueOf)
+                .collect(Collectors.toSet());
+        try {
+            Permission permission = Permission.valueOf(permissionName);
+            return roles.stream()
+                    .flatMap(role -> rolePermissionMapping.getPermissionsForRole(role).stream())
+                    .anyMatch(p -> p == permission);
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    @Benchmark
+    public boolean evaluatorWithPermissionMask() {
+        return evaluator.hasPermission(authentication, null, permissionName);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(PermissionEvaluationBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
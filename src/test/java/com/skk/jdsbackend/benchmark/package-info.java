@@ -0,0 +1,10 @@
+/**
+ * JMH benchmarks. They run in their own JVM with the test classpath, so JMH can
+ * fork them:
+ *
+ *   mvn test-compile exec:exec -Dexec.args=JwtFilterBenchmark
+ *
+ * exec.args goes to org.openjdk.jmh.Main, so it takes a benchmark name pattern
+ * and any JMH options; left empty, every benchmark runs.
+ */
+package com.skk.jdsbackend.benchmark;
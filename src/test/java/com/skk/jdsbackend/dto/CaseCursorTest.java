@@ -0,0 +1,36 @@
+package com.skk.jdsbackend.dto;
+
+import com.skk.jdsbackend.exception.BadRequestException;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CaseCursorTest {
+
+    @Test
+    void testEncodeDecodeRoundTrip() {
+        CaseCursor cursor = new CaseCursor(LocalDateTime.of(2025, 3, 14, 9, 26, 53, 589_793_000), 42L);
+
+        CaseCursor decoded = CaseCursor.decode(cursor.encode());
+
+        assertEquals(cursor.getUpdatedAt(), decoded.getUpdatedAt());
+        assertEquals(42L, decoded.getId());
+    }
+
+    @Test
+    void testEncodedCursorIsUrlSafe() {
+        CaseCursor cursor = new CaseCursor(LocalDateTime.of(2025, 1, 1, 0, 0), 7L);
+
+        String token = cursor.encode();
+
+        assertTrue(token.matches("[A-Za-z0-9_-]+"));
+    }
+
+    @Test
+    void testDecodeRejectsGarbage() {
+        assertThrows(BadRequestException.class, () -> CaseCursor.decode("not-a-cursor"));
+        assertThrows(BadRequestException.class, () -> CaseCursor.decode("%%%"));
+    }
+}
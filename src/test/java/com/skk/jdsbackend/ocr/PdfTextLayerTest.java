@@ -0,0 +1,64 @@
+package com.skk.jdsbackend.ocr;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.pdfbox.pdmodel.font.Standard14Fonts;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PdfTextLayerTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testTextPagesAndScannedPagesAreToldApart() throws Exception {
+        byte[] pdf = textThenBlankPage("This agreement is made between the parties named below.");
+        Path file = Files.write(tempDir.resolve("doc.pdf"), pdf);
+
+        for (Resource content : new Resource[] { new FileSystemResource(file), new ByteArrayResource(pdf) }) {
+            try (PdfTextLayer layer = PdfTextLayer.open(content)) {
+                assertEquals(2, layer.pageCount());
+                String first = layer.pageText(0);
+                assertTrue(first.contains("This agreement is made"), first);
+                assertTrue(PdfTextLayer.hasText(first, 16));
+                assertFalse(PdfTextLayer.hasText(layer.pageText(1), 16));
+            }
+        }
+    }
+
+    @Test
+    void testHasTextCountsNonWhitespaceOnly() {
+        assertFalse(PdfTextLayer.hasText("  12 \n\n ", 16));
+        assertTrue(PdfTextLayer.hasText(" a b c d ", 4));
+    }
+
+    private static byte[] textThenBlankPage(String text) throws Exception {
+        try (PDDocument document = new PDDocument()) {
+            PDPage page = new PDPage();
+            document.addPage(page);
+            try (PDPageContentStream stream = new PDPageContentStream(document, page)) {
+                stream.beginText();
+                stream.setFont(new PDType1Font(Standard14Fonts.FontName.HELVETICA), 12);
+                stream.newLineAtOffset(72, 700);
+                stream.showText(text);
+                stream.endText();
+            }
+            document.addPage(new PDPage());
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            document.save(out);
+            return out.toByteArray();
+        }
+    }
+}
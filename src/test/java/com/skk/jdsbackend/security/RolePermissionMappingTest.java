@@ -112,4 +112,11 @@ class RolePermissionMappingTest {
         Set<Role> caseWorkerRole = Set.of(Role.CASE_WORKER);
         assertFalse(rolePermissionMapping.hasPermission(caseWorkerRole, Permission.DOCUMENT_SIGN));
     }
+
+    @Test
+    void testPermissionsFitInRoleBitmask() {
+        // Each role's permissions are one bit per ordinal in a long
+        assertTrue(Permission.values().length <= Long.SIZE,
+                "Permission has " + Permission.values().length + " constants, at most " + Long.SIZE + " fit");
+    }
 }
@@ -0,0 +1,456 @@
+package com.skk.jdsbackend.service;
+
+import com.skk.jdsbackend.dto.OcrJobResponse;
+import com.skk.jdsbackend.entity.Document;
+import com.skk.jdsbackend.entity.ExtractedText;
+import com.skk.jdsbackend.entity.OcrJob;
+import com.skk.jdsbackend.entity.OcrJobStatus;
+import com.skk.jdsbackend.ocr.OcrEngine;
+import com.skk.jdsbackend.repository.DocumentRepository;
+import com.skk.jdsbackend.repository.ExtractedTextRepository;
+import com.skk.jdsbackend.repository.OcrJobRepository;
+import com.skk.jdsbackend.storage.BlobStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.pdfbox.pdmodel.font.Standard14Fonts;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.BeanUtils;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.Resource;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class DocumentOCRServiceTest {
+
+    private static final long DOCUMENT_ID = 1L;
+    private static final String CHECKSUM = "a".repeat(64);
+
+    // ocr_jobs and extracted_texts, with the conditional updates evaluated the way the queries do
+    private final Map<Long, OcrJob> jobs = new ConcurrentHashMap<>();
+    private final Map<String, ExtractedText> texts = new ConcurrentHashMap<>();
+    private final AtomicLong ids = new AtomicLong();
+
+    private final StubEngine engine = new StubEngine();
+    private final BlobStore blobStore = mock(BlobStore.class);
+    private final Document document = new Document();
+    private DocumentOCRService service;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        document.setId(DOCUMENT_ID);
+        document.setFileType("image/tiff");
+        document.setChecksum(CHECKSUM);
+        DocumentRepository documentRepository = mock(DocumentRepository.class);
+        when(documentRepository.findById(DOCUMENT_ID)).thenReturn(Optional.of(document));
+
+        when(blobStore.resource(anyString())).thenReturn(new ByteArrayResource(new byte[] { 1, 2, 3 }));
+
+        service = new DocumentOCRService(documentRepository, jobRepository(), textRepository(), blobStore,
+                engine, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(service, "workers", 2);
+        ReflectionTestUtils.setField(service, "queueCapacity", 10);
+        ReflectionTestUtils.setField(service, "pageWorkers", 2);
+        ReflectionTestUtils.setField(service, "stallTimeoutMs", 60_000L);
+        ReflectionTestUtils.setField(service, "autoEnqueue", true);
+        ReflectionTestUtils.setField(service, "pdfTextMinChars", 16);
+        service.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        engine.gate.countDown();
+        service.stopWorkers();
+    }
+
+    @Test
+    void testSubmittedJobCompletes() {
+        engine.open();
+
+        OcrJobResponse submitted = service.submit(DOCUMENT_ID, "alice");
+
+        awaitStatus(submitted.getId(), OcrJobStatus.COMPLETED);
+        OcrJobResponse job = service.getJob(submitted.getId());
+        assertEquals(3, job.getPagesTotal());
+        assertEquals(3, job.getPagesCompleted());
+        assertEquals(0, job.getTextLayerPages());
+        assertEquals("page 0\n\npage 1\n\npage 2", service.getText(document));
+    }
+
+    @Test
+    void testEngineFailureMarksJobFailed() {
+        engine.failOn = 1;
+        engine.open();
+
+        OcrJobResponse submitted = service.submit(DOCUMENT_ID, "alice");
+
+        awaitStatus(submitted.getId(), OcrJobStatus.FAILED);
+        assertEquals("unreadable page 1", service.getJob(submitted.getId()).getError());
+        assertNull(service.getText(document));
+    }
+
+    @Test
+    void testDuplicateSubmitJoinsUnfinishedJob() {
+        OcrJobResponse first = service.submit(DOCUMENT_ID, "alice");
+        awaitPageInFlight();
+
+        OcrJobResponse second = service.submit(DOCUMENT_ID, "bob");
+
+        assertEquals(first.getId(), second.getId());
+        assertEquals(1, jobs.size());
+        engine.open();
+        awaitStatus(first.getId(), OcrJobStatus.COMPLETED);
+    }
+
+    @Test
+    void testStalledJobIsRequeuedAndRunAgain() {
+        // Left RUNNING by an instance that went away
+        OcrJob job = newJob();
+        job.setStatus(OcrJobStatus.RUNNING);
+        job.setAttempt(1);
+        job.setUpdatedAt(LocalDateTime.now().minusHours(1));
+        engine.open();
+
+        service.sweep();
+
+        awaitStatus(job.getId(), OcrJobStatus.COMPLETED);
+        assertEquals(2, jobs.get(job.getId()).getAttempt());
+        assertEquals("page 0\n\npage 1\n\npage 2", service.getText(document));
+    }
+
+    @Test
+    void testSlowPageKeepsJobAlive() {
+        OcrJobResponse submitted = service.submit(DOCUMENT_ID, "alice");
+        awaitPageInFlight();
+        jobs.get(submitted.getId()).setUpdatedAt(LocalDateTime.now().minusHours(1));
+
+        service.sweep();
+
+        OcrJob job = jobs.get(submitted.getId());
+        assertEquals(OcrJobStatus.RUNNING, job.getStatus());
+        assertEquals(1, job.getAttempt());
+        engine.open();
+        awaitStatus(submitted.getId(), OcrJobStatus.COMPLETED);
+    }
+
+    @Test
+    void testRequeuedRunCannotOverwriteItsSuccessor() {
+        OcrJobResponse submitted = service.submit(DOCUMENT_ID, "alice");
+        awaitPageInFlight();
+        // Meanwhile another instance requeued the job and claimed it again
+        OcrJob job = jobs.get(submitted.getId());
+        job.setAttempt(2);
+        job.setPagesCompleted(0);
+
+        engine.open();
+        await(() -> ((Collection<?>) ReflectionTestUtils.getField(service, "dispatched")).isEmpty());
+
+        assertEquals(OcrJobStatus.RUNNING, job.getStatus());
+        assertEquals(0, job.getPagesCompleted());
+    }
+
+    @Test
+    void testTextFromAnotherEngineIsExtractedAgain() {
+        texts.put(CHECKSUM, new ExtractedText(CHECKSUM, "placeholder text", 1, 0, "placeholder", null));
+        engine.open();
+
+        service.contentChanged(document);
+
+        assertEquals(1, jobs.size());
+        awaitStatus(jobs.keySet().iterator().next(), OcrJobStatus.COMPLETED);
+        assertEquals("page 0\n\npage 1\n\npage 2", service.getText(document));
+        assertEquals(engine.id(), texts.get(CHECKSUM).getEngine());
+        // Up to date now, so new content with the same bytes is not queued again
+        service.contentChanged(document);
+        assertEquals(1, jobs.size());
+    }
+
+    @Test
+    void testPdfPagesWithTextSkipOcr() throws Exception {
+        document.setFileType("application/pdf");
+        when(blobStore.resource(anyString())).thenReturn(new ByteArrayResource(
+                pdf("The tenant shall pay rent monthly.", null, "Signed by both parties on the date above.")));
+        engine.open();
+
+        OcrJobResponse submitted = service.submit(DOCUMENT_ID, "alice");
+
+        awaitStatus(submitted.getId(), OcrJobStatus.COMPLETED);
+        assertEquals(List.of(1), engine.pages);
+        OcrJobResponse job = service.getJob(submitted.getId());
+        assertEquals(3, job.getPagesTotal());
+        assertEquals(2, job.getTextLayerPages());
+        assertEquals("The tenant shall pay rent monthly.\n\npage 1\n\nSigned by both parties on the date above.",
+                service.getText(document));
+        assertEquals(engine.id(), texts.get(CHECKSUM).getEngine());
+    }
+
+    @Test
+    void testPdfWithOnlyTextLayerIsCachedForAnyEngine() throws Exception {
+        document.setFileType("application/pdf");
+        when(blobStore.resource(anyString())).thenReturn(new ByteArrayResource(
+                pdf("Every page of this contract was typed.")));
+
+        OcrJobResponse submitted = service.submit(DOCUMENT_ID, "alice");
+
+        awaitStatus(submitted.getId(), OcrJobStatus.COMPLETED);
+        assertEquals(List.of(), engine.pages);
+        assertNull(texts.get(CHECKSUM).getEngine());
+    }
+
+    @Test
+    void testCachedTextSkipsExtraction() throws Exception {
+        texts.put(CHECKSUM, new ExtractedText(CHECKSUM, "known text", 4, 1, engine.id(), null));
+
+        OcrJobResponse submitted = service.submit(DOCUMENT_ID, "alice");
+
+        awaitStatus(submitted.getId(), OcrJobStatus.COMPLETED);
+        verify(blobStore, never()).resource(anyString());
+        assertEquals(List.of(), engine.pages);
+        OcrJobResponse job = service.getJob(submitted.getId());
+        assertEquals(4, job.getPagesCompleted());
+        assertEquals(1, job.getTextLayerPages());
+        assertEquals("known text", service.getText(document));
+    }
+
+    @Test
+    void testDamagedPdfFallsBackToOcr() {
+        document.setFileType("application/pdf");
+        when(blobStore.resource(anyString())).thenReturn(new ByteArrayResource(
+                "%PDF-1.7 truncated".getBytes(StandardCharsets.US_ASCII)));
+        engine.open();
+
+        OcrJobResponse submitted = service.submit(DOCUMENT_ID, "alice");
+
+        awaitStatus(submitted.getId(), OcrJobStatus.COMPLETED);
+        assertEquals(List.of(0, 1, 2), engine.pages.stream().sorted().toList());
+        assertEquals(0, service.getJob(submitted.getId()).getTextLayerPages());
+        assertEquals("page 0\n\npage 1\n\npage 2", service.getText(document));
+    }
+
+    private OcrJobRepository jobRepository() {
+        OcrJobRepository repository = mock(OcrJobRepository.class);
+        when(repository.save(any(OcrJob.class))).thenAnswer(call -> {
+            OcrJob job = call.getArgument(0);
+            job.setId(ids.incrementAndGet());
+            job.setCreatedAt(LocalDateTime.now());
+            job.setUpdatedAt(job.getCreatedAt());
+            jobs.put(job.getId(), job);
+            return copy(job);
+        });
+        // Detached copies, like entities read outside a transaction
+        when(repository.findById(anyLong())).thenAnswer(call ->
+                Optional.ofNullable(jobs.get(call.<Long>getArgument(0))).map(DocumentOCRServiceTest::copy));
+        when(repository.findFirstByDocumentIdAndChecksumAndStatusIn(anyLong(), anyString(), anyCollection()))
+                .thenAnswer(call -> {
+                    Collection<OcrJobStatus> statuses = call.getArgument(2);
+                    return jobs.values().stream()
+                            .filter(job -> job.getDocumentId().equals(call.getArgument(0))
+                                    && job.getChecksum().equals(call.getArgument(1))
+                                    && statuses.contains(job.getStatus()))
+                            .findFirst()
+                            .map(DocumentOCRServiceTest::copy);
+                });
+        when(repository.findQueuedIds(any(Pageable.class))).thenAnswer(call -> jobs.values().stream()
+                .filter(job -> job.getStatus() == OcrJobStatus.QUEUED)
+                .map(OcrJob::getId)
+                .sorted()
+                .limit(call.<Pageable>getArgument(0).getPageSize())
+                .toList());
+
+        when(repository.claim(anyLong(), anyInt(), any())).thenAnswer(call -> update(call.getArgument(0),
+                job -> job.getStatus() == OcrJobStatus.QUEUED && job.getAttempt() == call.<Integer>getArgument(1),
+                job -> {
+                    job.setStatus(OcrJobStatus.RUNNING);
+                    job.setAttempt(job.getAttempt() + 1);
+                }));
+        when(repository.setPagesTotal(anyLong(), anyInt(), anyInt(), any())).thenAnswer(call ->
+                updateRunning(call.getArgument(0), call.getArgument(1),
+                        job -> job.setPagesTotal(call.getArgument(2))));
+        when(repository.pageCompleted(anyLong(), anyInt(), any())).thenAnswer(call ->
+                updateRunning(call.getArgument(0), call.getArgument(1),
+                        job -> job.setPagesCompleted(job.getPagesCompleted() + 1)));
+        when(repository.recordPages(anyLong(), anyInt(), anyInt(), anyInt(), any())).thenAnswer(call ->
+                updateRunning(call.getArgument(0), call.getArgument(1), job -> {
+                    job.setPagesTotal(call.getArgument(2));
+                    job.setPagesCompleted(call.getArgument(2));
+                    job.setTextLayerPages(call.getArgument(3));
+                }));
+        when(repository.heartbeat(anyLong(), anyInt(), any())).thenAnswer(call ->
+                updateRunning(call.getArgument(0), call.getArgument(1), job -> { }));
+        when(repository.finish(anyLong(), anyInt(), any(), any(), any())).thenAnswer(call ->
+                updateRunning(call.getArgument(0), call.getArgument(1), job -> {
+                    job.setStatus(call.getArgument(2));
+                    job.setError(call.getArgument(3));
+                }));
+        when(repository.requeueStalled(any(), any())).thenAnswer(call -> {
+            LocalDateTime cutoff = call.getArgument(0);
+            int requeued = 0;
+            for (OcrJob job : jobs.values()) {
+                requeued += update(job.getId(),
+                        stalled -> stalled.getStatus() == OcrJobStatus.RUNNING
+                                && stalled.getUpdatedAt().isBefore(cutoff),
+                        stalled -> {
+                            stalled.setStatus(OcrJobStatus.QUEUED);
+                            stalled.setPagesCompleted(0);
+                        });
+            }
+            return requeued;
+        });
+        return repository;
+    }
+
+    private ExtractedTextRepository textRepository() {
+        ExtractedTextRepository repository = mock(ExtractedTextRepository.class);
+        when(repository.findById(anyString())).thenAnswer(call ->
+                Optional.ofNullable(texts.get(call.<String>getArgument(0))));
+        when(repository.existsById(anyString())).thenAnswer(call -> texts.containsKey(call.<String>getArgument(0)));
+        when(repository.saveAndFlush(any(ExtractedText.class))).thenAnswer(call -> {
+            ExtractedText text = call.getArgument(0);
+            texts.put(text.getChecksum(), text);
+            return text;
+        });
+        return repository;
+    }
+
+    private int updateRunning(Long id, int attempt, Consumer<OcrJob> change) {
+        return update(id, job -> job.getStatus() == OcrJobStatus.RUNNING && job.getAttempt() == attempt, change);
+    }
+
+    private synchronized int update(Long id, Predicate<OcrJob> condition, Consumer<OcrJob> change) {
+        OcrJob job = jobs.get(id);
+        if (job == null || !condition.test(job)) {
+            return 0;
+        }
+        change.accept(job);
+        job.setUpdatedAt(LocalDateTime.now());
+        return 1;
+    }
+
+    private OcrJob newJob() {
+        OcrJob job = new OcrJob();
+        job.setId(ids.incrementAndGet());
+        job.setDocumentId(DOCUMENT_ID);
+        job.setChecksum(CHECKSUM);
+        job.setCreatedAt(LocalDateTime.now());
+        job.setUpdatedAt(job.getCreatedAt());
+        jobs.put(job.getId(), job);
+        return job;
+    }
+
+    // The run has claimed its job and is inside the engine
+    private void awaitPageInFlight() {
+        await(() -> engine.inFlight.get() > 0);
+    }
+
+    private void awaitStatus(Long jobId, OcrJobStatus status) {
+        await(() -> statusOf(jobId) == status);
+    }
+
+    // Read under the same lock as the updates the workers make
+    private synchronized OcrJobStatus statusOf(Long jobId) {
+        return jobs.get(jobId).getStatus();
+    }
+
+    private static void await(BooleanSupplier condition) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() > deadline) {
+                fail("Timed out waiting for the OCR worker");
+            }
+            Thread.onSpinWait();
+        }
+    }
+
+    private static OcrJob copy(OcrJob job) {
+        OcrJob copy = new OcrJob();
+        BeanUtils.copyProperties(job, copy);
+        return copy;
+    }
+
+    // One page per text; null leaves the page blank, like a scan
+    private static byte[] pdf(String... pages) throws IOException {
+        try (PDDocument pdf = new PDDocument()) {
+            for (String text : pages) {
+                PDPage page = new PDPage();
+                pdf.addPage(page);
+                if (text != null) {
+                    try (PDPageContentStream stream = new PDPageContentStream(pdf, page)) {
+                        stream.beginText();
+                        stream.setFont(new PDType1Font(Standard14Fonts.FontName.HELVETICA), 12);
+                        stream.newLineAtOffset(72, 700);
+                        stream.showText(text);
+                        stream.endText();
+                    }
+                }
+            }
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            pdf.save(out);
+            return out.toByteArray();
+        }
+    }
+
+    // Three pages; each waits until the test opens the gate
+    private static class StubEngine implements OcrEngine {
+
+        final CountDownLatch gate = new CountDownLatch(1);
+        final AtomicInteger inFlight = new AtomicInteger();
+        // Pages recognised so far
+        final List<Integer> pages = new CopyOnWriteArrayList<>();
+        volatile Integer failOn;
+
+        void open() {
+            gate.countDown();
+        }
+
+        @Override
+        public int pageCount(Resource content, String contentType) {
+            return 3;
+        }
+
+        @Override
+        public String recognizePage(Resource content, String contentType, int page) throws IOException {
+            inFlight.incrementAndGet();
+            try {
+                if (!gate.await(5, TimeUnit.SECONDS)) {
+                    throw new IOException("Gate never opened");
+                }
+                if (Integer.valueOf(page).equals(failOn)) {
+                    throw new IOException("unreadable page " + page);
+                }
+                pages.add(page);
+                return "page " + page;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException(e);
+            } finally {
+                inFlight.decrementAndGet();
+            }
+        }
+    }
+}
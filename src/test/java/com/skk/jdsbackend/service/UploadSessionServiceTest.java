@@ -0,0 +1,227 @@
+package com.skk.jdsbackend.service;
+
+import com.skk.jdsbackend.dto.DocumentResponse;
+import com.skk.jdsbackend.dto.UploadSessionCreateRequest;
+import com.skk.jdsbackend.dto.UploadSessionResponse;
+import com.skk.jdsbackend.entity.UploadSession;
+import com.skk.jdsbackend.entity.UploadSessionStatus;
+import com.skk.jdsbackend.entity.User;
+import com.skk.jdsbackend.exception.BadRequestException;
+import com.skk.jdsbackend.repository.CaseRepository;
+import com.skk.jdsbackend.repository.DocumentRepository;
+import com.skk.jdsbackend.repository.UploadSessionRepository;
+import com.skk.jdsbackend.repository.UserRepository;
+import com.skk.jdsbackend.storage.BlobStore;
+import com.skk.jdsbackend.storage.StoredFile;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class UploadSessionServiceTest {
+
+    private static final String USER = "alice";
+    private static final long CASE_ID = 7L;
+
+    private final Map<String, UploadSession> sessions = new ConcurrentHashMap<>();
+    private final DocumentService documentService = mock(DocumentService.class);
+    private final BlobStore blobStore = mock(BlobStore.class);
+    private UploadSessionService service;
+
+    // What the blob store was handed on commit
+    private String committed;
+
+    @TempDir
+    Path dir;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        UploadSessionRepository sessionRepository = mock(UploadSessionRepository.class);
+        when(sessionRepository.save(any(UploadSession.class))).thenAnswer(call -> {
+            UploadSession session = call.getArgument(0);
+            sessions.put(session.getId(), session);
+            return session;
+        });
+        when(sessionRepository.findById(anyString())).thenAnswer(call ->
+                Optional.ofNullable(sessions.get(call.<String>getArgument(0))));
+        when(sessionRepository.findByIdForUpdate(anyString())).thenAnswer(call ->
+                Optional.ofNullable(sessions.get(call.<String>getArgument(0))));
+        doAnswer(call -> sessions.remove(call.<UploadSession>getArgument(0).getId()))
+                .when(sessionRepository).delete(any(UploadSession.class));
+
+        CaseRepository caseRepository = mock(CaseRepository.class);
+        when(caseRepository.existsById(CASE_ID)).thenReturn(true);
+
+        User user = new User();
+        user.setUsername(USER);
+        UserRepository userRepository = mock(UserRepository.class);
+        when(userRepository.findByUsername(USER)).thenReturn(Optional.of(user));
+
+        when(blobStore.storeExisting(any(Path.class))).thenAnswer(call -> {
+            Path file = call.getArgument(0);
+            committed = Files.readString(file);
+            Files.delete(file);
+            return new StoredFile(BlobStore.BLOB_PREFIX + "abc", committed.length(), "abc", null);
+        });
+        when(documentService.createDocumentFromBlob(eq(CASE_ID), anyString(), any(), any(StoredFile.class)))
+                .thenAnswer(call -> {
+                    DocumentResponse response = new DocumentResponse();
+                    response.setFileName(call.getArgument(1));
+                    return response;
+                });
+
+        PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenAnswer(call -> new SimpleTransactionStatus());
+
+        service = new UploadSessionService(sessionRepository, caseRepository, mock(DocumentRepository.class),
+                userRepository, documentService, mock(DocumentVersionService.class), blobStore,
+                new TransactionTemplate(transactionManager));
+        ReflectionTestUtils.setField(service, "uploadDir", dir.toString());
+        ReflectionTestUtils.setField(service, "chunkSize", 4);
+        ReflectionTestUtils.setField(service, "maxBytes", 1024L);
+        ReflectionTestUtils.setField(service, "ttlMillis", 60_000L);
+        ReflectionTestUtils.setField(service, "writeTimeoutMillis", 60_000L);
+    }
+
+    @Test
+    void testChunksArrivingOutOfOrderAreAssembledInPlace() {
+        String id = create(10).getId();
+
+        service.writeChunk(id, 2, stream("89"), USER);
+        service.writeChunk(id, 0, stream("0123"), USER);
+        UploadSessionResponse last = service.writeChunk(id, 1, stream("4567"), USER);
+        assertTrue(last.getComplete());
+
+        UploadSessionService.CommitResult result = service.commit(id, USER);
+
+        assertEquals("report.pdf", result.document().getFileName());
+        assertEquals("0123456789", committed);
+        assertTrue(sessions.isEmpty());
+        assertEquals(List.of(), sessionFiles());
+    }
+
+    @Test
+    void testResentChunkOverwritesEarlierCopy() {
+        String id = create(6).getId();
+
+        service.writeChunk(id, 0, stream("xxxx"), USER);
+        UploadSessionResponse resent = service.writeChunk(id, 0, stream("abcd"), USER);
+        assertEquals(1, resent.getReceivedChunks());
+        assertEquals(List.of(1), resent.getMissingChunks());
+
+        service.writeChunk(id, 1, stream("ef"), USER);
+        service.commit(id, USER);
+
+        assertEquals("abcdef", committed);
+    }
+
+    @Test
+    void testChunksOfTheWrongSizeAreRejected() {
+        String id = create(6).getId();
+
+        assertThrows(BadRequestException.class, () -> service.writeChunk(id, 0, stream("abcde"), USER));
+        assertThrows(BadRequestException.class, () -> service.writeChunk(id, 1, stream("e"), USER));
+        assertThrows(BadRequestException.class, () -> service.writeChunk(id, 2, stream("gh"), USER));
+
+        assertEquals(List.of(0, 1), service.getSession(id, USER).getMissingChunks());
+        assertEquals(0, sessions.get(id).getActiveWrites());
+        // Written in place, nothing spooled next to the session file
+        assertEquals(List.of(id + ".upload"), sessionFiles());
+    }
+
+    @Test
+    void testCommitWithMissingChunksKeepsSession() throws Exception {
+        String id = create(10).getId();
+        service.writeChunk(id, 0, stream("0123"), USER);
+        service.writeChunk(id, 2, stream("89"), USER);
+
+        BadRequestException error = assertThrows(BadRequestException.class, () -> service.commit(id, USER));
+
+        assertTrue(error.getMessage().contains("2 of 3"), error.getMessage());
+        verify(blobStore, never()).storeExisting(any());
+        // Still resumable
+        service.writeChunk(id, 1, stream("4567"), USER);
+        service.commit(id, USER);
+        assertEquals("0123456789", committed);
+    }
+
+    @Test
+    void testCommitWaitsForChunkWritesInFlight() {
+        String id = create(4).getId();
+        service.writeChunk(id, 0, stream("0123"), USER);
+        // As if another instance were still writing a resent chunk
+        UploadSession session = sessions.get(id);
+        session.setActiveWrites(1);
+        session.setUpdatedAt(LocalDateTime.now());
+
+        assertThrows(BadRequestException.class, () -> service.commit(id, USER));
+        assertEquals(UploadSessionStatus.UPLOADING, session.getStatus());
+
+        // A count left behind by a crashed instance expires with the write timeout
+        session.setUpdatedAt(LocalDateTime.now().minusMinutes(5));
+        service.commit(id, USER);
+        assertEquals("0123", committed);
+    }
+
+    @Test
+    void testChunksAreRefusedWhileCommitting() {
+        String id = create(4).getId();
+        sessions.get(id).setStatus(UploadSessionStatus.COMMITTING);
+
+        assertThrows(BadRequestException.class, () -> service.writeChunk(id, 0, stream("0123"), USER));
+        assertThrows(BadRequestException.class, () -> service.abort(id, USER));
+        assertEquals(0, sessions.get(id).getActiveWrites());
+    }
+
+    @Test
+    void testFailedStoreReopensSession() throws Exception {
+        String id = create(4).getId();
+        service.writeChunk(id, 0, stream("0123"), USER);
+        when(blobStore.storeExisting(any(Path.class))).thenThrow(new IOException("disk full"));
+
+        assertThrows(RuntimeException.class, () -> service.commit(id, USER));
+
+        assertEquals(UploadSessionStatus.UPLOADING, sessions.get(id).getStatus());
+        assertEquals(List.of(id + ".upload"), sessionFiles());
+    }
+
+    private UploadSessionResponse create(long totalSize) {
+        UploadSessionCreateRequest request = new UploadSessionCreateRequest();
+        request.setCaseId(CASE_ID);
+        request.setFileName("report.pdf");
+        request.setTotalSize(totalSize);
+        return service.createSession(request, USER);
+    }
+
+    private List<String> sessionFiles() {
+        try (Stream<Path> files = Files.list(dir.resolve("sessions"))) {
+            return files.map(file -> file.getFileName().toString()).toList();
+        } catch (Exception e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    private static InputStream stream(String text) {
+        return new ByteArrayInputStream(text.getBytes(StandardCharsets.US_ASCII));
+    }
+}
@@ -0,0 +1,210 @@
+package com.skk.jdsbackend.storage;
+
+import com.skk.jdsbackend.entity.StoredBlob;
+import com.skk.jdsbackend.repository.ExtractedTextRepository;
+import com.skk.jdsbackend.repository.StoredBlobRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class BlobStoreTest {
+
+    private static final long GRACE_MILLIS = 60_000;
+
+    // stored_blobs, with the conditional updates evaluated the way the queries do
+    private final Map<String, StoredBlob> rows = new ConcurrentHashMap<>();
+    private final InMemoryDocumentStorage storage = new InMemoryDocumentStorage(new StreamingFileWriter());
+    private final ExtractedTextRepository extractedTextRepository = mock(ExtractedTextRepository.class);
+    private BlobStore blobStore;
+
+    @TempDir
+    Path dir;
+
+    @BeforeEach
+    void setUp() {
+        StoredBlobRepository repository = mock(StoredBlobRepository.class);
+        when(repository.incrementRefCount(anyString())).thenAnswer(call -> {
+            StoredBlob row = rows.get(call.<String>getArgument(0));
+            if (row == null) {
+                return 0;
+            }
+            row.setRefCount(row.getRefCount() + 1);
+            return 1;
+        });
+        when(repository.decrementRefCount(anyString(), any())).thenAnswer(call -> {
+            StoredBlob row = rows.get(call.<String>getArgument(0));
+            if (row == null || row.getRefCount() == 0) {
+                return 0;
+            }
+            row.setRefCount(row.getRefCount() - 1);
+            row.setReleasedAt(call.getArgument(1));
+            return 1;
+        });
+        when(repository.findUnreferencedBefore(any(), any(Pageable.class))).thenAnswer(call ->
+                rows.values().stream()
+                        .filter(row -> collectable(row, call.getArgument(0)))
+                        .map(StoredBlob::getSha256)
+                        .toList());
+        when(repository.deleteIfUnreferencedBefore(anyString(), any())).thenAnswer(call -> {
+            StoredBlob row = rows.get(call.<String>getArgument(0));
+            return row != null && collectable(row, call.getArgument(1)) && rows.remove(row.getSha256(), row) ? 1 : 0;
+        });
+        when(repository.findByIdForUpdate(anyString())).thenAnswer(call ->
+                Optional.ofNullable(rows.get(call.<String>getArgument(0))));
+        when(repository.saveAndFlush(any(StoredBlob.class))).thenAnswer(call -> {
+            StoredBlob row = call.getArgument(0);
+            row.setCreatedAt(Instant.now());
+            rows.put(row.getSha256(), row);
+            return row;
+        });
+
+        PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenAnswer(call -> new SimpleTransactionStatus());
+
+        blobStore = new BlobStore(repository, extractedTextRepository, storage, transactionManager);
+        ReflectionTestUtils.setField(blobStore, "gcGraceMillis", GRACE_MILLIS);
+        ReflectionTestUtils.setField(blobStore, "gcBatchSize", 100);
+    }
+
+    @Test
+    void testIdenticalContentIsStoredOnce() throws Exception {
+        StoredFile first = blobStore.store(stream("same bytes"), 0);
+        StoredFile second = blobStore.store(stream("same bytes"), 0);
+
+        assertEquals(first.key(), second.key());
+        assertEquals(BlobStore.keyOf(first.sha256()), first.key());
+        assertEquals(1, rows.size());
+        assertEquals(2L, rows.get(first.sha256()).getRefCount());
+        assertEquals("same bytes", read(first.key()));
+    }
+
+    @Test
+    void testRetainAndReleaseCountReferences() throws Exception {
+        StoredFile blob = blobStore.store(stream("contract"), 0);
+
+        StoredFile retained = blobStore.retain(blob.sha256(), blob.key());
+        assertEquals(blob.key(), retained.key());
+        assertEquals(8, retained.size());
+        assertEquals(2L, rows.get(blob.sha256()).getRefCount());
+
+        assertTrue(blobStore.release(blob.sha256()));
+        assertTrue(blobStore.release(blob.sha256()));
+        assertEquals(0L, rows.get(blob.sha256()).getRefCount());
+        // Nothing left to drop, and legacy rows have no blob at all
+        assertFalse(blobStore.release(blob.sha256()));
+        assertFalse(blobStore.release(null));
+    }
+
+    @Test
+    void testRetainImportsLegacyFile() throws Exception {
+        Path legacy = Files.writeString(dir.resolve("legacy.txt"), "uploaded before blobs");
+
+        StoredFile blob = blobStore.retain(null, legacy.toString());
+
+        assertEquals(1L, rows.get(blob.sha256()).getRefCount());
+        assertEquals("uploaded before blobs", read(blob.key()));
+        // The legacy file is still the caller's to delete
+        assertTrue(Files.exists(legacy));
+    }
+
+    @Test
+    void testGarbageCollectionWaitsForGracePeriod() throws Exception {
+        StoredFile blob = blobStore.store(stream("short-lived"), 0);
+        blobStore.release(blob.sha256());
+
+        blobStore.collectGarbage();
+        assertTrue(rows.containsKey(blob.sha256()));
+        assertTrue(storage.exists(blob.key()));
+        verify(extractedTextRepository, never()).deleteByChecksum(anyString());
+
+        age(blob.sha256());
+        blobStore.collectGarbage();
+        assertFalse(rows.containsKey(blob.sha256()));
+        assertFalse(storage.exists(blob.key()));
+        verify(extractedTextRepository).deleteByChecksum(blob.sha256());
+    }
+
+    @Test
+    void testGarbageCollectionKeepsReferencedBlobs() throws Exception {
+        StoredFile kept = blobStore.store(stream("still used"), 0);
+        StoredFile reused = blobStore.store(stream("used again"), 0);
+        blobStore.release(reused.sha256());
+        age(kept.sha256());
+        age(reused.sha256());
+        blobStore.retain(reused.sha256(), reused.key());
+
+        blobStore.collectGarbage();
+
+        assertEquals("still used", read(kept.key()));
+        assertEquals("used again", read(reused.key()));
+    }
+
+    @Test
+    void testStoringAfterCollectionRecreatesBlob() throws Exception {
+        StoredFile blob = blobStore.store(stream("comes back"), 0);
+        blobStore.release(blob.sha256());
+        age(blob.sha256());
+        blobStore.collectGarbage();
+
+        StoredFile again = blobStore.store(stream("comes back"), 0);
+
+        assertEquals(blob.key(), again.key());
+        assertEquals(1L, rows.get(again.sha256()).getRefCount());
+        assertEquals("comes back", read(again.key()));
+    }
+
+    @Test
+    void testStoringRestoresMissingFile() throws Exception {
+        StoredFile blob = blobStore.store(stream("lost file"), 0);
+        storage.delete(blob.key());
+
+        blobStore.store(stream("lost file"), 0);
+
+        assertEquals(2L, rows.get(blob.sha256()).getRefCount());
+        assertEquals("lost file", read(blob.key()));
+    }
+
+    private static boolean collectable(StoredBlob row, Instant cutoff) {
+        return row.getRefCount() == 0 && row.getCreatedAt().isBefore(cutoff)
+                && (row.getReleasedAt() == null || row.getReleasedAt().isBefore(cutoff));
+    }
+
+    // Moves a row's timestamps past the grace period
+    private void age(String sha256) {
+        StoredBlob row = rows.get(sha256);
+        Duration past = Duration.ofMillis(GRACE_MILLIS * 2);
+        row.setCreatedAt(row.getCreatedAt().minus(past));
+        if (row.getReleasedAt() != null) {
+            row.setReleasedAt(row.getReleasedAt().minus(past));
+        }
+    }
+
+    private String read(String key) throws Exception {
+        try (InputStream in = storage.open(key)) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private static InputStream stream(String text) {
+        return new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8));
+    }
+}
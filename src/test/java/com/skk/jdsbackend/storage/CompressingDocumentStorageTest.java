@@ -0,0 +1,86 @@
+package com.skk.jdsbackend.storage;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompressingDocumentStorageTest {
+
+    private static final int FRAME_SIZE = 1024;
+
+    private final InMemoryDocumentStorage backend = new InMemoryDocumentStorage(new StreamingFileWriter());
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final CompressingDocumentStorage storage =
+            new CompressingDocumentStorage(backend, true, FRAME_SIZE, 6, registry);
+
+    @Test
+    void testTextIsStoredCompressedAndReadBack() throws Exception {
+        byte[] content = text(10_000);
+
+        StoredFile stored = storage.write("blobs/a", new ByteArrayInputStream(content), 0);
+
+        assertEquals(content.length, stored.size());
+        assertEquals(HexFormat.of().formatHex(StreamingFileWriter.sha256().digest(content)), stored.sha256());
+        assertTrue(backend.size("blobs/a") < content.length / 2);
+        assertEquals(content.length, storage.size("blobs/a"));
+        try (InputStream in = storage.open("blobs/a")) {
+            assertArrayEquals(content, in.readAllBytes());
+        }
+        assertTrue(registry.get("document.storage.compression.ratio").gauge().value() < 0.5);
+    }
+
+    @Test
+    void testSkipSeeksToTheRightFrame() throws Exception {
+        byte[] content = text(5_000);
+        storage.write("blobs/b", new ByteArrayInputStream(content), 0);
+
+        try (InputStream in = storage.resource("blobs/b").getInputStream()) {
+            assertEquals(2_500, in.skip(2_500));
+            assertArrayEquals(Arrays.copyOfRange(content, 2_500, 2_600), in.readNBytes(100));
+            assertEquals(1_000, in.skip(1_000));
+            assertArrayEquals(Arrays.copyOfRange(content, 3_600, 5_000), in.readAllBytes());
+            assertEquals(0, in.skip(10));
+        }
+    }
+
+    @Test
+    void testStoredGzipRegionIsAValidGzipStream() throws Exception {
+        byte[] content = text(3_000);
+        storage.write("blobs/c", new ByteArrayInputStream(content), 0);
+
+        FramedResource resource = (FramedResource) storage.resource("blobs/c");
+        byte[] stored = resource.stored().getContentAsByteArray();
+        byte[] gzip = Arrays.copyOfRange(stored, (int) resource.gzipOffset(),
+                (int) (resource.gzipOffset() + resource.gzipLength()));
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(gzip))) {
+            assertArrayEquals(content, in.readAllBytes());
+        }
+    }
+
+    @Test
+    void testAlreadyCompressedFormatsAreStoredAsIs() throws Exception {
+        byte[] png = new byte[4_000];
+        System.arraycopy(new byte[] { (byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1a, '\n' }, 0, png, 0, 8);
+
+        storage.write("blobs/d", new ByteArrayInputStream(png), 0);
+
+        assertArrayEquals(png, backend.open("blobs/d").readAllBytes());
+        assertFalse(storage.resource("blobs/d") instanceof FramedResource);
+    }
+
+    private static byte[] text(int length) {
+        StringBuilder sb = new StringBuilder();
+        for (int line = 0; sb.length() < length; line++) {
+            sb.append("Line ").append(line).append(": the quick brown fox jumps over the lazy dog\n");
+        }
+        return sb.substring(0, length).getBytes(StandardCharsets.US_ASCII);
+    }
+}
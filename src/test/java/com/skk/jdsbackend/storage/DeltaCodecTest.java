@@ -0,0 +1,71 @@
+package com.skk.jdsbackend.storage;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DeltaCodecTest {
+
+    @Test
+    void testSmallEditProducesSmallDelta() throws Exception {
+        byte[] base = text(50_000);
+        String edited = new String(base, StandardCharsets.US_ASCII);
+        edited = edited.substring(0, 20_000) + "an inserted clause " + edited.substring(20_100);
+        byte[] target = edited.getBytes(StandardCharsets.US_ASCII);
+
+        byte[] delta = encode(base, target);
+
+        assertTrue(delta.length < 200, "delta was " + delta.length + " bytes");
+        assertArrayEquals(target, decode(delta, base));
+    }
+
+    @Test
+    void testUnrelatedAndTinyInputsRoundTrip() throws Exception {
+        byte[] random = new byte[10_000];
+        new Random(42).nextBytes(random);
+
+        assertArrayEquals(random, decode(encode(text(8_000), random), text(8_000)));
+        assertArrayEquals(new byte[0], decode(encode(random, new byte[0]), random));
+        assertArrayEquals(new byte[] { 1, 2, 3 }, decode(encode(new byte[0], new byte[] { 1, 2, 3 }), new byte[0]));
+    }
+
+    @Test
+    void testWrongBaseIsRejected() throws Exception {
+        byte[] delta = encode(text(1_000), text(1_200));
+
+        assertThrows(IOException.class, () -> decode(delta, text(999)));
+    }
+
+    private static byte[] encode(byte[] base, byte[] target) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        DeltaCodec.encode(base, target, out);
+        return out.toByteArray();
+    }
+
+    private static byte[] decode(byte[] delta, byte[] base) throws IOException {
+        try (InputStream in = DeltaCodec.decode(new ByteArrayInputStream(delta), base)) {
+            return in.readAllBytes();
+        }
+    }
+
+    private static byte[] text(int length) {
+        String[] words = { "party", "agree", "term", "notice", "shall", "contract", "court", "payment", "date" };
+        Random random = new Random(length);
+        StringBuilder sb = new StringBuilder();
+        for (int line = 0; sb.length() < length; line++) {
+            sb.append("Clause ").append(line).append(':');
+            for (int i = 0; i < 8; i++) {
+                sb.append(' ').append(words[random.nextInt(words.length)]);
+            }
+            sb.append('\n');
+        }
+        return sb.substring(0, length).getBytes(StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,84 @@
+package com.skk.jdsbackend.storage;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DocumentStorageTest {
+
+    private static final String SHA = "3fa4c1d2e5b6a7980011223344556677889900aabbccddeeff00112233445566";
+
+    private final StreamingFileWriter writer = new StreamingFileWriter();
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void testFileSystemStorageShardsByHashPrefix() throws Exception {
+        ShardedFileSystemStorage storage = new ShardedFileSystemStorage(dir.toString(), writer);
+
+        storage.write("blobs/" + SHA, new ByteArrayInputStream(bytes("hello")), 0);
+
+        assertTrue(Files.isRegularFile(dir.resolve("blobs").resolve("3f").resolve("a4").resolve(SHA)));
+        assertEquals("hello", read(storage, "blobs/" + SHA));
+    }
+
+    @Test
+    void testFileSystemStorageMigratesFlatLayout() throws Exception {
+        ShardedFileSystemStorage storage = new ShardedFileSystemStorage(dir.toString(), writer);
+        Files.createDirectories(dir.resolve("blobs"));
+        Files.write(dir.resolve("blobs").resolve(SHA), bytes("legacy"));
+
+        // Readable before and after the move
+        assertEquals("legacy", read(storage, "blobs/" + SHA));
+        assertEquals(1, storage.migrateLayout(10));
+        assertEquals(0, storage.migrateLayout(10));
+        assertFalse(Files.exists(dir.resolve("blobs").resolve(SHA)));
+        assertEquals("legacy", read(storage, "blobs/" + SHA));
+    }
+
+    @Test
+    void testFileSystemStorageRejectsTraversal() {
+        ShardedFileSystemStorage storage = new ShardedFileSystemStorage(dir.toString(), writer);
+
+        assertThrows(IllegalArgumentException.class, () -> storage.exists("blobs/../../etc/passwd"));
+    }
+
+    @Test
+    void testInMemoryStorageMoveAndDelete() throws Exception {
+        InMemoryDocumentStorage storage = new InMemoryDocumentStorage(writer);
+
+        StoredFile stored = storage.write("staging/a", new ByteArrayInputStream(bytes("%PDF-1.4")), 0);
+        storage.move("staging/a", "blobs/" + stored.sha256());
+
+        assertEquals("application/pdf", stored.sniffedContentType());
+        assertFalse(storage.exists("staging/a"));
+        assertEquals(8, storage.size("blobs/" + stored.sha256()));
+        storage.delete("blobs/" + stored.sha256());
+        assertFalse(storage.exists("blobs/" + stored.sha256()));
+    }
+
+    @Test
+    void testBlobKeysAcceptLegacyBlobPaths() {
+        assertEquals("blobs/" + SHA, BlobStore.keyFor("blobs/" + SHA));
+        assertEquals("blobs/" + SHA, BlobStore.keyFor("uploads/blobs/" + SHA));
+        assertNull(BlobStore.keyFor("uploads/6f1c2d3e-aaaa-bbbb-cccc-000000000000.pdf"));
+    }
+
+    private static byte[] bytes(String s) {
+        return s.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private static String read(DocumentStorage storage, String key) throws Exception {
+        try (InputStream in = storage.open(key)) {
+            return new String(in.readAllBytes(), StandardCharsets.US_ASCII);
+        }
+    }
+}
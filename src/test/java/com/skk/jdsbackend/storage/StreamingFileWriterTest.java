@@ -0,0 +1,55 @@
+package com.skk.jdsbackend.storage;
+
+import com.skk.jdsbackend.exception.PayloadTooLargeException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HexFormat;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StreamingFileWriterTest {
+
+    private final StreamingFileWriter writer = new StreamingFileWriter();
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void testWriteComputesDigestAndSniffsType() throws Exception {
+        byte[] content = "%PDF-1.7\nhello".getBytes(StandardCharsets.US_ASCII);
+
+        Path target = dir.resolve("out.pdf");
+        StoredFile stored = writer.write("k", new ByteArrayInputStream(content), target, 0);
+
+        assertEquals("k", stored.key());
+        assertArrayEquals(content, Files.readAllBytes(target));
+        assertEquals(content.length, stored.size());
+        assertEquals(HexFormat.of().formatHex(StreamingFileWriter.sha256().digest(content)), stored.sha256());
+        assertEquals("application/pdf", stored.sniffedContentType());
+    }
+
+    @Test
+    void testOversizedUploadLeavesNoFiles() throws Exception {
+        byte[] content = new byte[1024];
+
+        assertThrows(PayloadTooLargeException.class,
+                () -> writer.write("k", new ByteArrayInputStream(content), dir.resolve("out"), 100));
+
+        try (var files = Files.list(dir)) {
+            assertEquals(0, files.count());
+        }
+    }
+
+    @Test
+    void testResolvePrefersSpecificSniffedType() {
+        assertEquals("image/png", ContentTypeSniffer.resolve("image/png", "application/octet-stream", "a.bin"));
+        assertEquals("application/vnd.openxmlformats-officedocument.wordprocessingml.document",
+                ContentTypeSniffer.resolve(ContentTypeSniffer.ZIP, null, "contract.docx"));
+        assertEquals("application/octet-stream", ContentTypeSniffer.resolve(null, null, "noext"));
+    }
+}